@@ -0,0 +1,11 @@
+/**
+ * MathsFOG : vertices, matrices, bounds and batches for OpenGL
+ *
+ * Java 21+ descriptor : the Vector API is used when jdk.incubator.vector is added to the boot layer
+ */
+module pinzen.utils.mathsfog {
+	requires static jdk.jfr;
+	requires static jdk.incubator.vector;
+
+	exports pinzen.utils.mathsfog;
+}
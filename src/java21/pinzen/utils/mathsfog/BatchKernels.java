@@ -0,0 +1,119 @@
+package pinzen.utils.mathsfog;
+
+/**
+ * Inner loops of the batch operations (bounds over structure of arrays, vertex packing)
+ *
+ * Java 21+ version of the multi-release jar : uses VectorKernels (Vector API) when the
+ * jdk.incubator.vector module is added (--add-modules jdk.incubator.vector) and not disabled
+ * with -Dpinzen.mathsfog.vector=false, the same scalar loops as the portable version otherwise.
+ * VectorKernels is only loaded when it's used.
+ */
+final class BatchKernels {
+
+	private static final boolean VECTOR = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+			&& Boolean.parseBoolean(System.getProperty("pinzen.mathsfog.vector", "true"));
+
+	private BatchKernels() {}
+
+	/**
+	 * @return true if this class uses the Vector API
+	 */
+	static boolean isVectorized() {
+		return VECTOR;
+	}
+
+	/**
+	 * Test boxes start to end-1 against one box
+	 * @return bit (i - start) set when box i collides (end - start <= 64)
+	 */
+	static long boxBits(float[] minX, float[] minY, float[] minZ, float[] maxX, float[] maxY, float[] maxZ, int start, int end,
+			float bMinX, float bMinY, float bMinZ, float bMaxX, float bMaxY, float bMaxZ) {
+		if(VECTOR)
+			return VectorKernels.boxBits(minX, minY, minZ, maxX, maxY, maxZ, start, end, bMinX, bMinY, bMinZ, bMaxX, bMaxY, bMaxZ);
+
+		long bits = 0;
+		for(int i = start; i<end; i++) {
+			boolean hit = (minX[i] <= bMaxX) & (maxX[i] >= bMinX)
+					& (minY[i] <= bMaxY) & (maxY[i] >= bMinY)
+					& (minZ[i] <= bMaxZ) & (maxZ[i] >= bMinZ);
+			bits |= (hit ? 1L : 0L) << (i - start);
+		}
+		return bits;
+	}
+
+	/**
+	 * Test boxes start to end-1 against one sphere
+	 * @return bit (i - start) set when box i collides (end - start <= 64)
+	 */
+	static long sphereBits(float[] minX, float[] minY, float[] minZ, float[] maxX, float[] maxY, float[] maxZ, int start, int end,
+			float x, float y, float z, float r2) {
+		if(VECTOR)
+			return VectorKernels.sphereBits(minX, minY, minZ, maxX, maxY, maxZ, start, end, x, y, z, r2);
+
+		long bits = 0;
+		for(int i = start; i<end; i++) {
+			float dx = x - Math.max(minX[i], Math.min(x, maxX[i]));
+			float dy = y - Math.max(minY[i], Math.min(y, maxY[i]));
+			float dz = z - Math.max(minZ[i], Math.min(z, maxZ[i]));
+			bits |= (dx*dx + dy*dy + dz*dz <= r2 ? 1L : 0L) << (i - start);
+		}
+		return bits;
+	}
+
+	/**
+	 * Test spheres start to end-1 against one sphere
+	 * @return bit (i - start) set when sphere i collides (end - start <= 64)
+	 */
+	static long spheresSphereBits(float[] x, float[] y, float[] z, float[] radius, int start, int end,
+			float sx, float sy, float sz, float sr) {
+		if(VECTOR)
+			return VectorKernels.spheresSphereBits(x, y, z, radius, start, end, sx, sy, sz, sr);
+
+		long bits = 0;
+		for(int i = start; i<end; i++) {
+			float dx = x[i] - sx, dy = y[i] - sy, dz = z[i] - sz;
+			float r = radius[i] + sr;
+			bits |= (dx*dx + dy*dy + dz*dz <= r*r ? 1L : 0L) << (i - start);
+		}
+		return bits;
+	}
+
+	/**
+	 * Test spheres start to end-1 against one box
+	 * @return bit (i - start) set when sphere i collides (end - start <= 64)
+	 */
+	static long spheresBoxBits(float[] x, float[] y, float[] z, float[] radius, int start, int end,
+			float bMinX, float bMinY, float bMinZ, float bMaxX, float bMaxY, float bMaxZ) {
+		if(VECTOR)
+			return VectorKernels.spheresBoxBits(x, y, z, radius, start, end, bMinX, bMinY, bMinZ, bMaxX, bMaxY, bMaxZ);
+
+		long bits = 0;
+		for(int i = start; i<end; i++) {
+			float dx = x[i] - Math.max(bMinX, Math.min(x[i], bMaxX));
+			float dy = y[i] - Math.max(bMinY, Math.min(y[i], bMaxY));
+			float dz = z[i] - Math.max(bMinZ, Math.min(z[i], bMaxZ));
+			bits |= (dx*dx + dy*dy + dz*dz <= radius[i]*radius[i] ? 1L : 0L) << (i - start);
+		}
+		return bits;
+	}
+
+	/**
+	 * Convert snorm16 values to floats : max(s, -32767) * scale
+	 */
+	static void snorm16ToFloat(short[] src, float[] dest, int count, float scale) {
+		int i = VECTOR ? VectorKernels.snorm16ToFloat(src, dest, count, scale) : 0;
+		for(; i<count; i++) {
+			dest[i] = Math.max(src[i], -32767) * scale;
+		}
+	}
+
+	/**
+	 * Convert snorm8 values to floats : max(b, -127) * scale
+	 */
+	static void snorm8ToFloat(byte[] src, float[] dest, int count, float scale) {
+		int i = VECTOR ? VectorKernels.snorm8ToFloat(src, dest, count, scale) : 0;
+		for(; i<count; i++) {
+			dest[i] = Math.max(src[i], -127) * scale;
+		}
+	}
+}
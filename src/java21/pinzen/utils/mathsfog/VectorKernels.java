@@ -0,0 +1,155 @@
+package pinzen.utils.mathsfog;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API versions of BatchKernels loops (Java 21+, jdk.incubator.vector)
+ *
+ * Lanes are processed with the preferred species of the CPU, remaining elements with scalar code.
+ * Each lane gives the same result as the scalar loop (same comparisons, same operation order).
+ */
+final class VectorKernels {
+
+	private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+	private static final int LANES = SPECIES.length();
+	// same number of lanes as SPECIES, null when smaller than the smallest shape (64 bits)
+	private static final VectorSpecies<Short> SHORTS = species(short.class, SPECIES.vectorBitSize() / 2);
+	private static final VectorSpecies<Byte> BYTES = species(byte.class, SPECIES.vectorBitSize() / 4);
+
+	private VectorKernels() {}
+
+	private static <E> VectorSpecies<E> species(Class<E> type, int bits) {
+		return bits < 64 ? null : VectorSpecies.of(type, VectorShape.forBitSize(bits));
+	}
+
+	static long boxBits(float[] minX, float[] minY, float[] minZ, float[] maxX, float[] maxY, float[] maxZ, int start, int end,
+			float bMinX, float bMinY, float bMinZ, float bMaxX, float bMaxY, float bMaxZ) {
+		long bits = 0;
+		int i = start;
+		for(int bound = start + SPECIES.loopBound(end - start); i<bound; i+=LANES) {
+			VectorMask<Float> hit = FloatVector.fromArray(SPECIES, minX, i).compare(VectorOperators.LE, bMaxX)
+					.and(FloatVector.fromArray(SPECIES, maxX, i).compare(VectorOperators.GE, bMinX))
+					.and(FloatVector.fromArray(SPECIES, minY, i).compare(VectorOperators.LE, bMaxY))
+					.and(FloatVector.fromArray(SPECIES, maxY, i).compare(VectorOperators.GE, bMinY))
+					.and(FloatVector.fromArray(SPECIES, minZ, i).compare(VectorOperators.LE, bMaxZ))
+					.and(FloatVector.fromArray(SPECIES, maxZ, i).compare(VectorOperators.GE, bMinZ));
+			bits |= hit.toLong() << (i - start);
+		}
+
+		for(; i<end; i++) {
+			boolean hit = (minX[i] <= bMaxX) & (maxX[i] >= bMinX)
+					& (minY[i] <= bMaxY) & (maxY[i] >= bMinY)
+					& (minZ[i] <= bMaxZ) & (maxZ[i] >= bMinZ);
+			bits |= (hit ? 1L : 0L) << (i - start);
+		}
+		return bits;
+	}
+
+	static long sphereBits(float[] minX, float[] minY, float[] minZ, float[] maxX, float[] maxY, float[] maxZ, int start, int end,
+			float x, float y, float z, float r2) {
+		long bits = 0;
+		int i = start;
+		for(int bound = start + SPECIES.loopBound(end - start); i<bound; i+=LANES) {
+			FloatVector dx = FloatVector.broadcast(SPECIES, x).min(FloatVector.fromArray(SPECIES, maxX, i))
+					.max(FloatVector.fromArray(SPECIES, minX, i)).neg().add(x);
+			FloatVector dy = FloatVector.broadcast(SPECIES, y).min(FloatVector.fromArray(SPECIES, maxY, i))
+					.max(FloatVector.fromArray(SPECIES, minY, i)).neg().add(y);
+			FloatVector dz = FloatVector.broadcast(SPECIES, z).min(FloatVector.fromArray(SPECIES, maxZ, i))
+					.max(FloatVector.fromArray(SPECIES, minZ, i)).neg().add(z);
+			FloatVector d2 = dx.mul(dx).add(dy.mul(dy)).add(dz.mul(dz));
+			bits |= d2.compare(VectorOperators.LE, r2).toLong() << (i - start);
+		}
+
+		for(; i<end; i++) {
+			float dx = x - Math.max(minX[i], Math.min(x, maxX[i]));
+			float dy = y - Math.max(minY[i], Math.min(y, maxY[i]));
+			float dz = z - Math.max(minZ[i], Math.min(z, maxZ[i]));
+			bits |= (dx*dx + dy*dy + dz*dz <= r2 ? 1L : 0L) << (i - start);
+		}
+		return bits;
+	}
+
+	static long spheresSphereBits(float[] x, float[] y, float[] z, float[] radius, int start, int end,
+			float sx, float sy, float sz, float sr) {
+		long bits = 0;
+		int i = start;
+		for(int bound = start + SPECIES.loopBound(end - start); i<bound; i+=LANES) {
+			FloatVector dx = FloatVector.fromArray(SPECIES, x, i).sub(sx);
+			FloatVector dy = FloatVector.fromArray(SPECIES, y, i).sub(sy);
+			FloatVector dz = FloatVector.fromArray(SPECIES, z, i).sub(sz);
+			FloatVector r = FloatVector.fromArray(SPECIES, radius, i).add(sr);
+			FloatVector d2 = dx.mul(dx).add(dy.mul(dy)).add(dz.mul(dz));
+			bits |= d2.compare(VectorOperators.LE, r.mul(r)).toLong() << (i - start);
+		}
+
+		for(; i<end; i++) {
+			float dx = x[i] - sx, dy = y[i] - sy, dz = z[i] - sz;
+			float r = radius[i] + sr;
+			bits |= (dx*dx + dy*dy + dz*dz <= r*r ? 1L : 0L) << (i - start);
+		}
+		return bits;
+	}
+
+	static long spheresBoxBits(float[] x, float[] y, float[] z, float[] radius, int start, int end,
+			float bMinX, float bMinY, float bMinZ, float bMaxX, float bMaxY, float bMaxZ) {
+		long bits = 0;
+		int i = start;
+		for(int bound = start + SPECIES.loopBound(end - start); i<bound; i+=LANES) {
+			FloatVector vx = FloatVector.fromArray(SPECIES, x, i);
+			FloatVector vy = FloatVector.fromArray(SPECIES, y, i);
+			FloatVector vz = FloatVector.fromArray(SPECIES, z, i);
+			FloatVector vr = FloatVector.fromArray(SPECIES, radius, i);
+			FloatVector dx = vx.sub(vx.min(bMaxX).max(bMinX));
+			FloatVector dy = vy.sub(vy.min(bMaxY).max(bMinY));
+			FloatVector dz = vz.sub(vz.min(bMaxZ).max(bMinZ));
+			FloatVector d2 = dx.mul(dx).add(dy.mul(dy)).add(dz.mul(dz));
+			bits |= d2.compare(VectorOperators.LE, vr.mul(vr)).toLong() << (i - start);
+		}
+
+		for(; i<end; i++) {
+			float dx = x[i] - Math.max(bMinX, Math.min(x[i], bMaxX));
+			float dy = y[i] - Math.max(bMinY, Math.min(y[i], bMaxY));
+			float dz = z[i] - Math.max(bMinZ, Math.min(z[i], bMaxZ));
+			bits |= (dx*dx + dy*dy + dz*dz <= radius[i]*radius[i] ? 1L : 0L) << (i - start);
+		}
+		return bits;
+	}
+
+	/**
+	 * Convert the first snorm16 values to floats (S2F conversion is exact, then same max and product as the scalar loop)
+	 * @return number of values converted, the remaining ones are left to the scalar loop
+	 */
+	static int snorm16ToFloat(short[] src, float[] dest, int count, float scale) {
+		if(SHORTS == null)
+			return 0;
+
+		int i = 0;
+		for(int bound = SPECIES.loopBound(count); i<bound; i+=LANES) {
+			((FloatVector)ShortVector.fromArray(SHORTS, src, i).convertShape(VectorOperators.S2F, SPECIES, 0))
+					.max(-32767f).mul(scale).intoArray(dest, i);
+		}
+		return i;
+	}
+
+	/**
+	 * Convert the first snorm8 values to floats (B2F conversion is exact, then same max and product as the scalar loop)
+	 * @return number of values converted, the remaining ones are left to the scalar loop
+	 */
+	static int snorm8ToFloat(byte[] src, float[] dest, int count, float scale) {
+		if(BYTES == null)
+			return 0;
+
+		int i = 0;
+		for(int bound = SPECIES.loopBound(count); i<bound; i+=LANES) {
+			((FloatVector)ByteVector.fromArray(BYTES, src, i).convertShape(VectorOperators.B2F, SPECIES, 0))
+					.max(-127f).mul(scale).intoArray(dest, i);
+		}
+		return i;
+	}
+}
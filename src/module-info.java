@@ -0,0 +1,8 @@
+/**
+ * MathsFOG : vertices, matrices, bounds and batches for OpenGL
+ */
+module pinzen.utils.mathsfog {
+	requires static jdk.jfr;
+
+	exports pinzen.utils.mathsfog;
+}
@@ -0,0 +1,69 @@
+package pinzen.bench.mathsfog;
+
+import java.util.Random;
+
+import pinzen.utils.mathsfog.AABB3f;
+import pinzen.utils.mathsfog.AABB3fSet;
+import pinzen.utils.mathsfog.Matrix4f;
+import pinzen.utils.mathsfog.SphereBounds3fSet;
+import pinzen.utils.mathsfog.Vertex3f;
+
+/**
+ * Time of one broad phase tick (refit of world bounds, all pairs with sweep and prune, one box against all)
+ * for bodies spread in a cube
+ *
+ * Run : java pinzen.bench.mathsfog.Bounds3fBench [bodies]
+ */
+public class Bounds3fBench {
+
+	public static void main(String[] args) {
+		int bodies = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+		float side = (float)Math.cbrt(bodies) * 4;
+		Random random = new Random(1);
+
+		AABB3fSet boxes = new AABB3fSet(bodies);
+		SphereBounds3fSet spheres = new SphereBounds3fSet(bodies);
+		for(int i = 0; i<bodies; i++) {
+			float x = random.nextFloat()*side, y = random.nextFloat()*side, z = random.nextFloat()*side;
+			boxes.add(x, y, z, x+1, y+1, z+1);
+			spheres.add(x, y, z, 0.5f);
+		}
+
+		// local bounds of each body and its model matrix
+		AABB3fSet local = new AABB3fSet(bodies);
+		float[] matrices = new float[bodies * 16];
+		for(int i = 0; i<bodies; i++) {
+			local.add(-0.5f, -0.5f, -0.5f, 0.5f, 0.5f, 0.5f);
+			Matrix4f.builder().rotate(new Vertex3f(0, 1, 0), random.nextFloat()*360)
+					.translate(new Vertex3f(random.nextFloat()*side, random.nextFloat()*side, random.nextFloat()*side))
+					.build().store(matrices, i * 16);
+		}
+		AABB3fSet refit = new AABB3fSet(bodies);
+
+		AABB3f query = new AABB3f(0, 0, 0, side/4, side/4, side/4);
+		long[] mask = new long[(bodies + 63) / 64];
+		int[] pairs = new int[1];
+
+		for(int run = 1; run<=10; run++) {
+			long start = System.nanoTime();
+			refit.transform(local, matrices, 0);
+			long refitTime = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			int boxPairs = boxes.sweepAndPrune((a, b) -> pairs[0]++);
+			long boxTime = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			int spherePairs = spheres.sweepAndPrune((a, b) -> pairs[0]++);
+			long sphereTime = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			int hits = boxes.collide(query, mask);
+			long queryTime = System.nanoTime() - start;
+
+			System.out.println("Run " + run + " (" + bodies + " bodies) : refit " + refitTime/1000 + " us, boxes SAP " + boxTime/1000 + " us (" + boxPairs + " pairs)"
+					+ ", spheres SAP " + sphereTime/1000 + " us (" + spherePairs + " pairs)"
+					+ ", box vs all " + queryTime/1000 + " us (" + hits + " hits)");
+		}
+	}
+}
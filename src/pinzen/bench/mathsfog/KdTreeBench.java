@@ -0,0 +1,78 @@
+package pinzen.bench.mathsfog;
+
+import java.util.Random;
+
+import pinzen.utils.mathsfog.KdTree;
+
+/**
+ * Time of a KdTree rebuild and of nearest neighbour queries over points moving a little each frame,
+ * compared to brute force
+ *
+ * Run : java pinzen.bench.mathsfog.KdTreeBench [points] [queries]
+ */
+public class KdTreeBench {
+
+	public static void main(String[] args) {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 300000;
+		int queries = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+		float side = (float)Math.cbrt(count) * 4;
+		Random random = new Random(1);
+
+		float[] points = new float[count * 3];
+		for(int i = 0; i<points.length; i++) {
+			points[i] = random.nextFloat() * side;
+		}
+		float[] q = new float[queries * 3];
+		for(int i = 0; i<q.length; i++) {
+			q[i] = random.nextFloat() * side;
+		}
+
+		KdTree tree = new KdTree(3);
+		int[] indices = new int[8];
+		float[] distances = new float[8];
+		long checksum = 0;
+
+		for(int frame = 1; frame<=10; frame++) {
+			for(int i = 0; i<points.length; i++) {
+				points[i] += (random.nextFloat() - 0.5f) * 0.1f;
+			}
+
+			long start = System.nanoTime();
+			tree.build(points, count);
+			long buildTime = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for(int n = 0; n<queries; n++) {
+				checksum += tree.nearest(q[n*3], q[n*3+1], q[n*3+2]);
+			}
+			long nearestTime = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for(int n = 0; n<queries; n++) {
+				checksum += tree.nearest(q[n*3], q[n*3+1], q[n*3+2], 8, indices, distances);
+			}
+			long knnTime = System.nanoTime() - start;
+
+			System.out.println("Frame " + frame + " (" + count + " points) : build " + buildTime/1000 + " us, "
+					+ queries + " nearest " + nearestTime/1000 + " us, " + queries + " 8-nearest " + knnTime/1000 + " us");
+		}
+
+		int bruteQueries = Math.max(1, queries / 100);
+		long start = System.nanoTime();
+		for(int n = 0; n<bruteQueries; n++) {
+			int best = -1;
+			float bestDistance = Float.POSITIVE_INFINITY;
+			for(int i = 0; i<count; i++) {
+				float dx = points[i*3] - q[n*3], dy = points[i*3+1] - q[n*3+1], dz = points[i*3+2] - q[n*3+2];
+				float d = dx*dx + dy*dy + dz*dz;
+				if(d < bestDistance) {
+					bestDistance = d;
+					best = i;
+				}
+			}
+			checksum += best;
+		}
+		long bruteTime = System.nanoTime() - start;
+		System.out.println("Brute force : " + bruteQueries + " nearest " + bruteTime/1000 + " us (checksum " + checksum + ")");
+	}
+}
@@ -0,0 +1,71 @@
+package pinzen.bench.mathsfog;
+
+import pinzen.utils.mathsfog.Matrix4f;
+import pinzen.utils.mathsfog.Vertex2f;
+import pinzen.utils.mathsfog.Vertex3f;
+
+/**
+ * Compare README chain (scale, rotate, translate) computed with chained static functions
+ * and with Matrix4f.builder()
+ *
+ * Run : java pinzen.bench.mathsfog.Matrix4fBuilderBench [iterations]
+ */
+public class Matrix4fBuilderBench {
+
+	private static final Vertex3f AXE = new Vertex3f(0,0,1);
+	private static final Vertex2f TRANS = new Vertex2f(100, -20);
+
+	public static void main(String[] args) {
+		int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+
+		for(int run = 1; run<=5; run++) {
+			System.out.println("Run " + run);
+			System.out.println("  chained statics     : " + chained(iterations) + " ns/op");
+			System.out.println("  builder (new)       : " + builder(iterations) + " ns/op");
+			System.out.println("  builder (reused)    : " + builderReused(iterations) + " ns/op");
+		}
+	}
+
+	private static double chained(int iterations) {
+		float sink = 0;
+		long start = System.nanoTime();
+		for(int i = 0; i<iterations; i++) {
+			Matrix4f model = new Matrix4f();
+			model = Matrix4f.scale(model, 3f);
+			model = Matrix4f.rotate(model, AXE, i);
+			model = Matrix4f.translate(model, TRANS);
+			sink += model.get(1, 4);
+		}
+		return report(start, iterations, sink);
+	}
+
+	private static double builder(int iterations) {
+		float sink = 0;
+		long start = System.nanoTime();
+		for(int i = 0; i<iterations; i++) {
+			Matrix4f model = Matrix4f.builder().scale(3f).rotate(AXE, i).translate(TRANS).build();
+			sink += model.get(1, 4);
+		}
+		return report(start, iterations, sink);
+	}
+
+	private static double builderReused(int iterations) {
+		float sink = 0;
+		Matrix4f.Builder builder = Matrix4f.builder();
+		Matrix4f model = new Matrix4f();
+		long start = System.nanoTime();
+		for(int i = 0; i<iterations; i++) {
+			builder.reset().scale(3f).rotate(AXE, i).translate(TRANS).build(model);
+			sink += model.get(1, 4);
+		}
+		return report(start, iterations, sink);
+	}
+
+	private static double report(long start, int iterations, float sink) {
+		double ns = (System.nanoTime() - start) / (double)iterations;
+		// keep the result alive so the JIT can't remove the loop
+		if(sink == Float.MIN_VALUE)
+			System.out.println(sink);
+		return Math.round(ns * 10) / 10.0;
+	}
+}
@@ -0,0 +1,56 @@
+package pinzen.bench.mathsfog;
+
+import java.util.Random;
+
+import pinzen.utils.mathsfog.Normalization;
+import pinzen.utils.mathsfog.Normalization.ZeroLength;
+import pinzen.utils.mathsfog.Vertex3f;
+
+/**
+ * Time of the normalization of many normals : one new Vertex3f per normal (Vertex3f.normalize)
+ * compared to Normalization over a flat array, with exact and fast inverse square root
+ *
+ * Run : java pinzen.bench.mathsfog.NormalizationBench [normals]
+ */
+public class NormalizationBench {
+
+	public static void main(String[] args) {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		Random random = new Random(1);
+
+		float[] source = new float[count * 3];
+		for(int i = 0; i<source.length; i++) {
+			source[i] = random.nextFloat() * 20 - 10;
+		}
+		Vertex3f[] vertices = new Vertex3f[count];
+		for(int i = 0; i<count; i++) {
+			vertices[i] = new Vertex3f(source[i*3], source[i*3+1], source[i*3+2]);
+		}
+		float[] normals = new float[count * 3];
+		double checksum = 0;
+
+		for(int run = 1; run<=10; run++) {
+			long start = System.nanoTime();
+			for(int i = 0; i<count; i++) {
+				checksum += Vertex3f.normalize(vertices[i]).x;
+			}
+			long objectTime = System.nanoTime() - start;
+
+			System.arraycopy(source, 0, normals, 0, normals.length);
+			start = System.nanoTime();
+			Normalization.normalize(normals, 0, count, 3, false, ZeroLength.ZERO);
+			long exactTime = System.nanoTime() - start;
+			checksum += normals[0];
+
+			System.arraycopy(source, 0, normals, 0, normals.length);
+			start = System.nanoTime();
+			Normalization.normalize(normals, 0, count, 3, true, ZeroLength.ZERO);
+			long fastTime = System.nanoTime() - start;
+			checksum += normals[0];
+
+			System.out.println("Run " + run + " (" + count + " normals) : Vertex3f.normalize " + objectTime/1000 + " us, batch exact "
+					+ exactTime/1000 + " us, batch fast " + fastTime/1000 + " us");
+		}
+		System.out.println("Checksum " + checksum);
+	}
+}
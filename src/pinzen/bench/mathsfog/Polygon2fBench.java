@@ -0,0 +1,55 @@
+package pinzen.bench.mathsfog;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import pinzen.utils.mathsfog.Polygon2f;
+
+/**
+ * Time of convex hulls of many point sets (one by one and batch) and of points against a polygon
+ *
+ * Run : java pinzen.bench.mathsfog.Polygon2fBench [points] [sets]
+ */
+public class Polygon2fBench {
+
+	public static void main(String[] args) {
+		int points = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+		int sets = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+		Random random = new Random(1);
+
+		int[] starts = new int[sets + 1];
+		for(int s = 1; s<=sets; s++) {
+			starts[s] = (int)((long)points * s / sets);
+		}
+		float[] coords = new float[points * 2];
+		for(int i = 0; i<coords.length; i++) {
+			coords[i] = random.nextFloat() * 100;
+		}
+		float[] dest = new float[coords.length];
+		int[] sizes = new int[sets];
+		long[] mask = new long[(points + 63) / 64];
+		Polygon2f shape = new Polygon2f(new float[] {50,10, 90,50, 50,90, 10,50, 30,30}, 5);
+
+		for(int run = 1; run<=10; run++) {
+			long start = System.nanoTime();
+			long hullPoints = 0;
+			for(int s = 0; s<sets; s++) {
+				float[] set = Arrays.copyOfRange(coords, starts[s]*2, starts[s+1]*2);
+				hullPoints += Polygon2f.convexHull(set, set.length / 2, new float[set.length]);
+			}
+			long singleTime = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			Polygon2f.convexHulls(coords, starts, sets, dest, sizes);
+			long batchTime = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			int inside = shape.contains(coords, points, mask);
+			long containsTime = System.nanoTime() - start;
+
+			System.out.println("Run " + run + " (" + points + " points, " + sets + " sets) : hulls one by one " + singleTime/1000
+					+ " us (" + hullPoints + " hull points), batch " + batchTime/1000 + " us, points in polygon "
+					+ containsTime/1000 + " us (" + inside + " inside)");
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package pinzen.bench.mathsfog;
+
+import java.util.Random;
+
+import pinzen.utils.mathsfog.PairListener;
+import pinzen.utils.mathsfog.SweepAndPrune2f;
+
+/**
+ * Time of one tick of the persistent sweep and prune for bodies moving a little each tick
+ *
+ * Run : java pinzen.bench.mathsfog.SweepAndPrune2fBench [bodies]
+ */
+public class SweepAndPrune2fBench {
+
+	public static void main(String[] args) {
+		int bodies = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+		float side = (float)Math.sqrt(bodies) * 4;
+		Random random = new Random(1);
+
+		SweepAndPrune2f sap = new SweepAndPrune2f(bodies);
+		float[] x = new float[bodies], y = new float[bodies], vx = new float[bodies], vy = new float[bodies];
+		for(int i = 0; i<bodies; i++) {
+			x[i] = random.nextFloat()*side;
+			y[i] = random.nextFloat()*side;
+			vx[i] = (random.nextFloat() - 0.5f) * 0.1f;
+			vy[i] = (random.nextFloat() - 0.5f) * 0.1f;
+			sap.add(x[i], y[i], x[i]+1, y[i]+1);
+		}
+
+		int[] events = new int[1];
+		PairListener listener = new PairListener() {
+			public void pairAdded(int a, int b) { events[0]++; }
+			public void pairRemoved(int a, int b) { events[0]++; }
+		};
+
+		long start = System.nanoTime();
+		sap.update(listener);
+		System.out.println("First tick (full sort) : " + (System.nanoTime() - start)/1000 + " us, " + sap.getPairCount() + " pairs");
+
+		for(int tick = 1; tick<=20; tick++) {
+			for(int i = 0; i<bodies; i++) {
+				x[i] += vx[i];
+				y[i] += vy[i];
+				sap.update(i, x[i], y[i], x[i]+1, y[i]+1);
+			}
+
+			events[0] = 0;
+			start = System.nanoTime();
+			sap.update(listener);
+			long time = System.nanoTime() - start;
+
+			System.out.println("Tick " + tick + " (" + bodies + " bodies) : " + time/1000 + " us, "
+					+ sap.getPairCount() + " pairs, " + events[0] + " events");
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package pinzen.test.mathsfog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import pinzen.utils.mathsfog.BatchFile;
+import pinzen.utils.mathsfog.Matrix4f;
+import pinzen.utils.mathsfog.Matrix4fBatch;
+import pinzen.utils.mathsfog.Vertex3f;
+import pinzen.utils.mathsfog.VertexBatch;
+
+class BatchFileTest {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void testVerticesRoundTrip() throws IOException {
+		VertexBatch batch = new VertexBatch(3, 100000);
+		for(int i = 0; i<batch.size(); i++) {
+			batch.set(i, new Vertex3f(i, -i, i * 0.5f));
+		}
+
+		Path file = dir.resolve("vertices.mfog");
+		BatchFile.write(file, batch);
+		assertEquals(BatchFile.HEADER_SIZE + 100000 * 3 * 4, Files.size(file));
+
+		VertexBatch mapped = BatchFile.mapVertices(file);
+		assertEquals(3, mapped.getDimension());
+		assertEquals(100000, mapped.size());
+		assertTrue(mapped.isReadOnly());
+
+		Vertex3f v = new Vertex3f();
+		mapped.get(99999, v);
+		assertEquals(99999f, v.x);
+		assertEquals(-99999f, v.y);
+		assertEquals(99999 * 0.5f, v.z);
+	}
+
+	@Test
+	void testVerticesWindow() throws IOException {
+		Path file = dir.resolve("window.mfog");
+		BatchFile.write(file, VertexBatch.wrap(new float[]{0,1, 2,3, 4,5, 6,7}, 2));
+
+		VertexBatch window = BatchFile.mapVertices(file, 1, 2);
+		assertEquals(2, window.size());
+		assertEquals(2f, window.get(0, 1));
+		assertEquals(5f, window.get(1, 2));
+
+		assertThrows(IOException.class, () -> BatchFile.mapVertices(file, 3, 2));
+	}
+
+	@Test
+	void testMatricesRoundTrip() throws IOException {
+		Matrix4fBatch batch = new Matrix4fBatch(2);
+		batch.set(1, Matrix4f.getTranslationMatrix(new Vertex3f(1, 2, 3)));
+
+		Path file = dir.resolve("matrices.mfog");
+		BatchFile.write(file, batch);
+
+		Matrix4fBatch mapped = BatchFile.mapMatrices(file);
+		Matrix4f m = mapped.get(1, new Matrix4f());
+		assertEquals(2, mapped.size());
+		assertEquals(3f, m.get(3, 4));
+		assertEquals(1f, mapped.get(0, m).get(2, 2));
+
+		assertThrows(IOException.class, () -> BatchFile.mapVertices(file));
+	}
+
+	@Test
+	void testCorruptHeader() throws IOException {
+		Path file = dir.resolve("corrupt.mfog");
+		BatchFile.write(file, new VertexBatch(3, 4));
+
+		// components byte out of 2/3/4
+		patch(file, 7, ByteBuffer.allocate(1).put((byte)5));
+		assertThrows(IOException.class, () -> BatchFile.mapVertices(file));
+		patch(file, 7, ByteBuffer.allocate(1).put((byte)3));
+		assertEquals(4, BatchFile.mapVertices(file).size());
+
+		// count * 12 bytes overflowing int then long
+		for(long count : new long[] {-1, 0x1555_5556L, 0x1555_5555_5555_5556L, Long.MAX_VALUE}) {
+			patch(file, 8, ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(count));
+			assertThrows(IOException.class, () -> BatchFile.mapVertices(file), "count " + count);
+			assertThrows(IOException.class, () -> BatchFile.count(file), "count " + count);
+		}
+	}
+
+	private static void patch(Path file, long position, ByteBuffer bytes) throws IOException {
+		bytes.flip();
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.write(bytes, position);
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package pinzen.test.mathsfog;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import pinzen.utils.mathsfog.AABB3f;
+import pinzen.utils.mathsfog.SphereBounds3f;
+import pinzen.utils.mathsfog.SphereBounds3fSet;
+
+/**
+ * Kernels picked by the jar and results of the set queries going through them
+ *
+ * The failsafe run of the java21 profile (jar with --add-modules jdk.incubator.vector) sets
+ * -Dpinzen.mathsfog.test.vectorized=true : the Java 21 layer must then use the Vector API.
+ * Other runs (classes directory, Java 11-20) must use the portable loops.
+ */
+class BatchKernelsTest {
+
+	@Test
+	void testKernelSelection() throws Exception {
+		Method isVectorized = Class.forName("pinzen.utils.mathsfog.BatchKernels").getDeclaredMethod("isVectorized");
+		isVectorized.setAccessible(true);
+
+		assertEquals(Boolean.getBoolean("pinzen.mathsfog.test.vectorized"), isVectorized.invoke(null));
+	}
+
+	@Test
+	void testSphereSetQueries() {
+		Random random = new Random(3);
+		SphereBounds3fSet spheres = new SphereBounds3fSet(16);
+		SphereBounds3f[] single = new SphereBounds3f[203];
+		for(int i = 0; i<single.length; i++) {
+			single[i] = new SphereBounds3f(random.nextFloat() * 50, random.nextFloat() * 50, random.nextFloat() * 50, random.nextFloat() * 4);
+			spheres.add(single[i]);
+		}
+
+		long[] mask = new long[4], expected = new long[4];
+		for(int q = 0; q<50; q++) {
+			SphereBounds3f sphere = new SphereBounds3f(random.nextFloat() * 50, random.nextFloat() * 50, random.nextFloat() * 50, random.nextFloat() * 10);
+			float x = random.nextFloat() * 40, y = random.nextFloat() * 40, z = random.nextFloat() * 40;
+			AABB3f box = new AABB3f(x, y, z, x + random.nextFloat() * 10, y + random.nextFloat() * 10, z + random.nextFloat() * 10);
+
+			// same results as the scalar tests of each sphere, whatever the kernels
+			Arrays.fill(expected, 0);
+			for(int i = 0; i<single.length; i++) {
+				if(single[i].collide(sphere))
+					expected[i / 64] |= 1L << (i % 64);
+			}
+			assertEquals(Long.bitCount(expected[0]) + Long.bitCount(expected[1]) + Long.bitCount(expected[2]) + Long.bitCount(expected[3]),
+					spheres.collide(sphere, mask));
+			assertArrayEquals(expected, mask);
+
+			Arrays.fill(expected, 0);
+			for(int i = 0; i<single.length; i++) {
+				if(single[i].collide(box))
+					expected[i / 64] |= 1L << (i % 64);
+			}
+			spheres.collide(box, mask);
+			assertArrayEquals(expected, mask);
+		}
+	}
+}
@@ -0,0 +1,166 @@
+package pinzen.test.mathsfog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.IntPredicate;
+
+import org.junit.jupiter.api.Test;
+
+import pinzen.utils.mathsfog.AABB3f;
+import pinzen.utils.mathsfog.AABB3fSet;
+import pinzen.utils.mathsfog.Matrix4f;
+import pinzen.utils.mathsfog.RectBounds2f;
+import pinzen.utils.mathsfog.SphereBounds3f;
+import pinzen.utils.mathsfog.SphereBounds3fSet;
+import pinzen.utils.mathsfog.Vertex3f;
+
+class Bounds3fTest {
+
+	@Test
+	void testSingleBounds() {
+		SphereBounds3f sphere = new SphereBounds3f(new Vertex3f(0,0,0), 1);
+		AABB3f box = new AABB3f(0.5f,0.5f,0.5f, 2,2,2);
+
+		assertTrue(sphere.contains(new Vertex3f(0,0,1)));
+		assertFalse(sphere.contains(new Vertex3f(0,1,1)));
+		assertTrue(sphere.collide(new SphereBounds3f(0,0,1.9f, 1)));
+		assertTrue(sphere.collide(box));
+		assertTrue(box.collide(sphere));
+		assertFalse(new SphereBounds3f(-0.5f,-0.5f,-0.5f, 1).collide(box));
+
+		assertTrue(box.collide(new AABB3f(1,1,1, 3,3,3)));
+		assertFalse(box.collide(new AABB3f(1,1,2.5f, 3,3,3)));
+	}
+
+	@Test
+	void testSetsAgainstSingleTests() {
+		Random random = new Random(42);
+		AABB3fSet boxes = new AABB3fSet(4);
+		SphereBounds3fSet spheres = new SphereBounds3fSet(4);
+		AABB3f[] boxArray = new AABB3f[200];
+		SphereBounds3f[] sphereArray = new SphereBounds3f[200];
+
+		for(int i = 0; i<200; i++) {
+			float x = random.nextFloat()*50, y = random.nextFloat()*50, z = random.nextFloat()*50;
+			boxArray[i] = new AABB3f(x, y, z, x + random.nextFloat()*5, y + random.nextFloat()*5, z + random.nextFloat()*5);
+			sphereArray[i] = new SphereBounds3f(x, y, z, random.nextFloat()*3);
+			boxes.add(boxArray[i]);
+			spheres.add(sphereArray[i]);
+		}
+
+		AABB3f box = new AABB3f(10,10,10, 30,30,30);
+		SphereBounds3f sphere = new SphereBounds3f(25,25,25, 10);
+		long[] mask = new long[4];
+
+		int hits = boxes.collide(box, mask);
+		assertMask(mask, hits, i -> boxArray[i].collide(box));
+		hits = boxes.collide(sphere, mask);
+		assertMask(mask, hits, i -> boxArray[i].collide(sphere));
+		hits = spheres.collide(sphere, mask);
+		assertMask(mask, hits, i -> sphereArray[i].collide(sphere));
+		hits = spheres.collide(box, mask);
+		assertMask(mask, hits, i -> sphereArray[i].collide(box));
+
+		Set<Long> expected = new HashSet<>();
+		Set<Long> found = new HashSet<>();
+		for(int i = 0; i<200; i++) {
+			for(int j = i+1; j<200; j++) {
+				if(boxArray[i].collide(boxArray[j]))
+					expected.add(i * 1000L + j);
+			}
+		}
+		assertEquals(expected.size(), boxes.sweepAndPrune((a, b) -> found.add(a * 1000L + b)));
+		assertEquals(expected, found);
+
+		expected.clear();
+		found.clear();
+		for(int i = 0; i<200; i++) {
+			for(int j = i+1; j<200; j++) {
+				if(sphereArray[i].collide(sphereArray[j]))
+					expected.add(i * 1000L + j);
+			}
+		}
+		assertEquals(expected.size(), spheres.sweepAndPrune((a, b) -> found.add(a * 1000L + b)));
+		assertEquals(expected, found);
+	}
+
+	@Test
+	void testTransformBounds() {
+		Random random = new Random(43);
+		Vertex3f corner = new Vertex3f();
+		AABB3fSet local = new AABB3fSet(4), world = new AABB3fSet(4);
+		float[] matrices = new float[100 * 16];
+		AABB3f[] expected = new AABB3f[100];
+
+		for(int i = 0; i<100; i++) {
+			Matrix4f m = Matrix4f.builder().scale(new Vertex3f(random.nextFloat()*3 - 1.5f, random.nextFloat()*2, 1))
+					.rotate(new Vertex3f(random.nextFloat(), random.nextFloat(), random.nextFloat() + 0.1f), random.nextFloat()*360)
+					.translate(new Vertex3f(random.nextFloat()*100, random.nextFloat()*100, random.nextFloat()*100)).build();
+			float x = random.nextFloat()*10, y = random.nextFloat()*10, z = random.nextFloat()*10;
+			AABB3f box = new AABB3f(x, y, z, x + random.nextFloat()*5, y + random.nextFloat()*5, z + random.nextFloat()*5);
+
+			// smallest box around the 8 transformed corners
+			AABB3f corners = null;
+			for(int c = 0; c<8; c++) {
+				m.transformPoint((c & 1) == 0 ? box.min.x : box.max.x, (c & 2) == 0 ? box.min.y : box.max.y,
+						(c & 4) == 0 ? box.min.z : box.max.z, corner);
+				if(corners == null)
+					corners = new AABB3f(corner, corner);
+				corners.set(Math.min(corners.min.x, corner.x), Math.min(corners.min.y, corner.y), Math.min(corners.min.z, corner.z),
+						Math.max(corners.max.x, corner.x), Math.max(corners.max.y, corner.y), Math.max(corners.max.z, corner.z));
+			}
+
+			AABB3f transformed = m.transformBounds(box, new AABB3f(0,0,0, 0,0,0));
+			assertEquals(corners.min.x, transformed.min.x, 1e-3f);
+			assertEquals(corners.min.y, transformed.min.y, 1e-3f);
+			assertEquals(corners.min.z, transformed.min.z, 1e-3f);
+			assertEquals(corners.max.x, transformed.max.x, 1e-3f);
+			assertEquals(corners.max.y, transformed.max.y, 1e-3f);
+			assertEquals(corners.max.z, transformed.max.z, 1e-3f);
+
+			// rect at z = 0 : same as the box of height 0
+			RectBounds2f rect = m.transformBounds(new RectBounds2f(x, y, box.max.x - x, box.max.y - y), new RectBounds2f(0, 0, 0, 0));
+			AABB3f flat = m.transformBounds(new AABB3f(x, y, 0, box.max.x, box.max.y, 0), new AABB3f(0,0,0, 0,0,0));
+			assertEquals(flat.min.x, rect.position.x, 1e-3f);
+			assertEquals(flat.min.y, rect.position.y, 1e-3f);
+			assertEquals(flat.max.x, rect.position.x + rect.dimension.x, 1e-3f);
+			assertEquals(flat.max.y, rect.position.y + rect.dimension.y, 1e-3f);
+
+			local.add(box);
+			m.store(matrices, i * 16);
+			expected[i] = transformed;
+		}
+
+		// one matrix per bounds : same results as single transforms
+		world.transform(local, matrices, 0);
+		assertEquals(100, world.size());
+		for(int i = 0; i<100; i++) {
+			assertEquals(expected[i].toString(), world.get(i, new AABB3f(0,0,0, 0,0,0)).toString());
+		}
+
+		// one matrix for all, in place
+		Matrix4f m = Matrix4f.builder().rotate(new Vertex3f(0, 1, 0), 30).translate(new Vertex3f(5, 0, 0)).build();
+		AABB3f single = m.transformBounds(local.get(42, new AABB3f(0,0,0, 0,0,0)), new AABB3f(0,0,0, 0,0,0));
+		local.transform(local, m);
+		assertEquals(single.toString(), local.get(42, new AABB3f(0,0,0, 0,0,0)).toString());
+
+		assertThrows(IllegalArgumentException.class, () -> world.transform(world, new float[16], 0));
+	}
+
+	private void assertMask(long[] mask, int hits, IntPredicate expected) {
+		int count = 0;
+		for(int i = 0; i<200; i++) {
+			boolean bit = (mask[i / 64] & (1L << (i % 64))) != 0;
+			assertEquals(expected.test(i), bit, "bounds " + i);
+			if(bit)
+				count++;
+		}
+		assertEquals(count, hits);
+	}
+}
@@ -0,0 +1,331 @@
+package pinzen.test.mathsfog;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static pinzen.test.mathsfog.MathsAssert.abs;
+import static pinzen.test.mathsfog.MathsAssert.assertUlp;
+import static pinzen.test.mathsfog.MathsAssert.assertWithin;
+import static pinzen.test.mathsfog.MathsAssert.mult;
+import static pinzen.test.mathsfog.MathsAssert.toDouble;
+import static pinzen.test.mathsfog.MathsGenerator.ITERATIONS;
+import static pinzen.test.mathsfog.MathsGenerator.at;
+
+import org.junit.jupiter.api.Test;
+
+import pinzen.utils.mathsfog.Interpolation;
+import pinzen.utils.mathsfog.KeyframeTrack;
+import pinzen.utils.mathsfog.Matrix4f;
+import pinzen.utils.mathsfog.Normalization;
+import pinzen.utils.mathsfog.Ray3f;
+import pinzen.utils.mathsfog.Vertex2f;
+import pinzen.utils.mathsfog.Vertex3f;
+import pinzen.utils.mathsfog.Vertex4f;
+
+/**
+ * Optimised kernels (unrolled, fused, closed form, batch) compared with a double precision
+ * reference or with the straightforward implementation, on random inputs (see MathsGenerator)
+ */
+class DifferentialTest {
+
+	private final MathsGenerator gen = new MathsGenerator();
+
+	@Test
+	void testMult() {
+		Matrix4f dest = new Matrix4f();
+		for(int i = 0; i<ITERATIONS; i++) {
+			Matrix4f left = gen.nextMatrix(), right = gen.nextMatrix();
+			double[] l = toDouble(left), r = toDouble(right);
+
+			Matrix4f product = Matrix4f.mult(left, right);
+			assertWithin(mult(l, r), product, mult(abs(l), abs(r)), 4, at(i) + " mult");
+
+			// dest aliasing an input gives the same result
+			assertEquals(product, Matrix4f.mult(left, right, dest));
+			assertEquals(product, Matrix4f.mult(left, right, left));
+		}
+	}
+
+	/**
+	 * Random chain of transformations : builder (fused) and chained static functions
+	 * against the product of the transformations in double
+	 */
+	@Test
+	void testBuilder() {
+		for(int i = 0; i<ITERATIONS; i++) {
+			Matrix4f.Builder builder = Matrix4f.builder();
+			Matrix4f chained = new Matrix4f();
+			double[] exact = toDouble(new Matrix4f()), magnitude = exact.clone();
+
+			int steps = 1 + gen.nextInt(6);
+			for(int s = 0; s<steps; s++) {
+				Matrix4f step;
+				switch(gen.nextInt(5)) {
+					case 0 :
+						Vertex3f scales = gen.nextVertex3f(4);
+						builder.scale(scales);
+						chained = Matrix4f.scale(chained, scales);
+						step = Matrix4f.getScalingMatrix(scales);
+						break;
+					case 1 :
+						float scale = gen.nextFloat(0.1f, 4);
+						builder.scale(scale);
+						chained = Matrix4f.scale(chained, scale);
+						step = Matrix4f.getScalingMatrix(scale);
+						break;
+					case 2 :
+						Vertex3f axe = gen.nextUnitVertex3f();
+						float angle = gen.nextFloat(-360, 360);
+						builder.rotate(axe, angle);
+						chained = Matrix4f.rotate(chained, axe, angle);
+						step = Matrix4f.getRotationMatrix(axe, angle);
+						break;
+					case 3 :
+						Vertex3f trans = gen.nextVertex3f(100);
+						builder.translate(trans);
+						chained = Matrix4f.translate(chained, trans);
+						step = Matrix4f.getTranslationMatrix(trans);
+						break;
+					default :
+						step = gen.nextAffine();
+						builder.mult(step);
+						chained = Matrix4f.mult(step, chained);
+						break;
+				}
+
+				double[] op = toDouble(step);
+				exact = mult(op, exact);
+				magnitude = mult(abs(op), magnitude);
+			}
+
+			assertWithin(exact, builder.build(), magnitude, 16, at(i) + " builder");
+			assertWithin(exact, chained, magnitude, 16, at(i) + " chained");
+		}
+	}
+
+	@Test
+	void testTransformPoints() {
+		Vertex3f single = new Vertex3f();
+		for(int i = 0; i<ITERATIONS; i++) {
+			Matrix4f m = i % 2 == 0 ? gen.nextAffine() : Matrix4f.getPerspective(gen.nextFloat(30, 120), gen.nextFloat(0.5f, 2), 0.1f, 100);
+			double[] d = toDouble(m);
+
+			float[] points = new float[3*16];
+			for(int p = 0; p<points.length; p++) {
+				points[p] = gen.nextFloat(-50, 50);
+			}
+			if(i % 2 == 1) {
+				// in front of the camera
+				for(int p = 2; p<points.length; p+=3) {
+					points[p] = gen.nextFloat(1, 50);
+				}
+			}
+			float[] transformed = points.clone();
+			m.transformPoints(transformed, 0, 16);
+
+			for(int p = 0; p<16; p++) {
+				float x = points[p*3], y = points[p*3+1], z = points[p*3+2];
+				m.transformPoint(x, y, z, single);
+				assertEquals(single.x, transformed[p*3], at(i) + " transformPoint/transformPoints");
+				assertEquals(single.y, transformed[p*3+1], at(i) + " transformPoint/transformPoints");
+				assertEquals(single.z, transformed[p*3+2], at(i) + " transformPoint/transformPoints");
+
+				double w = d[3]*x + d[7]*y + d[11]*z + d[15];
+				for(int c = 0; c<3; c++) {
+					double exact = (d[c]*x + d[4+c]*y + d[8+c]*z + d[12+c]) / w;
+					double magnitude = (Math.abs(d[c]*x) + Math.abs(d[4+c]*y) + Math.abs(d[8+c]*z) + Math.abs(d[12+c])) / Math.abs(w);
+					assertWithin(exact, transformed[p*3+c], magnitude, 8, at(i) + " transformPoints");
+				}
+			}
+		}
+	}
+
+	@Test
+	void testViewProjection() {
+		Matrix4f fused = new Matrix4f(), projection = new Matrix4f();
+		for(int i = 0; i<ITERATIONS; i++) {
+			Vertex3f eye = gen.nextVertex3f(100);
+			Matrix4f view = Matrix4f.lookAt(eye, gen.nextVertex3f(100), gen.nextUnitVertex3f(), new Matrix4f());
+			switch(i % 4) {
+				case 0 : Matrix4f.getPerspective(gen.nextFloat(30, 120), gen.nextFloat(0.5f, 2), 0.1f, 1000, projection); break;
+				case 1 : Matrix4f.getInfinitePerspective(gen.nextFloat(30, 120), gen.nextFloat(0.5f, 2), 0.1f, projection); break;
+				case 2 : Matrix4f.getReversedPerspective(gen.nextFloat(30, 120), gen.nextFloat(0.5f, 2), 0.1f, 1000, projection); break;
+				default : Matrix4f.getFrustum(-gen.nextFloat(0, 1), -gen.nextFloat(0, 1), gen.nextFloat(0, 1), gen.nextFloat(0, 1), 0.1f, 1000, projection); break;
+			}
+
+			Matrix4f.viewProjection(projection, view, fused);
+			assertEquals(Matrix4f.mult(projection, view), fused, at(i) + " viewProjection/mult");
+
+			double[] p = toDouble(projection), v = toDouble(view);
+			assertWithin(mult(p, v), fused, mult(abs(p), abs(v)), 4, at(i) + " viewProjection");
+		}
+	}
+
+	@Test
+	void testInvert() {
+		Matrix4f inverse = new Matrix4f();
+		double[] identity = toDouble(new Matrix4f());
+		for(int i = 0; i<ITERATIONS; i++) {
+			Matrix4f m = gen.nextAffine();
+			Matrix4f.invert(m, inverse);
+
+			double[] d = toDouble(m), inv = toDouble(inverse);
+			assertWithin(identity, Matrix4f.mult(m, inverse), mult(abs(d), abs(inv)), 64, at(i) + " invert");
+		}
+	}
+
+	@Test
+	void testDecomposeCompose() {
+		Vertex3f translation = new Vertex3f(), scale = new Vertex3f();
+		Vertex4f rotation = new Vertex4f();
+		Matrix4f composed = new Matrix4f();
+		for(int i = 0; i<ITERATIONS; i++) {
+			Matrix4f m = gen.nextAffine();
+			m.decompose(translation, rotation, scale, true);
+			Matrix4f.compose(translation, rotation, scale, composed);
+
+			double[] d = toDouble(m);
+			double[] magnitude = new double[16];
+			for(int e = 0; e<16; e++) {
+				// each column of the 3x3 part has the magnitude of its scale
+				magnitude[e] = e < 12 ? Math.abs(e < 4 ? scale.x : e < 8 ? scale.y : scale.z) : Math.abs(d[e]);
+			}
+			assertWithin(d, composed, magnitude, 64, at(i) + " decompose/compose");
+			assertUlp(1, rotation.norm(), 4, at(i) + " unit quaternion");
+		}
+	}
+
+	@Test
+	void testNormalize() {
+		for(int i = 0; i<ITERATIONS; i++) {
+			Vertex3f v = new Vertex3f(gen.nextWide(), gen.nextWide(), gen.nextWide());
+			Vertex3f n = Vertex3f.normalize(v);
+
+			double norm = Math.sqrt((double)v.x*v.x + (double)v.y*v.y + (double)v.z*v.z);
+			assertWithin(v.x / norm, n.x, 1, 4, at(i) + " normalize");
+			assertWithin(v.y / norm, n.y, 1, 4, at(i) + " normalize");
+			assertWithin(v.z / norm, n.z, 1, 4, at(i) + " normalize");
+		}
+	}
+
+	/**
+	 * Batch normalization : exact mode gives the same floats as Vertex normalize,
+	 * fast inverse square root stays within a few ULP of the reference
+	 */
+	@Test
+	void testBatchNormalize() {
+		float[] exact = new float[9], fast = new float[9];
+		for(int i = 0; i<ITERATIONS; i++) {
+			Vertex2f v2 = new Vertex2f(gen.nextWide(), gen.nextWide());
+			Vertex3f v3 = new Vertex3f(gen.nextWide(), gen.nextWide(), gen.nextWide());
+			Vertex4f v4 = new Vertex4f(gen.nextWide(), gen.nextWide(), gen.nextWide(), gen.nextWide());
+			float[] values = {v2.x, v2.y, v3.x, v3.y, v3.z, v4.x, v4.y, v4.z, v4.w};
+			System.arraycopy(values, 0, exact, 0, 9);
+			System.arraycopy(values, 0, fast, 0, 9);
+
+			Normalization.normalize(exact, 0, 1, 2, false, Normalization.ZeroLength.KEEP);
+			Normalization.normalize(exact, 2, 1, 3, false, Normalization.ZeroLength.KEEP);
+			Normalization.normalize(exact, 5, 1, 4, false, Normalization.ZeroLength.KEEP);
+			Vertex2f n2 = Vertex2f.normalize(v2);
+			Vertex3f n3 = Vertex3f.normalize(v3);
+			Vertex4f n4 = Vertex4f.normalize(v4);
+			assertArrayEquals(new float[]{n2.x, n2.y, n3.x, n3.y, n3.z, n4.x, n4.y, n4.z, n4.w}, exact, at(i) + " exact");
+
+			Normalization.normalize(fast, 0, 1, 2, true, Normalization.ZeroLength.KEEP);
+			Normalization.normalize(fast, 2, 1, 3, true, Normalization.ZeroLength.KEEP);
+			Normalization.normalize(fast, 5, 1, 4, true, Normalization.ZeroLength.KEEP);
+			assertFastNormalized(values, fast, 0, 2, at(i));
+			assertFastNormalized(values, fast, 2, 3, at(i));
+			assertFastNormalized(values, fast, 5, 4, at(i));
+		}
+	}
+
+	private static void assertFastNormalized(float[] values, float[] fast, int offset, int dimension, String message) {
+		double norm = 0;
+		float lengthSquared = 0;
+		for(int c = offset; c<offset+dimension; c++) {
+			norm += (double)values[c]*values[c];
+			lengthSquared += values[c]*values[c];
+		}
+		// squared length out of the float range : not normalized by the fast path
+		if(lengthSquared < Float.MIN_NORMAL || Float.isInfinite(lengthSquared))
+			return;
+
+		norm = Math.sqrt(norm);
+		for(int c = offset; c<offset+dimension; c++) {
+			assertWithin(values[c] / norm, fast[c], 1, 64, message + " fast normalize " + dimension);
+		}
+	}
+
+	/**
+	 * KeyframeTrack evaluates curves on flat arrays : same results as Interpolation on vertices
+	 */
+	@Test
+	void testKeyframeTrack() {
+		Vertex3f[] p = new Vertex3f[4];
+		float[] values = new float[12];
+		Vertex3f expected = new Vertex3f(), sampled = new Vertex3f();
+		for(int i = 0; i<ITERATIONS; i++) {
+			for(int k = 0; k<4; k++) {
+				p[k] = gen.nextVertex3f(100);
+				values[k*3] = p[k].x;
+				values[k*3+1] = p[k].y;
+				values[k*3+2] = p[k].z;
+			}
+			// t with few bits : time - key time is exact
+			float t = gen.nextInt(64) / 64f;
+
+			KeyframeTrack linear = new KeyframeTrack(new float[]{0, 1, 2, 3}, values, 3, KeyframeTrack.Mode.LINEAR);
+			Interpolation.lerp(p[1], p[2], t, expected);
+			assertArrayEquals(new float[]{expected.x, expected.y, expected.z}, toArray(linear.sample(1 + t, sampled)), at(i) + " linear");
+
+			KeyframeTrack curve = new KeyframeTrack(new float[]{0, 1, 2, 3}, values, 3, KeyframeTrack.Mode.CATMULL_ROM);
+			Interpolation.catmullRom(p[0], p[1], p[2], p[3], t, expected);
+			assertArrayEquals(new float[]{expected.x, expected.y, expected.z}, toArray(curve.sample(1 + t, sampled)), at(i) + " Catmull-Rom");
+		}
+	}
+
+	private static float[] toArray(Vertex3f v) {
+		return new float[]{v.x, v.y, v.z};
+	}
+
+	/**
+	 * Batch ray/triangle tests : same results as one ray against one triangle
+	 */
+	@Test
+	void testRayBatches() {
+		int rayCount = 16, triangleCount = 64;
+		float[] rays = new float[rayCount*6], triangles = new float[triangleCount*9];
+		int[] hitIndex = new int[rayCount];
+		float[] hitT = new float[rayCount], batch = new float[triangleCount];
+
+		for(int i = 0; i<ITERATIONS/10; i++) {
+			for(int t = 0; t<triangles.length; t++) {
+				triangles[t] = gen.nextFloat(-10, 10);
+			}
+			for(int r = 0; r<rayCount; r++) {
+				Vertex3f o = gen.nextVertex3f(20), d = gen.nextUnitVertex3f();
+				rays[r*6] = o.x; rays[r*6+1] = o.y; rays[r*6+2] = o.z;
+				rays[r*6+3] = d.x; rays[r*6+4] = d.y; rays[r*6+5] = d.z;
+			}
+			Ray3f.closestTriangles(rays, rayCount, triangles, triangleCount, hitIndex, hitT);
+
+			for(int r = 0; r<rayCount; r++) {
+				Ray3f ray = new Ray3f(new Vertex3f(rays[r*6], rays[r*6+1], rays[r*6+2]), new Vertex3f(rays[r*6+3], rays[r*6+4], rays[r*6+5]));
+				ray.intersectTriangles(triangles, 0, triangleCount, batch, 0);
+
+				int closest = -1;
+				for(int t = 0; t<triangleCount; t++) {
+					int o = t*9;
+					float hit = ray.intersectTriangle(new Vertex3f(triangles[o], triangles[o+1], triangles[o+2]),
+							new Vertex3f(triangles[o+3], triangles[o+4], triangles[o+5]), new Vertex3f(triangles[o+6], triangles[o+7], triangles[o+8]));
+					assertEquals(hit, batch[t], at(i) + " intersectTriangles");
+					if(hit >= 0 && (closest < 0 || hit < batch[closest]))
+						closest = t;
+				}
+				assertEquals(closest, ray.closestTriangle(triangles, 0, triangleCount), at(i) + " closestTriangle");
+				assertEquals(closest, hitIndex[r], at(i) + " closestTriangles");
+				assertEquals(closest < 0 ? Ray3f.NO_HIT : batch[closest], hitT[r], at(i) + " closestTriangles");
+			}
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package pinzen.test.mathsfog;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import pinzen.utils.mathsfog.Interpolation;
+import pinzen.utils.mathsfog.KeyframeTrack;
+import pinzen.utils.mathsfog.KeyframeTrack.Mode;
+import pinzen.utils.mathsfog.Vertex2f;
+import pinzen.utils.mathsfog.Vertex3f;
+import pinzen.utils.mathsfog.Vertex4f;
+
+class InterpolationTest {
+
+	private static final float EPSILON = 1e-5f;
+
+	private static void assertVertex(float x, float y, float z, Vertex3f v) {
+		assertEquals(x, v.x, EPSILON);
+		assertEquals(y, v.y, EPSILON);
+		assertEquals(z, v.z, EPSILON);
+	}
+
+	@Test
+	void testCurves() {
+		Vertex3f a = new Vertex3f(0,0,0), b = new Vertex3f(1,2,3), c = new Vertex3f(2,2,2), d = new Vertex3f(4,0,0);
+		Vertex3f dest = new Vertex3f();
+
+		assertSame(dest, Interpolation.lerp(a, b, 0.5f, dest));
+		assertVertex(0.5f, 1, 1.5f, dest);
+
+		// every curve passes through its end points
+		assertVertex(1, 2, 3, Interpolation.catmullRom(a, b, c, d, 0, dest));
+		assertVertex(2, 2, 2, Interpolation.catmullRom(a, b, c, d, 1, dest));
+		assertVertex(0, 0, 0, Interpolation.bezier(a, b, c, d, 0, dest));
+		assertVertex(4, 0, 0, Interpolation.bezier(a, b, c, d, 1, dest));
+		assertVertex(1, 2, 3, Interpolation.hermite(b, a, c, a, 0, dest));
+		assertVertex(2, 2, 2, Interpolation.hermite(b, a, c, a, 1, dest));
+
+		// aligned control points give a straight line
+		assertVertex(1.5f, 0, 0, Interpolation.bezier(a, new Vertex3f(1,0,0), new Vertex3f(2,0,0), new Vertex3f(3,0,0), 0.5f, dest));
+		assertVertex(1.5f, 0, 0, Interpolation.catmullRom(a, new Vertex3f(1,0,0), new Vertex3f(2,0,0), new Vertex3f(3,0,0), 0.5f, dest));
+
+		// destination can be an input
+		Vertex2f p = new Vertex2f(0, 0);
+		Interpolation.lerp(p, new Vertex2f(4, 2), 0.25f, p);
+		assertEquals(1, p.x, EPSILON);
+		assertEquals(0.5f, p.y, EPSILON);
+
+		// rotations of 0 and 90 degrees around Z, shortest path even with opposite sign
+		float s = (float)Math.sqrt(0.5);
+		Vertex4f q = Interpolation.nlerp(new Vertex4f(0,0,0,1), new Vertex4f(0,0,-s,-s), 0.5f, new Vertex4f());
+		float angle = 2*(float)Math.atan2(q.z, q.w);
+		assertEquals(Math.PI/4, angle, EPSILON);
+		assertEquals(1, q.norm(), EPSILON);
+	}
+
+	@Test
+	void testKeyframeTrack() {
+		float[] times = {0, 1, 2, 4};
+		float[] values = {0,0,0, 1,10,0, 2,20,0, 4,40,8};
+		KeyframeTrack linear = new KeyframeTrack(times, values, 3, Mode.LINEAR);
+		Vertex3f dest = new Vertex3f();
+
+		assertVertex(0, 0, 0, linear.sample(-1, dest));
+		assertVertex(0.5f, 5, 0, linear.sample(0.5f, dest));
+		assertVertex(3, 30, 4, linear.sample(3, dest));
+		assertVertex(4, 40, 8, linear.sample(10, dest));
+		assertVertex(1, 10, 0, new KeyframeTrack(times, values, 3, Mode.STEP).sample(1.9f, dest));
+		assertVertex(2, 20, 0, new KeyframeTrack(times, values, 3, Mode.CATMULL_ROM).sample(2, dest));
+
+		// hint gives the same segment as a binary search, whatever its value
+		for(int hint = -1; hint<6; hint++) {
+			for(float t = -0.5f; t<5; t += 0.25f) {
+				assertEquals(linear.findSegment(t, -1), linear.findSegment(t, hint));
+			}
+		}
+
+		float[] sampleTimes = {0.5f, 3, 10};
+		int[] hints = new int[3];
+		float[] all = new float[9];
+		linear.sampleAll(sampleTimes, hints, 3, all);
+		assertArrayEquals(new float[]{0.5f,5,0, 3,30,4, 4,40,8}, all, EPSILON);
+		assertArrayEquals(new int[]{0, 2, 3}, hints);
+
+		assertThrows(IllegalArgumentException.class, () -> linear.sample(0, new Vertex4f()));
+		assertThrows(IllegalArgumentException.class, () -> linear.sample(0, new Vertex2f()));
+		assertThrows(IllegalArgumentException.class, () -> new KeyframeTrack(new float[]{0, 0}, values, 3, Mode.LINEAR));
+	}
+
+	@Test
+	void testKeyframeTrack2D() {
+		KeyframeTrack track = new KeyframeTrack(new float[]{0, 2, 3}, new float[]{0,0, 4,-2, 4,6}, 2, Mode.LINEAR);
+		Vertex2f dest = new Vertex2f();
+
+		assertSame(dest, track.sample(1, dest));
+		assertEquals(2, dest.x, EPSILON);
+		assertEquals(-1, dest.y, EPSILON);
+		track.sample(2.5f, dest);
+		assertEquals(4, dest.x, EPSILON);
+		assertEquals(2, dest.y, EPSILON);
+
+		new KeyframeTrack(new float[]{0, 2, 3}, new float[]{0,0, 4,-2, 4,6}, 2, Mode.STEP).sample(2.9f, dest);
+		assertEquals(4, dest.x);
+		assertEquals(-2, dest.y);
+		assertThrows(IllegalArgumentException.class, () -> track.sample(0, new Vertex3f()));
+	}
+}
@@ -0,0 +1,149 @@
+package pinzen.test.mathsfog;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import pinzen.utils.mathsfog.KdTree;
+import pinzen.utils.mathsfog.Vertex2f;
+import pinzen.utils.mathsfog.Vertex3f;
+
+class KdTreeTest {
+
+	private static float distanceSquared(float[] points, int dimension, int i, float[] q) {
+		float sum = 0;
+		for(int c = 0; c<dimension; c++) {
+			float d = points[i*dimension + c] - q[c];
+			sum += d*d;
+		}
+		return sum;
+	}
+
+	/**
+	 * Compare every query with brute force on random points (with duplicates)
+	 */
+	private static void checkQueries(KdTree tree, float[] points, int count, Random random) {
+		int dimension = tree.getDimension();
+		int[] indices = new int[16];
+		float[] distances = new float[16];
+		int[] inRadius = new int[count];
+		float[] bruteDistances = new float[count];
+
+		for(int query = 0; query<200; query++) {
+			float[] q = { random.nextFloat()*120 - 10, random.nextFloat()*120 - 10, dimension == 3 ? random.nextFloat()*120 - 10 : 0 };
+
+			int brute = -1;
+			for(int i = 0; i<count; i++) {
+				bruteDistances[i] = distanceSquared(points, dimension, i, q);
+				if(brute < 0 || bruteDistances[i] < bruteDistances[brute])
+					brute = i;
+			}
+			assertEquals(brute, tree.nearest(q[0], q[1], q[2]));
+
+			int k = 1 + random.nextInt(16);
+			int found = tree.nearest(q[0], q[1], q[2], k, indices, distances);
+			assertEquals(Math.min(k, count), found);
+			float[] sorted = Arrays.copyOf(bruteDistances, count);
+			Arrays.sort(sorted);
+			assertArrayEquals(Arrays.copyOf(sorted, found), Arrays.copyOf(distances, found));
+			for(int n = 0; n<found; n++) {
+				assertEquals(bruteDistances[indices[n]], distances[n]);
+			}
+
+			float radius = random.nextFloat() * 15;
+			int bruteCount = 0;
+			for(int i = 0; i<count; i++) {
+				if(bruteDistances[i] <= radius*radius)
+					bruteCount++;
+			}
+			int radiusCount = tree.withinRadius(q[0], q[1], q[2], radius, inRadius);
+			assertEquals(bruteCount, radiusCount);
+			for(int n = 0; n<radiusCount; n++) {
+				assertEquals(true, bruteDistances[inRadius[n]] <= radius*radius);
+			}
+		}
+	}
+
+	private static float[] randomPoints(Random random, int count, int dimension) {
+		float[] points = new float[count * dimension];
+		for(int i = 0; i<points.length; i++) {
+			points[i] = random.nextInt(4) == 0 ? random.nextInt(10) * 10 : random.nextFloat() * 100;
+		}
+		return points;
+	}
+
+	@Test
+	void testQueries() {
+		Random random = new Random(41);
+		for(int dimension = 2; dimension<=3; dimension++) {
+			for(int count : new int[] {0, 1, 5, 9, 100, 3000}) {
+				float[] points = randomPoints(random, count, dimension);
+				KdTree tree = new KdTree(dimension);
+				tree.build(points, count);
+				assertEquals(count, tree.size());
+				checkQueries(tree, points, count, random);
+			}
+		}
+	}
+
+	@Test
+	void testParallelBuild() {
+		Random random = new Random(42);
+		int count = 100000;
+		float[] points = randomPoints(random, count, 3);
+		KdTree tree = new KdTree(3);
+		tree.build(points, count);
+		checkQueries(tree, points, count, random);
+	}
+
+	@Test
+	void testRebuild() {
+		Random random = new Random(43);
+		int count = 2000;
+		float[] points = randomPoints(random, count, 2);
+		KdTree tree = new KdTree(2);
+
+		for(int frame = 0; frame<5; frame++) {
+			tree.build(points, count);
+			checkQueries(tree, points, count, random);
+			for(int i = 0; i<points.length; i++) {
+				points[i] += random.nextFloat() - 0.5f;
+			}
+		}
+
+		// less points than the previous build
+		tree.build(points, count / 2);
+		checkQueries(tree, points, count / 2, random);
+	}
+
+	@Test
+	void testVertices() {
+		Vertex2f[] points2 = { new Vertex2f(0, 0), new Vertex2f(5, 5), new Vertex2f(1, 1), new Vertex2f(-3, 2) };
+		KdTree tree2 = new KdTree(2);
+		tree2.build(points2, points2.length);
+		assertEquals(2, tree2.nearest(new Vertex2f(2, 2)));
+
+		int[] indices = new int[4];
+		assertEquals(2, tree2.withinRadius(new Vertex2f(0, 0), 1.5f, indices));
+		assertEquals(2, tree2.withinRadius(new Vertex2f(0, 0), 1.5f, new int[1]));
+
+		Vertex3f[] points3 = { new Vertex3f(0, 0, 0), new Vertex3f(0, 0, 10), new Vertex3f(0, 0, 4) };
+		KdTree tree3 = new KdTree(3);
+		tree3.build(points3, points3.length);
+		float[] distances = new float[4];
+		assertEquals(3, tree3.nearest(new Vertex3f(0, 0, 9), 4, indices, distances));
+		assertArrayEquals(new int[] {1, 2, 0}, Arrays.copyOf(indices, 3));
+		assertArrayEquals(new float[] {1, 25, 81}, Arrays.copyOf(distances, 3));
+
+		assertEquals(-1, new KdTree(3).nearest(new Vertex3f()));
+		assertThrows(IllegalArgumentException.class, () -> new KdTree(4));
+		assertThrows(IllegalArgumentException.class, () -> tree3.build(points2, 2));
+		assertThrows(IllegalArgumentException.class, () -> tree3.build(new float[5], 2));
+		assertThrows(IllegalArgumentException.class, () -> tree3.nearest(0, 0, 0, 5, indices, distances));
+	}
+}
@@ -0,0 +1,113 @@
+package pinzen.test.mathsfog;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+import pinzen.utils.mathsfog.Matrix4f;
+
+/**
+ * Float comparisons in ULP (units in the last place) for differential tests : a fast kernel is
+ * compared with a reference computed in double
+ *
+ * The bound of a result is given in ULP of its magnitude (sum of absolute values of the terms
+ * summed to compute it) : cancellation can't make a correct kernel fail.
+ */
+final class MathsAssert {
+
+	private MathsAssert() {}
+
+	/**
+	 * Number of representable floats between a and b (0 if equal, -0 equals 0)
+	 */
+	static long ulpDistance(float a, float b) {
+		if(a == b)
+			return 0;
+		if(Float.isNaN(a) || Float.isNaN(b))
+			return Long.MAX_VALUE;
+
+		return Math.abs((long)ordered(a) - ordered(b));
+	}
+
+	private static int ordered(float f) {
+		int bits = Float.floatToRawIntBits(f);
+		return bits < 0 ? 0x80000000 - bits : bits;
+	}
+
+	/**
+	 * Assert two floats are at most maxUlps floats away
+	 */
+	static void assertUlp(float expected, float actual, int maxUlps, String message) {
+		long distance = ulpDistance(expected, actual);
+		if(distance > maxUlps)
+			fail(message + " : expected " + expected + " but was " + actual + " (" + distance + " ulps > " + maxUlps + ")");
+	}
+
+	/**
+	 * Assert a float is close to an exact (double) value
+	 * @param exact : reference value
+	 * @param actual : value computed by the tested kernel
+	 * @param magnitude : sum of absolute values of the terms of the computation
+	 * @param maxUlps : allowed error in ULP of magnitude
+	 */
+	static void assertWithin(double exact, float actual, double magnitude, int maxUlps, String message) {
+		double error = Math.abs(exact - actual);
+		double bound = maxUlps * (double)Math.ulp((float)Math.max(magnitude, Math.abs(exact)));
+		if(!(error <= bound))
+			fail(message + " : expected " + exact + " but was " + actual + " (error " + error + " > " + bound + ")");
+	}
+
+	/**
+	 * Assert every element of a Matrix4f is close to a reference matrix
+	 * @param exact : reference, column major like Matrix4f.toArray()
+	 * @param actual : Matrix4f computed by the tested kernel
+	 * @param magnitude : magnitude of each element (column major)
+	 * @param maxUlps : allowed error in ULP of magnitude
+	 */
+	static void assertWithin(double[] exact, Matrix4f actual, double[] magnitude, int maxUlps, String message) {
+		float[] a = actual.toArray();
+		for(int i = 0; i<16; i++) {
+			assertWithin(exact[i], a[i], magnitude[i], maxUlps, message + " [" + (i%4 + 1) + "," + (i/4 + 1) + "]");
+		}
+	}
+
+			/** ----- ----- Double References ----- ----- **/
+
+	/**
+	 * Elements of a Matrix4f in double (column major)
+	 */
+	static double[] toDouble(Matrix4f m) {
+		float[] a = m.toArray();
+		double[] d = new double[16];
+		for(int i = 0; i<16; i++) {
+			d[i] = a[i];
+		}
+		return d;
+	}
+
+	/**
+	 * Reference product left * right (column major)
+	 */
+	static double[] mult(double[] left, double[] right) {
+		double[] d = new double[16];
+		for(int col = 0; col<4; col++) {
+			for(int line = 0; line<4; line++) {
+				double sum = 0;
+				for(int k = 0; k<4; k++) {
+					sum += left[k*4 + line] * right[col*4 + k];
+				}
+				d[col*4 + line] = sum;
+			}
+		}
+		return d;
+	}
+
+	/**
+	 * Absolute value of each element (magnitude of a product is mult(abs(left), abs(right)))
+	 */
+	static double[] abs(double[] m) {
+		double[] d = new double[m.length];
+		for(int i = 0; i<m.length; i++) {
+			d[i] = Math.abs(m[i]);
+		}
+		return d;
+	}
+}
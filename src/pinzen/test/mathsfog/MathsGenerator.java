@@ -0,0 +1,98 @@
+package pinzen.test.mathsfog;
+
+import java.util.Random;
+
+import pinzen.utils.mathsfog.Matrix4f;
+import pinzen.utils.mathsfog.Vertex3f;
+import pinzen.utils.mathsfog.Vertex4f;
+
+/**
+ * Random inputs for property and differential tests
+ *
+ * System properties :
+ * -Dpinzen.mathsfog.seed=N         seed of the generators (printed in failure messages to replay a failure)
+ * -Dpinzen.mathsfog.iterations=N   number of random cases of each property (default 1000)
+ */
+final class MathsGenerator {
+
+	static final long SEED = Long.getLong("pinzen.mathsfog.seed", System.nanoTime());
+	static final int ITERATIONS = Integer.getInteger("pinzen.mathsfog.iterations", 1000);
+
+	private final Random random;
+
+	MathsGenerator() {
+		random = new Random(SEED);
+	}
+
+	/**
+	 * Message prefix of a failing case (seed and iteration)
+	 */
+	static String at(int iteration) {
+		return "seed " + SEED + ", iteration " + iteration;
+	}
+
+	int nextInt(int bound) {
+		return random.nextInt(bound);
+	}
+
+	float nextFloat(float min, float max) {
+		return min + random.nextFloat() * (max - min);
+	}
+
+	/**
+	 * Float with a random exponent (mixes small and big values)
+	 */
+	float nextWide() {
+		float f = Math.scalb(random.nextFloat() + 0.5f, random.nextInt(20) - 10);
+		return random.nextBoolean() ? f : -f;
+	}
+
+	Vertex3f nextVertex3f(float range) {
+		return new Vertex3f(nextFloat(-range, range), nextFloat(-range, range), nextFloat(-range, range));
+	}
+
+	Vertex3f nextUnitVertex3f() {
+		while(true) {
+			Vertex3f v = nextVertex3f(1);
+			float norm = v.norm();
+			if(norm > 0.1f && norm <= 1)
+				return new Vertex3f(v.x/norm, v.y/norm, v.z/norm);
+		}
+	}
+
+	/**
+	 * Unit quaternion (uniform rotation)
+	 */
+	Vertex4f nextRotation() {
+		Vertex3f axe = nextUnitVertex3f();
+		double half = random.nextDouble() * Math.PI;
+		float s = (float)Math.sin(half);
+		return new Vertex4f(axe.x*s, axe.y*s, axe.z*s, (float)Math.cos(half));
+	}
+
+	/**
+	 * Matrix4f with every element random (projective)
+	 */
+	Matrix4f nextMatrix() {
+		Matrix4f m = new Matrix4f();
+		for(int line = 1; line<=4; line++) {
+			for(int col = 1; col<=4; col++) {
+				m.set(line, col, nextWide());
+			}
+		}
+		return m;
+	}
+
+	/**
+	 * Translation * rotation * scale Matrix4f (scales in [0.1, 10], can be negative)
+	 */
+	Matrix4f nextAffine() {
+		Vertex3f scale = new Vertex3f(nextScale(), nextScale(), nextScale());
+		return Matrix4f.compose(nextVertex3f(1000), nextRotation(), scale, new Matrix4f());
+	}
+
+	private float nextScale() {
+		float s = (float)Math.pow(10, nextFloat(-1, 1));
+		return random.nextInt(8) == 0 ? -s : s;
+	}
+}
@@ -0,0 +1,94 @@
+package pinzen.test.mathsfog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import org.junit.jupiter.api.Test;
+
+import pinzen.utils.mathsfog.MathsProfiler;
+import pinzen.utils.mathsfog.MathsProfiler.Operation;
+import pinzen.utils.mathsfog.Matrix4f;
+import pinzen.utils.mathsfog.Vertex2f;
+import pinzen.utils.mathsfog.Vertex3f;
+
+/**
+ * Counters of MathsProfiler
+ *
+ * Properties are read when the class is loaded : the "profiler" surefire execution runs this class
+ * in its own JVM with -Dpinzen.mathsfog.profile=true -Dpinzen.mathsfog.profile.sampling=1,
+ * other runs check the profiler does nothing when disabled.
+ */
+class MathsProfilerTest {
+
+	/**
+	 * Known sequence of calls : 5 mult (3 allocating), 5 Matrix4f, 4 normalize of a Vertex3f, 1 of a Vertex2f
+	 */
+	private static void calls() {
+		Matrix4f a = new Matrix4f(), b = new Matrix4f();
+		for(int i = 0; i<3; i++) {
+			Matrix4f.mult(a, b);
+		}
+		Matrix4f.mult(a, b, a);
+		Matrix4f.mult(a, b, a);
+
+		Vertex3f v = new Vertex3f(3, 0, 4);
+		for(int i = 0; i<4; i++) {
+			Vertex3f.normalize(v);
+		}
+		new Vertex2f(1, 1);
+		Vertex2f.normalize(new Vertex2f(0, 2));
+	}
+
+	@Test
+	void testCounts() {
+		assumeTrue(MathsProfiler.ENABLED, "run with -Dpinzen.mathsfog.profile=true");
+
+		MathsProfiler.reset();
+		calls();
+
+		assertEquals(5, MathsProfiler.getCount(Operation.MATRIX4F_MULT));
+		assertEquals(5, MathsProfiler.getCount(Operation.MATRIX4F_ALLOC));
+		assertEquals(4, MathsProfiler.getCount(Operation.VERTEX3F_NORMALIZE));
+		assertEquals(5, MathsProfiler.getCount(Operation.VERTEX3F_ALLOC));
+		assertEquals(1, MathsProfiler.getCount(Operation.VERTEX2F_NORMALIZE));
+		assertEquals(3, MathsProfiler.getCount(Operation.VERTEX2F_ALLOC));
+		assertEquals(0, MathsProfiler.getCount(Operation.VERTEX4F_NORMALIZE));
+
+		String report = MathsProfiler.report();
+		assertTrue(report.startsWith("MathsProfiler :"), report);
+		assertTrue(report.matches("(?s).*\\n MATRIX4F_MULT +5\\n.*"), report);
+		assertTrue(report.matches("(?s).*\\n VERTEX3F_NORMALIZE +4\\n.*"), report);
+		assertFalse(report.contains("VERTEX4F_NORMALIZE"), report);
+		if(MathsProfiler.SAMPLING == 1) {
+			// every call sampled : callers outside the library, the 3 allocating mult share one line
+			assertTrue(report.contains("Sampled call sites (1 call out of 1) :"), report);
+			assertTrue(report.matches("(?s).*\\n 3 +MATRIX4F_MULT @ pinzen\\.test\\.mathsfog\\.MathsProfilerTest\\.calls:\\d+\\n.*"), report);
+			assertTrue(report.matches("(?s).*\\n 4 +VERTEX3F_NORMALIZE @ pinzen\\.test\\.mathsfog\\.MathsProfilerTest\\.calls:\\d+\\n.*"), report);
+		}
+
+		MathsProfiler.reset();
+		for(Operation op : Operation.values()) {
+			assertEquals(0, MathsProfiler.getCount(op), op.name());
+		}
+		assertFalse(MathsProfiler.report().contains("@"));
+
+		calls();
+		assertEquals(5, MathsProfiler.getCount(Operation.MATRIX4F_MULT));
+	}
+
+	@Test
+	void testDisabled() {
+		assumeFalse(MathsProfiler.ENABLED);
+
+		calls();
+		for(Operation op : Operation.values()) {
+			assertEquals(0, MathsProfiler.getCount(op), op.name());
+		}
+		assertEquals(0, MathsProfiler.SAMPLING);
+		assertFalse(MathsProfiler.JFR);
+		assertTrue(MathsProfiler.report().contains("disabled"));
+	}
+}
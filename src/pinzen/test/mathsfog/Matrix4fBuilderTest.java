@@ -0,0 +1,90 @@
+package pinzen.test.mathsfog;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import pinzen.utils.mathsfog.Matrix4f;
+import pinzen.utils.mathsfog.Vertex2f;
+import pinzen.utils.mathsfog.Vertex3f;
+
+class Matrix4fBuilderTest {
+
+	/**
+	 * Test two Matrix4f have the same elements (with a tolerance)
+	 * @param expected : reference Matrix4f
+	 * @param actual : Matrix4f to test
+	 */
+	private void assertMatrix4fEquals(Matrix4f expected, Matrix4f actual) {
+		assertArrayEquals(expected.toArray(), actual.toArray(), 1e-5f);
+	}
+
+	@Test
+	void testReadmeChain() {
+		Vertex3f axe = new Vertex3f(0,0,1);
+
+		Matrix4f model = new Matrix4f();
+		model = Matrix4f.scale(model, 3f);
+		model = Matrix4f.rotate(model, axe, 42);
+		model = Matrix4f.translate(model, new Vertex2f(100, -20));
+
+		Matrix4f built = Matrix4f.builder().scale(3f).rotate(axe, 42).translate(new Vertex2f(100, -20)).build();
+
+		// TRS is written directly but gives exactly the same floats
+		assertArrayEquals(model.toArray(), built.toArray());
+	}
+
+	@Test
+	void testFolding() {
+		Vertex3f axe = Vertex3f.normalize(new Vertex3f(1,1,0));
+
+		Matrix4f chained = Matrix4f.translate(new Matrix4f(), new Vertex3f(1,2,3));
+		chained = Matrix4f.translate(chained, new Vertex3f(-4,5,0));
+		chained = Matrix4f.rotate(chained, axe, 10);
+		chained = Matrix4f.rotate(chained, axe, 20);
+		chained = Matrix4f.scale(chained, new Vertex3f(1,2,3));
+		chained = Matrix4f.scale(chained, 2f);
+
+		Matrix4f built = Matrix4f.builder()
+				.translate(new Vertex3f(1,2,3)).translate(new Vertex3f(-4,5,0))
+				.rotate(axe, 10).rotate(axe, 20)
+				.scale(new Vertex3f(1,2,3)).scale(2f)
+				.build();
+
+		assertMatrix4fEquals(chained, built);
+	}
+
+	@Test
+	void testGeneralMultiplication() {
+		Matrix4f projection = Matrix4f.getPerspective(60, 1.5f, 0.1f, 100f);
+
+		Matrix4f chained = Matrix4f.rotate(new Matrix4f(), new Vertex3f(0,1,0), 30);
+		chained = Matrix4f.mult(projection, chained);
+		chained = Matrix4f.translate(chained, new Vertex3f(1,2,3));
+		chained = Matrix4f.rotate(chained, new Vertex3f(1,0,0), 15);
+
+		Matrix4f.Builder builder = Matrix4f.builder()
+				.rotate(new Vertex3f(0,1,0), 30)
+				.mult(projection)
+				.translate(new Vertex3f(1,2,3))
+				.rotate(new Vertex3f(1,0,0), 15);
+
+		assertMatrix4fEquals(chained, builder.build());
+
+		// build can be called again and the builder reused
+		assertMatrix4fEquals(chained, builder.build(new Matrix4f()));
+		assertMatrix4fEquals(new Matrix4f(), builder.reset().build());
+	}
+
+	@Test
+	void testMultInto() {
+		Matrix4f a = Matrix4f.getRotationMatrix(new Vertex3f(0,0,1), 25);
+		Matrix4f b = Matrix4f.getTranslationMatrix(new Vertex3f(4,5,6));
+		Matrix4f expected = Matrix4f.mult(a, b);
+
+		assertArrayEquals(expected.toArray(), Matrix4f.mult(a, b, new Matrix4f()).toArray());
+		assertArrayEquals(expected.toArray(), Matrix4f.mult(a, b, a).toArray());
+		assertEquals(6f, a.get(3, 4));
+	}
+}
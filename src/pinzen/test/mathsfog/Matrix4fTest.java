@@ -0,0 +1,163 @@
+package pinzen.test.mathsfog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import pinzen.utils.mathsfog.Matrix4f;
+import pinzen.utils.mathsfog.ProjectionCache;
+import pinzen.utils.mathsfog.Vertex3f;
+import pinzen.utils.mathsfog.Vertex4f;
+
+class Matrix4fTest {
+
+	@Test
+	void testEquality() {
+		Matrix4f m1 = Matrix4f.getRotationMatrix(new Vertex3f(0,0,1), 30);
+		Matrix4f m2 = Matrix4f.getRotationMatrix(new Vertex3f(0,0,1), 30);
+
+		assertEquals(m1, m2);
+		assertEquals(m1.hashCode(), m2.hashCode());
+
+		m2.set(1, 4, 1e-6f);
+		assertNotEquals(m1, m2);
+		assertTrue(m1.equals(m2, 1e-5f));
+		assertFalse(m1.equals(m2, 1e-7f));
+
+		// 0 and -0 are equal and have the same hash
+		m1.set(2, 4, -0f);
+		m2.set(1, 4, 0f);
+		assertEquals(m1, m2);
+		assertEquals(m1.hashCode(), m2.hashCode());
+	}
+
+	@Test
+	void testReadOnly() {
+		Matrix4f m = Matrix4f.getScalingMatrix(2f).toReadOnly();
+
+		assertTrue(m.isReadOnly());
+		assertThrows(UnsupportedOperationException.class, () -> m.set(1, 1, 3f));
+		assertThrows(UnsupportedOperationException.class, () -> Matrix4f.mult(m, m, m));
+		assertFalse(m.clone().isReadOnly());
+		assertEquals(m, m.clone());
+	}
+
+	@Test
+	void testProjectionCache() {
+		ProjectionCache cache = new ProjectionCache(2);
+
+		Matrix4f p1 = cache.getPerspective(60, 1.5f, 0.1f, 100);
+		assertSame(p1, cache.getPerspective(60, 1.5f, 0.1f, 100));
+		assertEquals(Matrix4f.getPerspective(60, 1.5f, 0.1f, 100), p1);
+		assertTrue(p1.isReadOnly());
+
+		Matrix4f o1 = cache.getOrtho(0, 0, 400, 500, 0, 1);
+		assertEquals(Matrix4f.getOrtho(0, 0, 400, 500, 0, 1), o1);
+		assertEquals(2, cache.size());
+
+		// p1 is the least recently used : removed by a third projection
+		cache.getPerspective(90, 1f, 0.1f, 100);
+		assertEquals(2, cache.size());
+		assertSame(o1, cache.getOrtho(0, 0, 400, 500, 0, 1));
+		assertNotSame(p1, cache.getPerspective(60, 1.5f, 0.1f, 100));
+	}
+
+	@Test
+	void testDecompose() {
+		Random random = new Random(9);
+		Vertex3f translation = new Vertex3f(), scale = new Vertex3f();
+		Vertex4f rotation = new Vertex4f();
+		Matrix4f composed = new Matrix4f();
+
+		for(int i = 0; i<1000; i++) {
+			Vertex3f axe = new Vertex3f(random.nextFloat() - 0.5f, random.nextFloat() - 0.5f, random.nextFloat() - 0.5f);
+			float norm = axe.norm();
+			axe = new Vertex3f(axe.x/norm, axe.y/norm, axe.z/norm);
+			float angle = random.nextFloat()*360 - 180;
+			Vertex3f s = new Vertex3f(0.1f + random.nextFloat()*3, 0.1f + random.nextFloat()*3, 0.1f + random.nextFloat()*3);
+			Vertex3f t = new Vertex3f(random.nextFloat()*100, random.nextFloat()*100, random.nextFloat()*100);
+			boolean mirror = i % 2 == 1;
+			if(mirror)
+				s = new Vertex3f(-s.x, s.y, s.z);
+
+			Matrix4f m = Matrix4f.builder().scale(s).rotate(axe, angle).translate(t).build();
+			m.decompose(translation, rotation, scale, true);
+
+			assertEquals(t.x, translation.x, 1e-4f);
+			assertEquals(s.x, scale.x, 1e-4f);
+			assertEquals(s.y, scale.y, 1e-4f);
+			assertEquals(s.z, scale.z, 1e-4f);
+			assertEquals(1, rotation.norm(), 1e-4f);
+
+			// same rotation : q = +-(axe*sin(a/2), cos(a/2))
+			double half = Math.toRadians(angle) / 2;
+			float sign = Math.signum(rotation.w) == Math.signum((float)Math.cos(half)) ? 1 : -1;
+			assertEquals(Math.cos(half), sign*rotation.w, 1e-3f);
+			assertEquals(axe.x*Math.sin(half), sign*rotation.x, 1e-3f);
+			assertEquals(axe.z*Math.sin(half), sign*rotation.z, 1e-3f);
+
+			assertTrue(m.equals(Matrix4f.compose(translation, rotation, scale, composed), 1e-3f));
+
+			// without negative scale option : positive scales
+			m.decompose(null, null, scale);
+			assertEquals(Math.abs(s.x), scale.x, 1e-4f);
+		}
+	}
+
+	private static float depth(Matrix4f projection, float z) {
+		return projection.transformPoint(0, 0, z, new Vertex3f()).z;
+	}
+
+	@Test
+	void testViewProjection() {
+		Vertex3f eye = new Vertex3f(3, 4, -5), target = new Vertex3f(1, 1, 1), up = new Vertex3f(0, 1, 0);
+		Matrix4f view = Matrix4f.lookAt(eye, target, up, new Matrix4f());
+
+		// target in front of the camera (+Z), eye at origin
+		Vertex3f p = view.transformPoint(target.x, target.y, target.z, new Vertex3f());
+		assertEquals(0, p.x, 1e-5f);
+		assertEquals(0, p.y, 1e-5f);
+		assertEquals(Math.sqrt(4 + 9 + 36), p.z, 1e-5f);
+		view.transformPoint(eye.x, eye.y, eye.z, p);
+		assertEquals(0, p.norm(), 1e-5f);
+		// point above the target stays above
+		assertTrue(view.transformPoint(1, 2, 1, p).y > 0);
+
+		Matrix4f projection = Matrix4f.getPerspective(60, 1.5f, 0.1f, 100);
+		Matrix4f fused = Matrix4f.viewProjection(projection, view, new Matrix4f());
+		assertTrue(fused.equals(Matrix4f.mult(projection, view), 1e-5f));
+		assertTrue(fused.equals(Matrix4f.viewProjection(projection, view, view), 1e-5f));
+
+		// symmetric frustum is the same as getPerspective
+		float top = 0.1f * (float)Math.tan(Math.toRadians(30));
+		Matrix4f frustum = Matrix4f.getFrustum(-top*1.5f, -top, top*1.5f, top, 0.1f, 100, new Matrix4f());
+		assertTrue(frustum.equals(projection, 1e-5f));
+		Matrix4f offCentre = Matrix4f.getFrustum(0, 0, 1, 1, 1, 10, new Matrix4f());
+		assertEquals(-1, offCentre.transformPoint(0, 0, 1, p).x, 1e-5f);
+		assertEquals(1, offCentre.transformPoint(10, 10, 10, p).y, 1e-5f);
+
+		assertEquals(-1, depth(projection, 0.1f), 1e-5f);
+		assertEquals(1, depth(projection, 100), 1e-5f);
+
+		Matrix4f infinite = Matrix4f.getInfinitePerspective(60, 1.5f, 0.1f, new Matrix4f());
+		assertEquals(-1, depth(infinite, 0.1f), 1e-5f);
+		assertTrue(depth(infinite, 1e6f) < 1);
+
+		Matrix4f reversed = Matrix4f.getReversedPerspective(60, 1.5f, 0.1f, 100, new Matrix4f());
+		assertEquals(1, depth(reversed, 0.1f), 1e-5f);
+		assertEquals(0, depth(reversed, 100), 1e-5f);
+		Matrix4f reversedInfinite = Matrix4f.getReversedPerspective(60, 1.5f, 0.1f, Float.POSITIVE_INFINITY, new Matrix4f());
+		assertEquals(1, depth(reversedInfinite, 0.1f), 1e-5f);
+		assertTrue(depth(reversedInfinite, 1e6f) > 0);
+
+		assertThrows(UnsupportedOperationException.class, () -> Matrix4f.lookAt(eye, target, up, new Matrix4f().toReadOnly()));
+	}
+}
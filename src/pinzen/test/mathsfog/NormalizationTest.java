@@ -0,0 +1,122 @@
+package pinzen.test.mathsfog;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import pinzen.utils.mathsfog.BatchFile;
+import pinzen.utils.mathsfog.Normalization;
+import pinzen.utils.mathsfog.Normalization.ZeroLength;
+import pinzen.utils.mathsfog.VertexBatch;
+
+class NormalizationTest {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void testNormalize() {
+		float[] v = {9, 3, 4, 0, 0, 0, 0, 2};
+		assertEquals(0, Normalization.normalize(v, 1, 1, 2, false, ZeroLength.THROW));
+		assertArrayEquals(new float[]{9, 0.6f, 0.8f, 0, 0, 0, 0, 2}, v);
+
+		assertEquals(1, Normalization.normalize(v, 3, 1, 4, false, ZeroLength.KEEP));
+		assertArrayEquals(new float[]{9, 0.6f, 0.8f, 0, 0, 0, 0, 2}, v);
+
+		float[] fast = {3, 0, 4};
+		Normalization.normalize(fast, 0, 1, 3, true, ZeroLength.THROW);
+		assertArrayEquals(new float[]{0.6f, 0, 0.8f}, fast, 1e-5f);
+		assertEquals(0.5f, Normalization.fastInverseSqrt(4), 1e-5f);
+	}
+
+	@Test
+	void testZeroLength() {
+		float[] v = {1e-30f, 0, 0, 0, 0, 0, 1e-30f, 0, 0, 0, 5};
+		assertEquals(2, Normalization.normalize(v, 0, 2, 4, false, ZeroLength.LAST_AXIS));
+		assertArrayEquals(new float[]{0, 0, 0, 1, 0, 0, 0, 1, 0, 0, 5}, v);
+
+		float[] z = {0, 1e-20f, 0, 7, 0, 0};
+		assertEquals(1, Normalization.normalize(z, 0, 2, 3, true, ZeroLength.ZERO));
+		assertArrayEquals(new float[]{0, 0, 0, 1, 0, 0}, z, 1e-5f);
+
+		float[] t = {2, 0, 0, 0, 0, 3};
+		assertThrows(ArithmeticException.class, () -> Normalization.normalize(t, 0, 3, 2, false, ZeroLength.THROW));
+		// vectors before the zero length one are normalized
+		assertArrayEquals(new float[]{1, 0, 0, 0, 0, 3}, t);
+	}
+
+	@Test
+	void testBatch() throws IOException {
+		VertexBatch array = VertexBatch.wrap(new float[]{0, 3, 4, 0, 0, 0}, 3);
+		VertexBatch direct = new VertexBatch(3, 2);
+		direct.getBuffer().put(new float[]{0, 3, 4, 0, 0, 0});
+
+		for(VertexBatch batch : new VertexBatch[]{array, direct}) {
+			assertEquals(1, Normalization.normalize(batch, false, ZeroLength.LAST_AXIS));
+			float[] result = new float[6];
+			batch.getBuffer().get(result);
+			assertArrayEquals(new float[]{0, 0.6f, 0.8f, 0, 0, 1}, result);
+		}
+
+		Path file = dir.resolve("normals.mfog");
+		BatchFile.write(file, direct);
+		VertexBatch readOnly = BatchFile.mapVertices(file);
+		assertThrows(IllegalArgumentException.class, () -> Normalization.normalize(readOnly, false, ZeroLength.KEEP));
+	}
+
+	@Test
+	void testDirectBatch() {
+		Random random = new Random(7);
+		for(int dimension = 2; dimension<=4; dimension++) {
+			float[] values = new float[dimension * 300];
+			for(int i = 0; i<values.length; i++) {
+				values[i] = random.nextFloat() * 20 - 10;
+			}
+			// zero and too short vectors
+			for(int c = 0; c<dimension; c++) {
+				values[5*dimension + c] = 0;
+				values[17*dimension + c] = 1e-30f;
+			}
+
+			for(boolean fast : new boolean[] {false, true}) {
+				float[] expected = values.clone();
+				assertEquals(2, Normalization.normalize(expected, 0, 300, dimension, fast, ZeroLength.LAST_AXIS));
+
+				// direct buffer : same floats as the array loop
+				VertexBatch direct = new VertexBatch(dimension, 300);
+				direct.getBuffer().put(values);
+				assertEquals(2, Normalization.normalize(direct, fast, ZeroLength.LAST_AXIS));
+				float[] result = new float[values.length];
+				direct.getBuffer().get(result);
+				assertArrayEquals(expected, result);
+			}
+
+			// THROW reports the index of the vector, previous vectors are normalized
+			VertexBatch direct = new VertexBatch(dimension, 300);
+			direct.getBuffer().put(values);
+			ArithmeticException e = assertThrows(ArithmeticException.class, () -> Normalization.normalize(direct, false, ZeroLength.THROW));
+			assertEquals("Can't normalize vector 5 of length 0", e.getMessage());
+			float[] expected = values.clone();
+			Normalization.normalize(expected, 0, 5, dimension, false, ZeroLength.THROW);
+			assertEquals(expected[4*dimension], direct.get(4, 1));
+			assertEquals(values[6*dimension], direct.get(6, 1));
+		}
+	}
+
+	@Test
+	void testArguments() {
+		float[] v = new float[12];
+		assertThrows(IllegalArgumentException.class, () -> Normalization.normalize(v, 0, 2, 5, false, ZeroLength.KEEP));
+		assertThrows(IllegalArgumentException.class, () -> Normalization.normalize(v, 0, 2, 1, false, ZeroLength.KEEP));
+		assertThrows(ArrayIndexOutOfBoundsException.class, () -> Normalization.normalize(v, 1, 3, 4, false, ZeroLength.KEEP));
+		assertThrows(ArrayIndexOutOfBoundsException.class, () -> Normalization.normalize(v, -1, 1, 2, false, ZeroLength.KEEP));
+		assertThrows(ArrayIndexOutOfBoundsException.class, () -> Normalization.normalize(v, 0, -1, 2, false, ZeroLength.KEEP));
+	}
+}
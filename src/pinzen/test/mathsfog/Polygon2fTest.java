@@ -0,0 +1,173 @@
+package pinzen.test.mathsfog;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import pinzen.utils.mathsfog.Polygon2f;
+import pinzen.utils.mathsfog.Vertex2f;
+
+class Polygon2fTest {
+
+	private static double cross(float[] c, int a, int b, float x, float y) {
+		return ((double)c[b*2] - c[a*2]) * ((double)y - c[a*2+1]) - ((double)c[b*2+1] - c[a*2+1]) * ((double)x - c[a*2]);
+	}
+
+	/**
+	 * Hull is strictly convex counter clockwise, made of input points and every input point is inside or on it
+	 */
+	private static void checkHull(float[] points, int count, float[] hull, int hullStart, int size) {
+		float[] h = Arrays.copyOfRange(hull, hullStart*2, (hullStart + size)*2);
+		for(int i = 0; i<size; i++) {
+			boolean found = false;
+			for(int p = 0; p<count && !found; p++) {
+				found = points[p*2] == h[i*2] && points[p*2+1] == h[i*2+1];
+			}
+			assertTrue(found, "hull point " + i + " is not an input point");
+		}
+
+		if(size < 3)
+			return;
+		for(int i = 0; i<size; i++) {
+			int next = (i + 1) % size;
+			assertTrue(cross(h, i, next, h[((i + 2) % size)*2], h[((i + 2) % size)*2+1]) > 0, "hull not strictly convex at " + i);
+			for(int p = 0; p<count; p++) {
+				assertTrue(cross(h, i, next, points[p*2], points[p*2+1]) >= 0, "point " + p + " outside of edge " + i);
+			}
+		}
+	}
+
+	@Test
+	void testConvexHull() {
+		// square with inner points, a duplicate corner and points on the edges
+		float[] points = {0,0, 2,1, 4,0, 4,4, 1,3, 0,4, 0,0, 2,0, 4,2, 0,2};
+		float[] hull = new float[points.length];
+		assertEquals(4, Polygon2f.convexHull(points, 10, hull));
+		assertArrayEquals(new float[] {0,0, 4,0, 4,4, 0,4}, Arrays.copyOf(hull, 8));
+
+		assertEquals(0, Polygon2f.convexHull(points, 0, hull));
+		assertEquals(1, Polygon2f.convexHull(new float[] {1,1, 1,1, 1,1}, 3, hull));
+		assertEquals(2, Polygon2f.convexHull(new float[] {0,0, 1,1, 2,2, 3,3}, 4, hull));
+		assertArrayEquals(new float[] {0,0, 3,3}, Arrays.copyOf(hull, 4));
+
+		// -0 and 0 are the same x and the same y
+		assertEquals(4, Polygon2f.convexHull(new float[] {1,0, 1,-1, 0,-1, -0f,1, 0,1}, 5, hull));
+		assertArrayEquals(new float[] {0,-1, 1,-1, 1,0, 0,1}, Arrays.copyOf(hull, 8), 0);
+		assertEquals(4, Polygon2f.convexHull(new float[] {0,0, 1,-0f, 1,1, 0,1, 1,0}, 5, hull));
+		assertArrayEquals(new float[] {0,0, 1,0, 1,1, 0,1}, Arrays.copyOf(hull, 8), 0);
+
+		Random random = new Random(42);
+		for(int run = 0; run<50; run++) {
+			int count = 1 + random.nextInt(300);
+			float[] cloud = new float[count * 2];
+			for(int i = 0; i<cloud.length; i++) {
+				cloud[i] = run % 2 == 0 ? random.nextFloat() * 100 : random.nextInt(8);
+			}
+			float[] dest = new float[cloud.length];
+			checkHull(cloud, count, dest, 0, Polygon2f.convexHull(cloud, count, dest));
+		}
+	}
+
+	@Test
+	void testConvexHulls() {
+		Random random = new Random(43);
+		int sets = 500;
+		int[] starts = new int[sets + 1];
+		for(int s = 0; s<sets; s++) {
+			starts[s+1] = starts[s] + random.nextInt(100);
+		}
+		float[] coords = new float[starts[sets] * 2];
+		for(int i = 0; i<coords.length; i++) {
+			coords[i] = random.nextFloat() * 50;
+		}
+
+		float[] dest = new float[coords.length];
+		int[] sizes = new int[sets];
+		Polygon2f.convexHulls(coords, starts, sets, dest, sizes);
+
+		for(int s = 0; s<sets; s++) {
+			float[] set = Arrays.copyOfRange(coords, starts[s]*2, starts[s+1]*2);
+			float[] single = new float[set.length];
+			int size = Polygon2f.convexHull(set, set.length / 2, single);
+			assertEquals(size, sizes[s]);
+			assertArrayEquals(Arrays.copyOf(single, size*2), Arrays.copyOfRange(dest, starts[s]*2, (starts[s] + size)*2));
+			checkHull(set, set.length / 2, dest, starts[s], sizes[s]);
+		}
+
+		assertThrows(IllegalArgumentException.class, () -> Polygon2f.convexHulls(coords, starts, sets + 1, dest, sizes));
+	}
+
+	@Test
+	void testArea() {
+		assertEquals(16, Polygon2f.area(new float[] {0,0, 4,0, 4,4, 0,4}, 4));
+		assertEquals(-16, Polygon2f.area(new float[] {0,0, 0,4, 4,4, 4,0}, 4));
+		assertEquals(6, new Polygon2f(new Vertex2f(1000,1000), new Vertex2f(1004,1000), new Vertex2f(1004,1003)).getArea());
+		// concave L shape
+		assertEquals(12, Polygon2f.area(new float[] {0,0, 4,0, 4,2, 2,2, 2,4, 0,4}, 6));
+	}
+
+	@Test
+	void testContains() {
+		// concave L shape
+		Polygon2f shape = new Polygon2f(new float[] {0,0, 4,0, 4,2, 2,2, 2,4, 0,4}, 6);
+		assertEquals(0, shape.getBounds().position.x);
+		assertEquals(4, shape.getBounds().dimension.y);
+
+		assertTrue(shape.contains(1, 1));
+		assertTrue(shape.contains(new Vertex2f(1, 3)));
+		assertTrue(shape.contains(3, 1));
+		assertFalse(shape.contains(3, 3));
+		assertFalse(shape.contains(-1, 1));
+		assertFalse(shape.contains(5, 1));
+
+		Random random = new Random(44);
+		int count = 1000;
+		float[] points = new float[count * 2];
+		for(int i = 0; i<points.length; i++) {
+			points[i] = random.nextFloat() * 6 - 1;
+		}
+		long[] mask = new long[(count + 63) / 64];
+		int inside = shape.contains(points, count, mask);
+		int expected = 0;
+		for(int i = 0; i<count; i++) {
+			boolean in = shape.contains(points[i*2], points[i*2+1]);
+			assertEquals(in, (mask[i / 64] & (1L << (i % 64))) != 0);
+			if(in)
+				expected++;
+		}
+		assertEquals(expected, inside);
+		assertThrows(IllegalArgumentException.class, () -> shape.contains(points, count, new long[1]));
+	}
+
+	@Test
+	void testCollide() {
+		Polygon2f triangle = new Polygon2f(new Vertex2f(0,0), new Vertex2f(4,0), new Vertex2f(0,4));
+		Polygon2f square = new Polygon2f(new float[] {3,3, 5,3, 5,5, 3,5}, 4);
+		// bounding rects overlap but the separating axis is the diagonal of the triangle
+		assertFalse(triangle.collide(square));
+		assertFalse(square.collide(triangle));
+
+		Polygon2f moved = new Polygon2f(new float[] {1,1, 3,1, 3,3, 1,3}, 4);
+		assertTrue(triangle.collide(moved));
+		assertTrue(moved.collide(triangle));
+
+		// touching corner
+		assertTrue(square.collide(new Polygon2f(new float[] {5,5, 6,5, 6,6}, 3)));
+		assertFalse(square.collide(new Polygon2f(new float[] {6,6, 7,6, 7,7}, 3)));
+
+		// one inside the other
+		assertTrue(Polygon2f.collideConvex(new float[] {0,0, 10,0, 10,10, 0,10}, 4, new float[] {4,4, 5,4, 5,5}, 3));
+
+		Polygon2f hull = new Polygon2f(new float[] {0,0, 2,1, 4,0, 4,4, 0,4}, 5).getConvexHull();
+		assertEquals(4, hull.size());
+		assertEquals(new Vertex2f(4,4).toString(), hull.get(2, new Vertex2f()).toString());
+		assertThrows(ArrayIndexOutOfBoundsException.class, () -> hull.get(4, new Vertex2f()));
+	}
+}
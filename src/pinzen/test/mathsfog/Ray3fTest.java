@@ -0,0 +1,86 @@
+package pinzen.test.mathsfog;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import pinzen.utils.mathsfog.AABB3f;
+import pinzen.utils.mathsfog.Matrix4f;
+import pinzen.utils.mathsfog.Ray3f;
+import pinzen.utils.mathsfog.Vertex3f;
+
+class Ray3fTest {
+
+	private final Ray3f ray = new Ray3f(new Vertex3f(0,0,-10), new Vertex3f(0,0,1));
+
+	@Test
+	void testSphere() {
+		assertEquals(8f, ray.intersectSphere(new Vertex3f(), 2));
+		assertEquals(Ray3f.NO_HIT, ray.intersectSphere(new Vertex3f(5,0,0), 2));
+
+		Ray3f inside = new Ray3f(new Vertex3f(), new Vertex3f(1,0,0));
+		assertEquals(2f, inside.intersectSphere(new Vertex3f(), 2));
+	}
+
+	@Test
+	void testBoxAndPlane() {
+		AABB3f box = new AABB3f(-1,-1,-1, 1,1,1);
+		assertEquals(9f, ray.intersect(box));
+		assertEquals(Ray3f.NO_HIT, new Ray3f(new Vertex3f(0,3,-10), new Vertex3f(0,0,1)).intersect(box));
+
+		// zero direction components with the origin on a face plane of the box
+		AABB3f unit = new AABB3f(0,0,0, 1,1,1);
+		assertEquals(1f, new Ray3f(new Vertex3f(0,0.5f,-1), new Vertex3f(0,0,1)).intersect(unit));
+		assertEquals(1f, new Ray3f(new Vertex3f(1,1,-1), new Vertex3f(0,0,1)).intersect(unit));
+		assertEquals(Ray3f.NO_HIT, new Ray3f(new Vertex3f(-0.5f,0.5f,-1), new Vertex3f(0,0,1)).intersect(unit));
+		assertEquals(Ray3f.NO_HIT, new Ray3f(new Vertex3f(0.5f,0.5f,-1), new Vertex3f(0,0,0)).intersect(unit));
+
+		assertEquals(10f, ray.intersectPlane(new Vertex3f(0,0,1), 0));
+		assertEquals(Ray3f.NO_HIT, ray.intersectPlane(new Vertex3f(1,0,0), 0));
+	}
+
+	@Test
+	void testTriangles() {
+		float[] triangles = {
+			-1,-1,5,  1,-1,5,  0,1,5,    // hit at t=15
+			-1,-1,0,  1,-1,0,  0,1,0,    // hit at t=10
+			 2, 2,0,  3, 2,0,  2,3,0     // missed
+		};
+
+		assertEquals(15f, ray.intersectTriangle(new Vertex3f(-1,-1,5), new Vertex3f(1,-1,5), new Vertex3f(0,1,5)));
+
+		float[] hits = new float[3];
+		ray.intersectTriangles(triangles, 0, 3, hits, 0);
+		assertArrayEquals(new float[]{15, 10, Ray3f.NO_HIT}, hits);
+		assertEquals(1, ray.closestTriangle(triangles, 0, 3));
+
+		float[] rays = {0,0,-10, 0,0,1,   2.2f,2.2f,-1, 0,0,1,   10,10,10, 0,0,1};
+		int[] index = new int[3];
+		float[] t = new float[3];
+		Ray3f.closestTriangles(rays, 3, triangles, 3, index, t);
+		assertArrayEquals(new int[]{1, 2, -1}, index);
+		assertArrayEquals(new float[]{10, 1, Ray3f.NO_HIT}, t);
+	}
+
+	@Test
+	void testUnproject() {
+		Matrix4f projection = Matrix4f.getPerspective(90, 1, 1, 100);
+		Matrix4f view = Matrix4f.getTranslationMatrix(new Vertex3f(0, 0, 5));
+		Matrix4f inverse = Matrix4f.invert(Matrix4f.mult(projection, view));
+
+		// center of the screen : looking along +Z from camera at (0,0,-5)
+		Ray3f center = new Ray3f().unproject(400, 300, 800, 600, inverse);
+		assertEquals(-4f, center.origin.z, 1e-4f);
+		assertEquals(1f, center.direction.z, 1e-5f);
+
+		// right border with a fov of 90 degrees : 45 degrees
+		Ray3f right = new Ray3f().unproject(1, 0, inverse);
+		assertEquals(right.direction.x, right.direction.z, 1e-5f);
+
+		Matrix4f m = Matrix4f.getRotationMatrix(new Vertex3f(0,1,0), 33);
+		assertArrayEquals(new Matrix4f().toArray(), Matrix4f.mult(m, Matrix4f.invert(m)).toArray(), 1e-6f);
+		assertThrows(ArithmeticException.class, () -> Matrix4f.invert(Matrix4f.getScalingMatrix(0)));
+	}
+}
@@ -0,0 +1,231 @@
+package pinzen.test.mathsfog;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import pinzen.utils.mathsfog.AABB3f;
+import pinzen.utils.mathsfog.AABB3fSet;
+import pinzen.utils.mathsfog.Matrix4f;
+import pinzen.utils.mathsfog.ProjectionCache;
+import pinzen.utils.mathsfog.SphereBounds3f;
+import pinzen.utils.mathsfog.SphereBounds3fSet;
+import pinzen.utils.mathsfog.TransformPipeline;
+import pinzen.utils.mathsfog.TransformStore;
+import pinzen.utils.mathsfog.Vertex3f;
+
+/**
+ * Concurrent structures used by many threads at once
+ *
+ * Each test runs for a short time by default, longer with -Dpinzen.mathsfog.stress=SECONDS
+ * (ex : 60 before enabling a new concurrent mode in production)
+ */
+class StressTest {
+
+	private static final long DURATION_MS = (long)(1000 * Double.parseDouble(System.getProperty("pinzen.mathsfog.stress", "0.3")));
+	private static final int THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+	/**
+	 * Run tasks together until every task returns, rethrow the first failure
+	 */
+	private static void runTogether(List<Callable<Void>> tasks) throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(tasks.size());
+		try {
+			List<Future<Void>> futures = new ArrayList<>();
+			for(Callable<Void> task : tasks) {
+				futures.add(pool.submit(task));
+			}
+			for(Future<Void> future : futures) {
+				future.get();
+			}
+		}
+		finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private static boolean running(long start) {
+		return System.currentTimeMillis() - start < DURATION_MS;
+	}
+
+	/**
+	 * Writer and reader pairs running together : a snapshot never mixes two frames and frames never go back
+	 * (a TransformStore is made for one writer and one reader, contention comes from several stores)
+	 */
+	@Test
+	void testTransformStore() throws Exception {
+		final int entities = 256;
+		long start = System.currentTimeMillis();
+
+		List<Callable<Void>> tasks = new ArrayList<>();
+		for(int s = 0; s<Math.max(2, THREADS/2); s++) {
+			TransformStore store = new TransformStore(entities);
+			AtomicBoolean writing = new AtomicBoolean(true);
+
+			tasks.add(() -> {
+				float[] values = new float[16];
+				try {
+					for(int f = 1; running(start); f++) {
+						Arrays.fill(values, f);
+						for(int e = 0; e<entities; e++) {
+							store.set(e, values, 0);
+						}
+						assertEquals(f, store.publish());
+					}
+				}
+				finally {
+					writing.set(false);
+				}
+				return null;
+			});
+
+			tasks.add(() -> {
+				float[] copy = new float[entities * 16];
+				long last = 0;
+				while(writing.get()) {
+					TransformStore.Snapshot snapshot = store.acquire();
+					long frame = snapshot.getFrame();
+					assertTrue(frame >= last, "frame " + frame + " read after " + last);
+					last = frame;
+					if(frame == 0)
+						continue;
+
+					snapshot.copy(0, entities, copy, 0);
+					for(int i = 0; i<copy.length; i++) {
+						if(copy[i] != frame)
+							assertEquals(frame, copy[i], "torn snapshot at float " + i);
+					}
+				}
+				return null;
+			});
+		}
+		runTogether(tasks);
+	}
+
+	/**
+	 * Many threads asking more projections than the capacity : right matrices, bounded size
+	 */
+	@Test
+	void testProjectionCache() throws Exception {
+		ProjectionCache cache = new ProjectionCache(8);
+		long start = System.currentTimeMillis();
+
+		List<Callable<Void>> tasks = new ArrayList<>();
+		for(int t = 0; t<THREADS; t++) {
+			final int seed = t;
+			tasks.add(() -> {
+				Random random = new Random(seed);
+				while(running(start)) {
+					float fov = 30 + random.nextInt(16) * 5;
+					Matrix4f m = cache.getPerspective(fov, 1.5f, 0.1f, 100);
+					assertEquals(Matrix4f.getPerspective(fov, 1.5f, 0.1f, 100), m);
+					assertTrue(m.isReadOnly());
+
+					float right = 100 + random.nextInt(16);
+					assertEquals(Matrix4f.getOrtho(0, 0, right, 100, 0, 1), cache.getOrtho(0, 0, right, 100, 0, 1));
+					assertTrue(cache.size() <= 8);
+				}
+				return null;
+			});
+		}
+		runTogether(tasks);
+	}
+
+	/**
+	 * Many pipelines with many workers : same output as one worker, in the same order
+	 */
+	@Test
+	void testTransformPipeline() throws Exception {
+		int count = 20000;
+		ByteBuffer bytes = ByteBuffer.allocate(count * 12).order(ByteOrder.LITTLE_ENDIAN);
+		Random random = new Random(1);
+		for(int i = 0; i<count*3; i++) {
+			bytes.putFloat(random.nextFloat() * 100);
+		}
+		byte[] input = bytes.array();
+
+		Matrix4f transform = Matrix4f.builder().rotate(new Vertex3f(0,0,1), 30).translate(new Vertex3f(1,2,3)).build();
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		new TransformPipeline().transform(transform).workers(1)
+				.run(Channels.newChannel(new ByteArrayInputStream(input)), Channels.newChannel(expected));
+
+		long start = System.currentTimeMillis();
+		List<Callable<Void>> tasks = new ArrayList<>();
+		for(int t = 0; t<THREADS/2; t++) {
+			tasks.add(() -> {
+				do {
+					ByteArrayOutputStream out = new ByteArrayOutputStream();
+					new TransformPipeline().transform(transform).workers(4).chunkSize(97)
+							.run(Channels.newChannel(new ByteArrayInputStream(input)), Channels.newChannel(out));
+					assertArrayEquals(expected.toByteArray(), out.toByteArray());
+				} while(running(start));
+				return null;
+			});
+		}
+		runTogether(tasks);
+	}
+
+	/**
+	 * Many threads querying the same sets with different spheres and boxes : same masks as sequential queries
+	 */
+	@Test
+	void testBoundsSetQueries() throws Exception {
+		Random random = new Random(1);
+		AABB3fSet boxes = new AABB3fSet(1000);
+		SphereBounds3fSet spheres = new SphereBounds3fSet(1000);
+		for(int i = 0; i<1000; i++) {
+			float x = random.nextFloat() * 100, y = random.nextFloat() * 100, z = random.nextFloat() * 100;
+			boxes.add(x, y, z, x + 2, y + 2, z + 2);
+			spheres.add(x, y, z, 1);
+		}
+
+		SphereBounds3f[] queries = new SphereBounds3f[16];
+		AABB3f[] boxQueries = new AABB3f[16];
+		long[][] expected = new long[16 * 3][16];
+		for(int q = 0; q<16; q++) {
+			queries[q] = new SphereBounds3f(random.nextFloat() * 100, random.nextFloat() * 100, random.nextFloat() * 100, 5 + q);
+			boxQueries[q] = new AABB3f(q * 5, q * 5, 0, q * 5 + 20, q * 5 + 20, 100);
+			boxes.collide(queries[q], expected[q*3]);
+			spheres.collide(queries[q], expected[q*3 + 1]);
+			spheres.collide(boxQueries[q], expected[q*3 + 2]);
+		}
+
+		long start = System.currentTimeMillis();
+		List<Callable<Void>> tasks = new ArrayList<>();
+		for(int t = 0; t<THREADS; t++) {
+			final int seed = t;
+			tasks.add(() -> {
+				Random r = new Random(seed);
+				long[] mask = new long[16];
+				do {
+					int q = r.nextInt(16);
+					boxes.collide(queries[q], mask);
+					assertArrayEquals(expected[q*3], mask);
+					spheres.collide(queries[q], mask);
+					assertArrayEquals(expected[q*3 + 1], mask);
+					spheres.collide(boxQueries[q], mask);
+					assertArrayEquals(expected[q*3 + 2], mask);
+				} while(running(start));
+				return null;
+			});
+		}
+		runTogether(tasks);
+	}
+}
@@ -0,0 +1,160 @@
+package pinzen.test.mathsfog;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import pinzen.utils.mathsfog.CircleBounds2D;
+import pinzen.utils.mathsfog.RectBounds2f;
+import pinzen.utils.mathsfog.Sweep2f;
+import pinzen.utils.mathsfog.Vertex2f;
+
+class Sweep2fTest {
+
+	private static final float EPSILON = 1e-5f;
+
+	@Test
+	void testCircleCircle() {
+		CircleBounds2D a = new CircleBounds2D(new Vertex2f(0, 0), 1);
+		CircleBounds2D b = new CircleBounds2D(new Vertex2f(10, 0), 1);
+
+		assertEquals(0.4f, Sweep2f.circleCircle(a, new Vertex2f(20, 0), b, new Vertex2f()), EPSILON);
+		assertEquals(0.8f, Sweep2f.circleCircle(a, new Vertex2f(5, 0), b, new Vertex2f(-5, 0)), EPSILON);
+		assertEquals(Sweep2f.NO_HIT, Sweep2f.circleCircle(a, new Vertex2f(5, 0), b, new Vertex2f()));
+		assertEquals(Sweep2f.NO_HIT, Sweep2f.circleCircle(a, new Vertex2f(-20, 0), b, new Vertex2f()));
+		assertEquals(Sweep2f.NO_HIT, Sweep2f.circleCircle(a, new Vertex2f(20, 5), b, new Vertex2f()));
+		assertEquals(0, Sweep2f.circleCircle(a, new Vertex2f(1, 0), new CircleBounds2D(new Vertex2f(1, 1), 1), new Vertex2f()));
+	}
+
+	@Test
+	void testRectRect() {
+		RectBounds2f a = new RectBounds2f(0, 0, 1, 1);
+		RectBounds2f wall = new RectBounds2f(10, -5, 0.1f, 10);
+
+		assertEquals(0.9f, Sweep2f.rectRect(a, new Vertex2f(10, 0), wall, new Vertex2f()), EPSILON);
+		assertEquals(0.45f, Sweep2f.rectRect(a, new Vertex2f(10, 0), wall, new Vertex2f(-10, 0)), EPSILON);
+		assertEquals(Sweep2f.NO_HIT, Sweep2f.rectRect(a, new Vertex2f(5, 0), wall, new Vertex2f()));
+		assertEquals(Sweep2f.NO_HIT, Sweep2f.rectRect(a, new Vertex2f(20, 20), wall, new Vertex2f()));
+		assertEquals(0, Sweep2f.rectRect(a, new Vertex2f(), new RectBounds2f(0.5f, 0.5f, 1, 1), new Vertex2f()));
+	}
+
+	@Test
+	void testCircleSegmentTunneling() {
+		// projectile crossing a thin wall during one tick : no static overlap at start nor end
+		CircleBounds2D bullet = new CircleBounds2D(new Vertex2f(0, 0), 0.1f);
+		Vertex2f velocity = new Vertex2f(100, 0);
+		Vertex2f a = new Vertex2f(50, -10), b = new Vertex2f(50, 10);
+
+		assertFalse(bullet.collide(new CircleBounds2D(new Vertex2f(50, 0), 0.01f)));
+		assertEquals(0.499f, Sweep2f.circleSegment(bullet, velocity, a, b), EPSILON);
+
+		// passing beside the wall then hitting its end cap
+		assertEquals(Sweep2f.NO_HIT, Sweep2f.circleSegment(bullet, velocity, new Vertex2f(50, 1), new Vertex2f(50, 10)));
+		float t = Sweep2f.circleSegment(bullet, velocity, new Vertex2f(50, 0.05f), new Vertex2f(50, 10));
+		assertEquals(0.5f - (float)Math.sqrt(0.01f - 0.0025f) / 100, t, EPSILON);
+	}
+
+	@Test
+	void testCircleSegmentMovingAway() {
+		// past the end of the segment, overlapping its line and moving away from it : no negative time of impact
+		CircleBounds2D circle = new CircleBounds2D(new Vertex2f(11, 0.5f), 1);
+		Vertex2f velocity = new Vertex2f(2, -0.1f);
+		Vertex2f a = new Vertex2f(0, 0), b = new Vertex2f(10, 0);
+		assertEquals(Sweep2f.NO_HIT, Sweep2f.circleSegment(circle, velocity, a, b));
+
+		float[] toi = new float[1];
+		assertEquals(0, Sweep2f.circlesSegments(new float[] {11, 0.5f, 1}, new float[] {2, -0.1f}, 1, new float[] {0, 0, 10, 0}, 1, toi, null));
+		assertEquals(Sweep2f.NO_HIT, toi[0]);
+
+		// same side on the other end
+		assertEquals(Sweep2f.NO_HIT, Sweep2f.circleSegment(new CircleBounds2D(new Vertex2f(-1, -0.5f), 1), new Vertex2f(-2, 0.1f), a, b));
+	}
+
+	@Test
+	void testBatchesAgainstSingleTests() {
+		Random random = new Random(3);
+		int count = 100, obstacles = 30;
+		float[] circles = new float[count*3], rects = new float[count*4], velocities = new float[count*2];
+		float[] circleObstacles = new float[obstacles*3], rectObstacles = new float[obstacles*4], segments = new float[obstacles*4];
+
+		for(int i = 0; i<count; i++) {
+			circles[i*3] = rects[i*4] = random.nextFloat()*100;
+			circles[i*3+1] = rects[i*4+1] = random.nextFloat()*100;
+			circles[i*3+2] = random.nextFloat()*2;
+			rects[i*4+2] = random.nextFloat()*2;
+			rects[i*4+3] = random.nextFloat()*2;
+			velocities[i*2] = (random.nextFloat() - 0.5f)*60;
+			velocities[i*2+1] = (random.nextFloat() - 0.5f)*60;
+		}
+		for(int o = 0; o<obstacles; o++) {
+			for(int c = 0; c<4; c++) {
+				segments[o*4+c] = rectObstacles[o*4+c] = random.nextFloat()*100;
+			}
+			rectObstacles[o*4+2] = random.nextFloat()*5;
+			rectObstacles[o*4+3] = random.nextFloat()*5;
+			circleObstacles[o*3] = random.nextFloat()*100;
+			circleObstacles[o*3+1] = random.nextFloat()*100;
+			circleObstacles[o*3+2] = random.nextFloat()*5;
+		}
+
+		float[] toi = new float[count], expectedToi = new float[count];
+		int[] hitIndex = new int[count];
+		Vertex2f zero = new Vertex2f();
+
+		int hits = Sweep2f.circlesCircles(circles, velocities, count, circleObstacles, obstacles, toi, hitIndex);
+		int expectedHits = 0;
+		for(int i = 0; i<count; i++) {
+			CircleBounds2D c = new CircleBounds2D(new Vertex2f(circles[i*3], circles[i*3+1]), circles[i*3+2]);
+			Vertex2f v = new Vertex2f(velocities[i*2], velocities[i*2+1]);
+			expectedToi[i] = Sweep2f.NO_HIT;
+			for(int o = 0; o<obstacles; o++) {
+				float t = Sweep2f.circleCircle(c, v, new CircleBounds2D(new Vertex2f(circleObstacles[o*3], circleObstacles[o*3+1]), circleObstacles[o*3+2]), zero);
+				if(t >= 0 && (expectedToi[i] < 0 || t < expectedToi[i]))
+					expectedToi[i] = t;
+			}
+			expectedHits += expectedToi[i] >= 0 ? 1 : 0;
+		}
+		assertEquals(expectedHits, hits);
+		assertArrayEquals(expectedToi, toi);
+
+		hits = Sweep2f.rectsRects(rects, velocities, count, rectObstacles, obstacles, toi, null);
+		expectedHits = 0;
+		for(int i = 0; i<count; i++) {
+			RectBounds2f r = new RectBounds2f(rects[i*4], rects[i*4+1], rects[i*4+2], rects[i*4+3]);
+			Vertex2f v = new Vertex2f(velocities[i*2], velocities[i*2+1]);
+			expectedToi[i] = Sweep2f.NO_HIT;
+			for(int o = 0; o<obstacles; o++) {
+				float t = Sweep2f.rectRect(r, v, new RectBounds2f(rectObstacles[o*4], rectObstacles[o*4+1], rectObstacles[o*4+2], rectObstacles[o*4+3]), zero);
+				if(t >= 0 && (expectedToi[i] < 0 || t < expectedToi[i]))
+					expectedToi[i] = t;
+			}
+			expectedHits += expectedToi[i] >= 0 ? 1 : 0;
+		}
+		assertEquals(expectedHits, hits);
+		assertArrayEquals(expectedToi, toi);
+
+		hits = Sweep2f.circlesSegments(circles, velocities, count, segments, obstacles, toi, hitIndex);
+		for(int i = 0; i<count; i++) {
+			CircleBounds2D c = new CircleBounds2D(new Vertex2f(circles[i*3], circles[i*3+1]), circles[i*3+2]);
+			Vertex2f v = new Vertex2f(velocities[i*2], velocities[i*2+1]);
+			if(hitIndex[i] < 0)
+				continue;
+
+			int s = hitIndex[i]*4;
+			float t = Sweep2f.circleSegment(c, v, new Vertex2f(segments[s], segments[s+1]), new Vertex2f(segments[s+2], segments[s+3]));
+			assertEquals(t, toi[i]);
+
+			// circle at time of impact touches the segment
+			float x = circles[i*3] + t*velocities[i*2], y = circles[i*3+1] + t*velocities[i*2+1];
+			float ex = segments[s+2] - segments[s], ey = segments[s+3] - segments[s+1];
+			float p = Math.max(0, Math.min(1, ((x - segments[s])*ex + (y - segments[s+1])*ey) / (ex*ex + ey*ey)));
+			float dx = x - (segments[s] + p*ex), dy = y - (segments[s+1] + p*ey);
+			assertEquals(circles[i*3+2], (float)Math.sqrt(dx*dx + dy*dy), t == 0 ? circles[i*3+2] : 1e-3f);
+		}
+		assertFalse(hits == 0);
+	}
+}
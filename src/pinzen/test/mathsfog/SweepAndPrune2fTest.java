@@ -0,0 +1,139 @@
+package pinzen.test.mathsfog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import pinzen.utils.mathsfog.CircleBounds2D;
+import pinzen.utils.mathsfog.PairListener;
+import pinzen.utils.mathsfog.RectBounds2f;
+import pinzen.utils.mathsfog.SweepAndPrune2f;
+import pinzen.utils.mathsfog.Vertex2f;
+
+class SweepAndPrune2fTest {
+
+	/**
+	 * Keeps the set of pairs from added/removed events
+	 */
+	private static class PairTracker implements PairListener {
+
+		private final Set<Long> pairs = new HashSet<>();
+
+		public void pairAdded(int a, int b) {
+			assertTrue(a < b);
+			assertTrue(pairs.add(((long)a << 32) | b), "pair added twice " + a + "," + b);
+		}
+
+		public void pairRemoved(int a, int b) {
+			assertTrue(a < b);
+			assertTrue(pairs.remove(((long)a << 32) | b), "pair removed but not added " + a + "," + b);
+		}
+	}
+
+	@Test
+	void testEvents() {
+		SweepAndPrune2f sap = new SweepAndPrune2f(4);
+		PairTracker tracker = new PairTracker();
+
+		int a = sap.add(new RectBounds2f(0, 0, 2, 2));
+		int b = sap.add(new CircleBounds2D(new Vertex2f(3, 1), 1));
+		int c = sap.add(new RectBounds2f(10, 0, 1, 1));
+		sap.update(tracker);
+		assertEquals(1, sap.getPairCount());
+		assertTrue(tracker.pairs.contains(((long)a << 32) | b));
+
+		sap.update(c, new RectBounds2f(1, 1, 1, 1));
+		sap.update(tracker);
+		assertEquals(3, sap.getPairCount());
+
+		// Only Y changes : pairs stay overlapping on X
+		sap.update(c, new RectBounds2f(1, 5, 1, 1));
+		sap.update(tracker);
+		assertEquals(1, sap.getPairCount());
+
+		sap.remove(a);
+		sap.update(tracker);
+		assertEquals(0, sap.getPairCount());
+		assertEquals(0, tracker.pairs.size());
+		assertEquals(a, sap.add(0, 0, 1, 1));
+
+		assertThrows(IllegalArgumentException.class, () -> sap.update(b, 1, 0, 0, 1));
+	}
+
+	@Test
+	void testAgainstBruteForce() {
+		Random random = new Random(7);
+		SweepAndPrune2f sap = new SweepAndPrune2f(16);
+		PairTracker tracker = new PairTracker();
+
+		int count = 300;
+		float[] x = new float[count], y = new float[count], w = new float[count], h = new float[count];
+		float[] vx = new float[count], vy = new float[count];
+		boolean[] alive = new boolean[count];
+
+		for(int i = 0; i<count; i++) {
+			x[i] = random.nextFloat()*100;
+			y[i] = random.nextFloat()*100;
+			w[i] = 1 + random.nextFloat()*4;
+			h[i] = 1 + random.nextFloat()*4;
+			vx[i] = random.nextFloat() - 0.5f;
+			vy[i] = random.nextFloat() - 0.5f;
+			assertEquals(i, sap.add(x[i], y[i], x[i] + w[i], y[i] + h[i]));
+			alive[i] = true;
+		}
+
+		for(int tick = 0; tick<200; tick++) {
+			for(int i = 0; i<count; i++) {
+				if(!alive[i])
+					continue;
+
+				x[i] += vx[i];
+				y[i] += vy[i];
+				// some bodies teleport
+				if(random.nextInt(500) == 0)
+					x[i] = random.nextFloat()*100;
+				sap.update(i, x[i], y[i], x[i] + w[i], y[i] + h[i]);
+			}
+
+			if(tick % 20 == 5) {
+				int id = random.nextInt(count);
+				if(alive[id]) {
+					sap.remove(id);
+					alive[id] = false;
+				}
+			}
+			if(tick % 20 == 15) {
+				for(int id = 0; id<count; id++) {
+					if(!alive[id]) {
+						assertEquals(id, sap.add(x[id], y[id], x[id] + w[id], y[id] + h[id]));
+						alive[id] = true;
+						break;
+					}
+				}
+			}
+
+			sap.update(tracker);
+
+			Set<Long> expected = new HashSet<>();
+			for(int i = 0; i<count; i++) {
+				for(int j = i+1; j<count; j++) {
+					if(alive[i] && alive[j] && x[i] <= x[j] + w[j] && x[j] <= x[i] + w[i]
+							&& y[i] <= y[j] + h[j] && y[j] <= y[i] + h[i])
+						expected.add(((long)i << 32) | j);
+				}
+			}
+			assertEquals(expected, tracker.pairs, "tick " + tick);
+			assertEquals(expected.size(), sap.getPairCount());
+
+			Set<Long> listed = new HashSet<>();
+			sap.forEachPair((a, b) -> listed.add(((long)a << 32) | b));
+			assertEquals(expected, listed);
+		}
+	}
+}
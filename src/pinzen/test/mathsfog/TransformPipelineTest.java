@@ -0,0 +1,115 @@
+package pinzen.test.mathsfog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Test;
+
+import pinzen.utils.mathsfog.AABB3f;
+import pinzen.utils.mathsfog.Matrix4f;
+import pinzen.utils.mathsfog.RectBounds2f;
+import pinzen.utils.mathsfog.TransformPipeline;
+import pinzen.utils.mathsfog.Vertex3f;
+
+class TransformPipelineTest {
+
+	/**
+	 * Encode points (x y z) as little endian floats
+	 * @param count : number of points, point i is (i, 2i, 3i)
+	 */
+	private byte[] points(int count) {
+		ByteBuffer bytes = ByteBuffer.allocate(count * 12).order(ByteOrder.LITTLE_ENDIAN);
+		for(int i = 0; i<count; i++) {
+			bytes.putFloat(i).putFloat(2*i).putFloat(3*i);
+		}
+		return bytes.array();
+	}
+
+	private FloatBuffer run(TransformPipeline pipeline, byte[] input) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		long written = pipeline.run(Channels.newChannel(new ByteArrayInputStream(input)), Channels.newChannel(out));
+
+		FloatBuffer result = ByteBuffer.wrap(out.toByteArray()).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+		assertEquals(written * 3, result.remaining());
+		return result;
+	}
+
+	@Test
+	void testTransformKeepsOrder() throws IOException {
+		TransformPipeline pipeline = new TransformPipeline()
+				.transform(Matrix4f.getScalingMatrix(2))
+				.transform(Matrix4f.getTranslationMatrix(new Vertex3f(1, 0, 0)))
+				.chunkSize(7)
+				.workers(3);
+
+		FloatBuffer result = run(pipeline, points(1000));
+
+		assertEquals(3000, result.remaining());
+		for(int i = 0; i<1000; i++) {
+			assertEquals(2*i + 1, result.get(i*3));
+			assertEquals(4*i, result.get(i*3 + 1));
+			assertEquals(6*i, result.get(i*3 + 2));
+		}
+	}
+
+	@Test
+	void testFilters() throws IOException {
+		FloatBuffer rect = run(new TransformPipeline().filter(new RectBounds2f(10, 0, 10, 100)).chunkSize(4), points(100));
+		assertEquals(11 * 3, rect.remaining());
+		assertEquals(10f, rect.get(0));
+
+		FloatBuffer box = run(new TransformPipeline().filter(new AABB3f(0, 0, 0, 100, 100, 30)), points(100));
+		assertEquals(11 * 3, box.remaining());
+	}
+
+	@Test
+	void testTruncatedInput() {
+		byte[] input = new byte[25];
+		assertThrows(IOException.class, () -> run(new TransformPipeline(), input));
+	}
+
+	@Test
+	void testSharedExecutor() throws IOException {
+		TransformPipeline pipeline = new TransformPipeline().transform(Matrix4f.getScalingMatrix(3)).chunkSize(5).workers(2);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			// several runs on the same threads, the executor stays usable
+			for(int run = 0; run<3; run++) {
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				assertEquals(100, pipeline.run(Channels.newChannel(new ByteArrayInputStream(points(100))), Channels.newChannel(out), executor));
+
+				FloatBuffer result = ByteBuffer.wrap(out.toByteArray()).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+				assertEquals(297f, result.get(99*3));
+				assertEquals(891f, result.get(99*3 + 2));
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void testNonBlockingChannel() throws IOException {
+		Pipe pipe = Pipe.open();
+		try {
+			pipe.source().configureBlocking(false);
+			assertThrows(IllegalArgumentException.class, () -> new TransformPipeline().run(pipe.source(), pipe.sink()));
+			assertThrows(IllegalArgumentException.class, () -> new TransformPipeline().run(pipe.source(), pipe.sink(), Runnable::run));
+		}
+		finally {
+			pipe.source().close();
+			pipe.sink().close();
+		}
+	}
+}
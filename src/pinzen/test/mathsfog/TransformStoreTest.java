@@ -0,0 +1,90 @@
+package pinzen.test.mathsfog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import pinzen.utils.mathsfog.Matrix4f;
+import pinzen.utils.mathsfog.TransformStore;
+import pinzen.utils.mathsfog.Vertex3f;
+
+class TransformStoreTest {
+
+	@Test
+	void testPublishAndAcquire() {
+		TransformStore store = new TransformStore(10);
+		Matrix4f m = new Matrix4f();
+
+		TransformStore.Snapshot first = store.acquire();
+		assertEquals(0, first.getFrame());
+		assertEquals(1f, first.get(3, m).get(4, 4));
+
+		store.set(3, Matrix4f.getTranslationMatrix(new Vertex3f(1,2,3)));
+		assertEquals(0f, store.acquire().get(3, m).get(1, 4));
+		assertEquals(1, store.publish());
+
+		TransformStore.Snapshot snapshot = store.acquire();
+		assertEquals(1, snapshot.getFrame());
+		assertEquals(1f, snapshot.get(3, m).get(1, 4));
+
+		// the next frame starts from the published one
+		store.set(4, Matrix4f.getScalingMatrix(2f));
+		store.publish();
+		snapshot = store.acquire();
+		assertEquals(1f, snapshot.get(3, m).get(1, 4));
+		assertEquals(2f, snapshot.get(4, m).get(2, 2));
+
+		// nothing new published : same snapshot
+		assertSame(snapshot, store.acquire());
+	}
+
+	@Test
+	void testNoTornRead() throws InterruptedException {
+		final int entities = 64;
+		final int frames = 20000;
+		TransformStore store = new TransformStore(entities);
+		AtomicReference<String> error = new AtomicReference<>();
+
+		Thread writer = new Thread(() -> {
+			float[] values = new float[16];
+			for(int f = 1; f<=frames; f++) {
+				Arrays.fill(values, f);
+				for(int e = 0; e<entities; e++) {
+					store.set(e, values, 0);
+				}
+				store.publish();
+			}
+		});
+
+		Thread reader = new Thread(() -> {
+			float[] copy = new float[entities * 16];
+			long last = 0;
+			while(last < frames) {
+				TransformStore.Snapshot snapshot = store.acquire();
+				if(snapshot.getFrame() < last)
+					error.set("frame " + snapshot.getFrame() + " read after " + last);
+				last = snapshot.getFrame();
+				if(last == 0)
+					continue;
+
+				snapshot.copy(0, entities, copy, 0);
+				for(float v : copy) {
+					if(v != last)
+						error.set("frame " + last + " contains " + v);
+				}
+			}
+		});
+
+		writer.start();
+		reader.start();
+		writer.join();
+		reader.join(10000);
+
+		assertTrue(error.get() == null, error.get());
+	}
+}
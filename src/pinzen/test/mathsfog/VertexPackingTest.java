@@ -0,0 +1,147 @@
+package pinzen.test.mathsfog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import pinzen.utils.mathsfog.Vertex3f;
+import pinzen.utils.mathsfog.VertexBatch;
+import pinzen.utils.mathsfog.VertexPacking;
+
+class VertexPackingTest {
+
+	@Test
+	void testHalf() {
+		assertEquals((short)0x3C00, VertexPacking.toHalf(1));
+		assertEquals((short)0xC000, VertexPacking.toHalf(-2));
+		assertEquals((short)0x7BFF, VertexPacking.toHalf(65504));
+		assertEquals((short)0x7C00, VertexPacking.toHalf(65520));
+		assertEquals((short)0x0001, VertexPacking.toHalf(0x1p-24f));
+		assertEquals((short)0x8000, VertexPacking.toHalf(-0f));
+		assertTrue(Float.isNaN(VertexPacking.fromHalf(VertexPacking.toHalf(Float.NaN))));
+		assertEquals(Float.NEGATIVE_INFINITY, VertexPacking.fromHalf(VertexPacking.toHalf(Float.NEGATIVE_INFINITY)));
+
+		// every half float is converted back exactly
+		for(int h = 0; h<0x10000; h++) {
+			float f = VertexPacking.fromHalf((short)h);
+			if(!Float.isNaN(f))
+				assertEquals((short)h, VertexPacking.toHalf(f));
+		}
+
+		// ties round to even
+		assertEquals((short)0x3C00, VertexPacking.toHalf(1 + 0x1p-11f));
+		assertEquals((short)0x3C02, VertexPacking.toHalf(1 + 3*0x1p-11f));
+	}
+
+	@Test
+	void testSnormAndOctahedral() {
+		assertEquals(32767, VertexPacking.toSnorm16(2));
+		assertEquals(-32767, VertexPacking.toSnorm16(-1));
+		assertEquals(-1f, VertexPacking.fromSnorm16(Short.MIN_VALUE));
+		assertEquals(127, VertexPacking.toSnorm8(1));
+		assertEquals(0.5f, VertexPacking.fromSnorm8(VertexPacking.toSnorm8(0.5f)), 1f/254);
+
+		Random random = new Random(11);
+		Vertex3f n = new Vertex3f(), decoded = new Vertex3f();
+		for(int i = 0; i<10000; i++) {
+			n.x = random.nextFloat()*2 - 1;
+			n.y = random.nextFloat()*2 - 1;
+			n.z = random.nextFloat()*2 - 1;
+			float norm = n.norm();
+			n.x /= norm;
+			n.y /= norm;
+			n.z /= norm;
+
+			VertexPacking.fromOctahedral16(VertexPacking.toOctahedral16(n), decoded);
+			assertEquals(1, decoded.norm(), 1e-5f);
+			assertTrue(distance(n, decoded) < 1e-4f);
+
+			VertexPacking.fromOctahedral8(VertexPacking.toOctahedral8(n), decoded);
+			assertTrue(distance(n, decoded) < 2e-2f);
+		}
+	}
+
+	@Test
+	void testOctahedralZeroNormal() {
+		Vertex3f decoded = new Vertex3f();
+		for(Vertex3f n : new Vertex3f[] {new Vertex3f(), new Vertex3f(0, 0, -0f), new Vertex3f(Float.NaN, 0, 1)}) {
+			assertEquals(0, VertexPacking.toOctahedral16(n));
+			assertEquals(0, VertexPacking.toOctahedral8(n));
+
+			VertexPacking.fromOctahedral16(VertexPacking.toOctahedral16(n), decoded);
+			assertEquals(new Vertex3f(0, 0, 1).toString(), decoded.toString());
+			VertexPacking.fromOctahedral8(VertexPacking.toOctahedral8(n), decoded);
+			assertEquals(new Vertex3f(0, 0, 1).toString(), decoded.toString());
+		}
+	}
+
+	private static float distance(Vertex3f a, Vertex3f b) {
+		float dx = a.x - b.x, dy = a.y - b.y, dz = a.z - b.z;
+		return (float)Math.sqrt(dx*dx + dy*dy + dz*dz);
+	}
+
+	@Test
+	void testBatches() {
+		Random random = new Random(5);
+		int count = 3000;
+		VertexBatch positions = new VertexBatch(3, count), normals = new VertexBatch(3, count);
+		Vertex3f v = new Vertex3f();
+		for(int i = 0; i<count; i++) {
+			positions.set(i, new Vertex3f(random.nextFloat()*200 - 100, random.nextFloat()*200 - 100, random.nextFloat()*200 - 100));
+			v.x = random.nextFloat() - 0.5f;
+			v.y = random.nextFloat() - 0.5f;
+			v.z = random.nextFloat() - 0.5f;
+			float norm = v.norm();
+			normals.set(i, new Vertex3f(v.x/norm, v.y/norm, v.z/norm));
+		}
+
+		// zero normal : +Z
+		normals.set(count - 1, new Vertex3f());
+
+		ByteBuffer buffer = ByteBuffer.allocate(8 + count*3*2*2 + count*3 + count*4 + count*2).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putLong(42);
+		VertexPacking.encodeHalf(positions, buffer);
+		VertexPacking.encodeSnorm16(positions, 100, buffer);
+		VertexPacking.encodeSnorm8(positions, 100, buffer);
+		VertexPacking.encodeOctahedral(normals, buffer);
+		VertexPacking.encodeOctahedral8(normals, buffer);
+		assertEquals(buffer.capacity(), buffer.position());
+		assertThrows(BufferOverflowException.class, () -> VertexPacking.encodeOctahedral(normals, buffer));
+
+		buffer.flip();
+		assertEquals(42, buffer.getLong());
+		VertexBatch half = new VertexBatch(3, count), snorm16 = new VertexBatch(3, count), snorm8 = new VertexBatch(3, count);
+		VertexBatch decodedNormals = new VertexBatch(3, count), decodedNormals8 = new VertexBatch(3, count);
+		VertexPacking.decodeHalf(buffer, half);
+		VertexPacking.decodeSnorm16(buffer, 100, snorm16);
+		VertexPacking.decodeSnorm8(buffer, 100, snorm8);
+		VertexPacking.decodeOctahedral(buffer, decodedNormals);
+		VertexPacking.decodeOctahedral8(buffer, decodedNormals8);
+		assertEquals(0, buffer.remaining());
+
+		for(int i = 0; i<count; i++) {
+			for(int c = 1; c<=3; c++) {
+				float f = positions.get(i, c);
+				assertEquals(VertexPacking.fromHalf(VertexPacking.toHalf(f)), half.get(i, c));
+				assertEquals(f, snorm16.get(i, c), 100f/32767);
+				assertEquals(f, snorm8.get(i, c), 100f/127);
+				// same floats as the scalar conversion (vectorized decoding on Java 21+)
+				assertEquals(Math.max(Math.round(Math.max(-32767f, Math.min(32767f, f * (32767 / 100f)))), -32767) * (100f / 32767), snorm16.get(i, c));
+				assertEquals(Math.max(Math.round(Math.max(-127f, Math.min(127f, f * (127 / 100f)))), -127) * (100f / 127), snorm8.get(i, c));
+			}
+			Vertex3f expected = VertexPacking.fromOctahedral16(VertexPacking.toOctahedral16(normals.get(i, v)), new Vertex3f());
+			assertEquals(expected.toString(), decodedNormals.get(i, new Vertex3f()).toString());
+			expected = VertexPacking.fromOctahedral8(VertexPacking.toOctahedral8(normals.get(i, v)), new Vertex3f());
+			assertEquals(expected.toString(), decodedNormals8.get(i, new Vertex3f()).toString());
+		}
+		assertEquals(1f, decodedNormals.get(count - 1, 3));
+		assertEquals(1f, decodedNormals8.get(count - 1, 3));
+	}
+}
@@ -0,0 +1,79 @@
+package pinzen.utils.mathsfog;
+
+import pinzen.utils.mathsfog.MathsProfiler.Operation;
+
+/**
+ * Represents an axis aligned box in 3D using its min and max corners
+ */
+public class AABB3f {
+
+	public Vertex3f min, max;
+
+	/**
+	 * Create an AABB3f using its corners
+	 * @param min : corner with the smallest components
+	 * @param max : corner with the biggest components
+	 */
+	public AABB3f(Vertex3f min, Vertex3f max) {
+		this.min = min.clone();
+		this.max = max.clone();
+	}
+
+	/**
+	 * Create an AABB3f using its corners components
+	 */
+	public AABB3f(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+		this(new Vertex3f(minX, minY, minZ), new Vertex3f(maxX, maxY, maxZ));
+	}
+
+	/**
+	 * Set corners of this AABB3f (no allocation)
+	 * @return this AABB3f
+	 */
+	public AABB3f set(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+		min.x = minX;
+		min.y = minY;
+		min.z = minZ;
+		max.x = maxX;
+		max.y = maxY;
+		max.z = maxZ;
+		return this;
+	}
+
+	public AABB3f clone() {
+		return new AABB3f(min, max);
+	}
+
+	/**
+	 * Output "AABB3f(minX,minY,minZ,maxX,maxY,maxZ)"
+	 */
+	public String toString() {
+		return "AABB3f(" + min.x + "," + min.y + "," + min.z + "," + max.x + "," + max.y + "," + max.z + ")";
+	}
+
+	public boolean contains(Vertex3f p) {
+		return contains(p.x, p.y, p.z);
+	}
+
+	public boolean contains(float x, float y, float z) {
+		if(MathsProfiler.ENABLED)
+			MathsProfiler.count(Operation.AABB3F_CONTAINS);
+
+		return x >= min.x && x <= max.x
+			&& y >= min.y && y <= max.y
+			&& z >= min.z && z <= max.z;
+	}
+
+	public boolean collide(AABB3f b) {
+		if(MathsProfiler.ENABLED)
+			MathsProfiler.count(Operation.AABB3F_COLLIDE);
+
+		return min.x <= b.max.x && max.x >= b.min.x
+			&& min.y <= b.max.y && max.y >= b.min.y
+			&& min.z <= b.max.z && max.z >= b.min.z;
+	}
+
+	public boolean collide(SphereBounds3f s) {
+		return s.collide(this);
+	}
+}
@@ -0,0 +1,270 @@
+package pinzen.utils.mathsfog;
+
+import java.util.Arrays;
+
+import pinzen.utils.mathsfog.MathsProfiler.Operation;
+
+/**
+ * Collection of AABB3f stored as structure of arrays (one float array per component)
+ *
+ * Bounds are referenced by their index (0 for the first added). Tests against many
+ * bounds are done in single branch free loops and return a bitmask :
+ * bit (i % 64) of mask[i / 64] is set when bounds i collides.
+ *
+ * Queries (collide) don't modify the set : many threads can query it at once
+ * while no thread adds, sets or sorts bounds.
+ */
+public class AABB3fSet {
+
+	private float[] minX, minY, minZ, maxX, maxY, maxZ;
+	private int size;
+	private long[] sorted;
+	// bounds sorted by minX (sweep and prune)
+	private float[] sMinX, sMaxX, sMinY, sMaxY, sMinZ, sMaxZ;
+	private int[] sIndex;
+	private final float[] matrix = new float[16];
+
+	/**
+	 * Create an empty AABB3fSet
+	 * @param capacity : initial capacity (grows when needed)
+	 */
+	public AABB3fSet(int capacity) {
+		capacity = Math.max(capacity, 16);
+		minX = new float[capacity];
+		minY = new float[capacity];
+		minZ = new float[capacity];
+		maxX = new float[capacity];
+		maxY = new float[capacity];
+		maxZ = new float[capacity];
+	}
+
+	/**
+	 * @return number of bounds in this set
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Remove every bounds (capacity is kept)
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Add bounds at the end of this set
+	 * @param box : bounds to add (copied)
+	 * @return index of the added bounds
+	 */
+	public int add(AABB3f box) {
+		return add(box.min.x, box.min.y, box.min.z, box.max.x, box.max.y, box.max.z);
+	}
+
+	/**
+	 * Add bounds at the end of this set
+	 * @return index of the added bounds
+	 */
+	public int add(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+		if(size == this.minX.length)
+			grow(size * 2);
+
+		set(size++, minX, minY, minZ, maxX, maxY, maxZ);
+		return size - 1;
+	}
+
+	private void grow(int capacity) {
+		minX = Arrays.copyOf(minX, capacity);
+		minY = Arrays.copyOf(minY, capacity);
+		minZ = Arrays.copyOf(minZ, capacity);
+		maxX = Arrays.copyOf(maxX, capacity);
+		maxY = Arrays.copyOf(maxY, capacity);
+		maxZ = Arrays.copyOf(maxZ, capacity);
+	}
+
+	/**
+	 * Change bounds at a given index
+	 * @param index : index of the bounds
+	 * @param box : new bounds (copied)
+	 */
+	public void set(int index, AABB3f box) {
+		set(index, box.min.x, box.min.y, box.min.z, box.max.x, box.max.y, box.max.z);
+	}
+
+	/**
+	 * Change bounds at a given index
+	 * @param index : index of the bounds
+	 */
+	public void set(int index, float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+		check(index);
+		this.minX[index] = minX;
+		this.minY[index] = minY;
+		this.minZ[index] = minZ;
+		this.maxX[index] = maxX;
+		this.maxY[index] = maxY;
+		this.maxZ[index] = maxZ;
+	}
+
+	/**
+	 * Copy bounds at a given index in an existing AABB3f
+	 * @param index : index of the bounds
+	 * @param dest : AABB3f receiving the bounds
+	 * @return dest
+	 */
+	public AABB3f get(int index, AABB3f dest) {
+		check(index);
+		return dest.set(minX[index], minY[index], minZ[index], maxX[index], maxY[index], maxZ[index]);
+	}
+
+	/**
+	 * Set every bounds of this set to the bounds of a local set transformed by one affine Matrix4f
+	 * (Arvo's method, see Matrix4f.transformBounds)<br>
+	 * This set takes the size of local
+	 * @param local : bounds to transform (can be this set)
+	 * @param m : affine Matrix4f
+	 */
+	public void transform(AABB3fSet local, Matrix4f m) {
+		m.store(matrix, 0);
+		transform(local, matrix, 0, 0);
+	}
+
+	/**
+	 * Set each bounds of this set to the bounds at the same index of a local set transformed by its own
+	 * affine matrix (refit of a broad phase : local bounds of each object by its model matrix)<br>
+	 * This set takes the size of local
+	 * @param local : bounds to transform (can be this set)
+	 * @param matrices : one matrix per bounds, 16 floats column major (same layout as Matrix4fBatch and TransformStore)
+	 * @param offset : index of the first matrix in matrices
+	 */
+	public void transform(AABB3fSet local, float[] matrices, int offset) {
+		if(offset < 0 || offset + (long)local.size * 16 > matrices.length)
+			throw new IllegalArgumentException("Can't transform " + local.size + " bounds with " + matrices.length
+					+ " floats from index " + offset);
+
+		transform(local, matrices, offset, 16);
+	}
+
+	private void transform(AABB3fSet local, float[] m, int offset, int stride) {
+		if(MathsProfiler.ENABLED)
+			MathsProfiler.count(Operation.MATRIX4F_TRANSFORM_BOUNDS);
+
+		int count = local.size;
+		if(minX.length < count)
+			grow(count);
+		size = count;
+
+		float[] lMinX = local.minX, lMinY = local.minY, lMinZ = local.minZ, lMaxX = local.maxX, lMaxY = local.maxY, lMaxZ = local.maxZ;
+		for(int i = 0, o = offset; i<count; i++, o+=stride) {
+			float cx = (lMinX[i] + lMaxX[i]) * 0.5f, cy = (lMinY[i] + lMaxY[i]) * 0.5f, cz = (lMinZ[i] + lMaxZ[i]) * 0.5f;
+			float ex = (lMaxX[i] - lMinX[i]) * 0.5f, ey = (lMaxY[i] - lMinY[i]) * 0.5f, ez = (lMaxZ[i] - lMinZ[i]) * 0.5f;
+
+			float x = m[o]*cx + m[o+4]*cy + m[o+8]*cz + m[o+12];
+			float y = m[o+1]*cx + m[o+5]*cy + m[o+9]*cz + m[o+13];
+			float z = m[o+2]*cx + m[o+6]*cy + m[o+10]*cz + m[o+14];
+			float rx = Math.abs(m[o])*ex + Math.abs(m[o+4])*ey + Math.abs(m[o+8])*ez;
+			float ry = Math.abs(m[o+1])*ex + Math.abs(m[o+5])*ey + Math.abs(m[o+9])*ez;
+			float rz = Math.abs(m[o+2])*ex + Math.abs(m[o+6])*ey + Math.abs(m[o+10])*ez;
+
+			minX[i] = x - rx;
+			minY[i] = y - ry;
+			minZ[i] = z - rz;
+			maxX[i] = x + rx;
+			maxY[i] = y + ry;
+			maxZ[i] = z + rz;
+		}
+	}
+
+	private void check(int index) {
+		if(index < 0 || index >= size)
+			throw new ArrayIndexOutOfBoundsException("Can't reach AABB3fSet[" + index + "]");
+	}
+
+	/**
+	 * Test one box against every bounds of this set
+	 * @param box : AABB3f to test
+	 * @param mask : array of at least (size+63)/64 longs receiving the result bitmask
+	 * @return number of colliding bounds
+	 */
+	public int collide(AABB3f box, long[] mask) {
+		float bMinX = box.min.x, bMinY = box.min.y, bMinZ = box.min.z;
+		float bMaxX = box.max.x, bMaxY = box.max.y, bMaxZ = box.max.z;
+		int hits = 0;
+
+		for(int block = 0; block*64 < size; block++) {
+			int start = block*64;
+			int end = Math.min(start + 64, size);
+			long bits = BatchKernels.boxBits(minX, minY, minZ, maxX, maxY, maxZ, start, end, bMinX, bMinY, bMinZ, bMaxX, bMaxY, bMaxZ);
+
+			mask[block] = bits;
+			hits += Long.bitCount(bits);
+		}
+		return hits;
+	}
+
+	/**
+	 * Test one sphere against every bounds of this set
+	 * @param sphere : SphereBounds3f to test
+	 * @param mask : array of at least (size+63)/64 longs receiving the result bitmask
+	 * @return number of colliding bounds
+	 */
+	public int collide(SphereBounds3f sphere, long[] mask) {
+		float x = sphere.getX(), y = sphere.getY(), z = sphere.getZ();
+		float r2 = sphere.getRadius() * sphere.getRadius();
+		int hits = 0;
+
+		for(int block = 0; block*64 < size; block++) {
+			int start = block*64;
+			int end = Math.min(start + 64, size);
+			long bits = BatchKernels.sphereBits(minX, minY, minZ, maxX, maxY, maxZ, start, end, x, y, z, r2);
+
+			mask[block] = bits;
+			hits += Long.bitCount(bits);
+		}
+		return hits;
+	}
+
+	/**
+	 * Find every pair of colliding bounds of this set (sort on X axis then sweep)<br>
+	 * O(n log n + pairs overlapping on X), no allocation once the internal arrays are big enough
+	 * @param handler : called once for each colliding pair (a < b)
+	 * @return number of colliding pairs
+	 */
+	public int sweepAndPrune(PairHandler handler) {
+		sorted = IndexSort.sort(minX, size, sorted);
+
+		// bounds copied in sorted order : the sweep reads memory sequentially
+		if(sMinX == null || sMinX.length < size) {
+			sMinX = new float[minX.length];
+			sMaxX = new float[minX.length];
+			sMinY = new float[minX.length];
+			sMaxY = new float[minX.length];
+			sMinZ = new float[minX.length];
+			sMaxZ = new float[minX.length];
+			sIndex = new int[minX.length];
+		}
+		for(int s = 0; s<size; s++) {
+			int i = IndexSort.index(sorted[s]);
+			sIndex[s] = i;
+			sMinX[s] = minX[i];
+			sMaxX[s] = maxX[i];
+			sMinY[s] = minY[i];
+			sMaxY[s] = maxY[i];
+			sMinZ[s] = minZ[i];
+			sMaxZ[s] = maxZ[i];
+		}
+
+		int pairs = 0;
+		for(int s = 0; s<size; s++) {
+			float iMaxX = sMaxX[s], iMinY = sMinY[s], iMaxY = sMaxY[s], iMinZ = sMinZ[s], iMaxZ = sMaxZ[s];
+
+			for(int t = s+1; t<size && sMinX[t] <= iMaxX; t++) {
+				if((iMinY <= sMaxY[t]) & (iMaxY >= sMinY[t]) & (iMinZ <= sMaxZ[t]) & (iMaxZ >= sMinZ[t])) {
+					int i = sIndex[s], j = sIndex[t];
+					handler.onPair(Math.min(i, j), Math.max(i, j));
+					pairs++;
+				}
+			}
+		}
+		return pairs;
+	}
+}
@@ -0,0 +1,211 @@
+package pinzen.utils.mathsfog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary persistence of VertexBatch and Matrix4fBatch
+ *
+ * Format (little endian) :
+ * int   magic      "MFOG"
+ * short version    1
+ * byte  kind       0 for vertices, 1 for matrices
+ * byte  components 2, 3 or 4 for vertices, 16 for matrices
+ * long  count      number of vertices/matrices
+ * float data[components*count]
+ *
+ * Files are read by memory mapping : the returned batch uses the file content
+ * directly (nothing is parsed or copied). One mapping can't exceed 2GB,
+ * bigger files are read by windows (see mapVertices(Path, long, int)).
+ */
+public class BatchFile {
+
+	public static final int MAGIC = 0x474F464D; // "MFOG" in little endian
+	public static final short VERSION = 1;
+	public static final int HEADER_SIZE = 16;
+
+	private static final byte KIND_VERTEX = 0;
+	private static final byte KIND_MATRIX = 1;
+	private static final int CHUNK_SIZE = 1 << 16;
+
+	private BatchFile() {}
+
+			/** ----- ----- Writing ----- ----- **/
+
+	/**
+	 * Write a VertexBatch in a file (replaced if it exists)
+	 * @param path : destination file
+	 * @param batch : vertices to write
+	 * @throws IOException if the file can't be written
+	 */
+	public static void write(Path path, VertexBatch batch) throws IOException {
+		write(path, KIND_VERTEX, batch.getDimension(), batch.size(), batch.getBuffer());
+	}
+
+	/**
+	 * Write a Matrix4fBatch in a file (replaced if it exists)
+	 * @param path : destination file
+	 * @param batch : matrices to write
+	 * @throws IOException if the file can't be written
+	 */
+	public static void write(Path path, Matrix4fBatch batch) throws IOException {
+		write(path, KIND_MATRIX, 16, batch.size(), batch.getBuffer());
+	}
+
+	private static void write(Path path, byte kind, int components, long count, FloatBuffer floats) throws IOException {
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+			chunk.putInt(MAGIC);
+			chunk.putShort(VERSION);
+			chunk.put(kind);
+			chunk.put((byte)components);
+			chunk.putLong(count);
+			chunk.flip();
+			writeFully(channel, chunk);
+
+			while(floats.hasRemaining()) {
+				int n = Math.min(floats.remaining(), CHUNK_SIZE / 4);
+				FloatBuffer part = floats.duplicate();
+				part.limit(part.position() + n);
+
+				chunk.clear();
+				chunk.asFloatBuffer().put(part);
+				chunk.limit(n * 4);
+				writeFully(channel, chunk);
+
+				floats.position(floats.position() + n);
+			}
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while(buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+			/** ----- ----- Reading ----- ----- **/
+
+	/**
+	 * Map a whole vertex file in memory (read only)
+	 * @param path : file written by BatchFile.write
+	 * @return a read only VertexBatch using the file content
+	 * @throws IOException if the file can't be read or isn't a vertex file
+	 */
+	public static VertexBatch mapVertices(Path path) throws IOException {
+		return mapVertices(path, 0, -1);
+	}
+
+	/**
+	 * Map a window of a vertex file in memory (read only)<br>
+	 * Useful for files bigger than 2GB
+	 * @param path : file written by BatchFile.write
+	 * @param first : index of the first vertex to map
+	 * @param count : number of vertices to map (-1 for all remaining vertices)
+	 * @return a read only VertexBatch using the file content
+	 * @throws IOException if the file can't be read or isn't a vertex file
+	 */
+	public static VertexBatch mapVertices(Path path, long first, int count) throws IOException {
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer header = readHeader(channel, path, KIND_VERTEX);
+			int components = header.get(7);
+			int n = window(path, header.getLong(8), components, first, count);
+
+			return new VertexBatch(map(channel, components, first, n), components, n);
+		}
+	}
+
+	/**
+	 * Map a whole matrix file in memory (read only)
+	 * @param path : file written by BatchFile.write
+	 * @return a read only Matrix4fBatch using the file content
+	 * @throws IOException if the file can't be read or isn't a matrix file
+	 */
+	public static Matrix4fBatch mapMatrices(Path path) throws IOException {
+		return mapMatrices(path, 0, -1);
+	}
+
+	/**
+	 * Map a window of a matrix file in memory (read only)<br>
+	 * Useful for files bigger than 2GB
+	 * @param path : file written by BatchFile.write
+	 * @param first : index of the first matrix to map
+	 * @param count : number of matrices to map (-1 for all remaining matrices)
+	 * @return a read only Matrix4fBatch using the file content
+	 * @throws IOException if the file can't be read or isn't a matrix file
+	 */
+	public static Matrix4fBatch mapMatrices(Path path, long first, int count) throws IOException {
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer header = readHeader(channel, path, KIND_MATRIX);
+			int n = window(path, header.getLong(8), 16, first, count);
+
+			return new Matrix4fBatch(map(channel, 16, first, n), n);
+		}
+	}
+
+	/**
+	 * Read the number of vertices/matrices stored in a file (without mapping it)
+	 * @param path : file written by BatchFile.write
+	 * @return number of elements in the file
+	 * @throws IOException if the file can't be read or isn't a batch file
+	 */
+	public static long count(Path path) throws IOException {
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return readHeader(channel, path, (byte)-1).getLong(8);
+		}
+	}
+
+	private static ByteBuffer readHeader(FileChannel channel, Path path, byte kind) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		while(header.hasRemaining()) {
+			if(channel.read(header, header.position()) < 0)
+				throw new IOException("Can't read header of " + path + " : file too short");
+		}
+
+		if(header.getInt(0) != MAGIC)
+			throw new IOException("Can't read " + path + " : not a MathsFOG batch file");
+		if(header.getShort(4) != VERSION)
+			throw new IOException("Can't read " + path + " : unsupported version " + header.getShort(4));
+		if(kind >= 0 && header.get(6) != kind)
+			throw new IOException("Can't read " + path + " : file contains " + (header.get(6) == KIND_VERTEX ? "vertices" : "matrices"));
+
+		byte components = header.get(7);
+		boolean vertices = header.get(6) == KIND_VERTEX;
+		if(vertices ? components < 2 || components > 4 : header.get(6) != KIND_MATRIX || components != 16)
+			throw new IOException("Can't read " + path + " : invalid header (kind " + header.get(6) + ", " + components + " components)");
+
+		// size computed in long, count checked first so it can't overflow
+		long count = header.getLong(8);
+		if(count < 0 || count > (Long.MAX_VALUE - HEADER_SIZE) / (components * 4))
+			throw new IOException("Can't read " + path + " : invalid element count " + count);
+		long expected = HEADER_SIZE + count * components * 4;
+		if(channel.size() != expected)
+			throw new IOException("Can't read " + path + " : " + channel.size() + " bytes instead of " + expected + " for " + count + " elements");
+
+		return header;
+	}
+
+	private static int window(Path path, long total, int components, long first, int count) throws IOException {
+		long n = count < 0 ? total - first : count;
+
+		if(first < 0 || n < 0 || first + n > total)
+			throw new IOException("Can't map elements [" + first + "," + (first + n) + "[ of " + path + " : it contains " + total + " elements");
+		if(n * components * 4 > Integer.MAX_VALUE)
+			throw new IOException("Can't map " + n + " elements of " + path + " at once : use a smaller window");
+
+		return (int)n;
+	}
+
+	private static FloatBuffer map(FileChannel channel, int components, long first, int count) throws IOException {
+		long position = HEADER_SIZE + first * components * 4;
+		long size = (long)count * components * 4;
+
+		return channel.map(FileChannel.MapMode.READ_ONLY, position, size).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+	}
+}
@@ -1,5 +1,7 @@
 package pinzen.utils.mathsfog;
 
+import pinzen.utils.mathsfog.MathsProfiler.Operation;
+
 public class CircleBounds2D {
 
 	private Vertex2f center;
@@ -11,11 +13,17 @@ public class CircleBounds2D {
 	}
 	
 	public boolean contains(Vertex2f point) {
+		if(MathsProfiler.ENABLED)
+			MathsProfiler.count(Operation.CIRCLEBOUNDS2D_CONTAINS);
+		
 		Vertex2f distance = Vertex2f.difference(center, point);
 		return distance.getNorm() <= this.radius;	
 	}
 	
 	public boolean collide(CircleBounds2D bounds) {
+		if(MathsProfiler.ENABLED)
+			MathsProfiler.count(Operation.CIRCLEBOUNDS2D_COLLIDE);
+		
 		Vertex2f distance = Vertex2f.difference(center, bounds.getCenter());
 		return distance.getNorm() <= (this.radius + bounds.getRadius());	
 	}
@@ -28,6 +36,17 @@ public class CircleBounds2D {
 		return this.center.clone();
 	}
 	
+	/**
+	 * Copy center in an existing Vertex2f (no allocation)
+	 * @param dest : Vertex2f receiving the center
+	 * @return dest
+	 */
+	public Vertex2f getCenter(Vertex2f dest) {
+		dest.x = center.x;
+		dest.y = center.y;
+		return dest;
+	}
+	
 	public void setCenter(Vertex2f c) {
 		this.center = c.clone();
 	}
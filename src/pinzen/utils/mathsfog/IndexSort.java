@@ -0,0 +1,49 @@
+package pinzen.utils.mathsfog;
+
+import java.util.Arrays;
+
+/**
+ * Sort indexes by a float key without boxing : each (key, index) is packed in a long
+ * whose natural order is the order of the floats (-0 before 0, NaN after +infinity)
+ */
+final class IndexSort {
+
+	private IndexSort() {}
+
+	/**
+	 * Pack a key and an index in a long
+	 * @param key : float used for sorting
+	 * @param index : index stored with the key
+	 */
+	static long pack(float key, int index) {
+		int bits = Float.floatToIntBits(key);
+		bits ^= (bits >> 31) & 0x7FFFFFFF;
+		return ((long)bits << 32) | (index & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Get index stored in a packed long
+	 */
+	static int index(long packed) {
+		return (int)packed;
+	}
+
+	/**
+	 * Sort indexes 0 to count-1 by keys
+	 * @param keys : key of each index
+	 * @param count : number of indexes
+	 * @param scratch : array of at least count longs (reused between calls), can be null
+	 * @return scratch (or a new array if it was too small) with packed indexes sorted from
+	 * smallest key to biggest key, use index() to read them
+	 */
+	static long[] sort(float[] keys, int count, long[] scratch) {
+		if(scratch == null || scratch.length < count)
+			scratch = new long[Math.max(count, 16)];
+
+		for(int i = 0; i<count; i++) {
+			scratch[i] = pack(keys[i], i);
+		}
+		Arrays.sort(scratch, 0, count);
+		return scratch;
+	}
+}
@@ -0,0 +1,265 @@
+package pinzen.utils.mathsfog;
+
+/**
+ * Interpolation of Vertex2f, Vertex3f and Vertex4f without allocation : results are written
+ * in a given destination (which can be one of the inputs)
+ *
+ * t is in [0, 1] : 0 gives the start point, 1 the end point.
+ */
+public final class Interpolation {
+
+	private Interpolation() {}
+
+			/** ----- ----- Linear ----- ----- **/
+
+	/**
+	 * Linear interpolation a + t*(b - a)
+	 * @param a : start point
+	 * @param b : end point
+	 * @param t : position between a and b
+	 * @param dest : Vertex2f receiving the result
+	 * @return dest
+	 */
+	public static Vertex2f lerp(Vertex2f a, Vertex2f b, float t, Vertex2f dest) {
+		dest.x = a.x + t*(b.x - a.x);
+		dest.y = a.y + t*(b.y - a.y);
+		return dest;
+	}
+
+	/**
+	 * Linear interpolation a + t*(b - a)
+	 * @param a : start point
+	 * @param b : end point
+	 * @param t : position between a and b
+	 * @param dest : Vertex3f receiving the result
+	 * @return dest
+	 */
+	public static Vertex3f lerp(Vertex3f a, Vertex3f b, float t, Vertex3f dest) {
+		dest.x = a.x + t*(b.x - a.x);
+		dest.y = a.y + t*(b.y - a.y);
+		dest.z = a.z + t*(b.z - a.z);
+		return dest;
+	}
+
+	/**
+	 * Linear interpolation a + t*(b - a)
+	 * @param a : start point
+	 * @param b : end point
+	 * @param t : position between a and b
+	 * @param dest : Vertex4f receiving the result
+	 * @return dest
+	 */
+	public static Vertex4f lerp(Vertex4f a, Vertex4f b, float t, Vertex4f dest) {
+		dest.x = a.x + t*(b.x - a.x);
+		dest.y = a.y + t*(b.y - a.y);
+		dest.z = a.z + t*(b.z - a.z);
+		dest.w = a.w + t*(b.w - a.w);
+		return dest;
+	}
+
+	/**
+	 * Normalized linear interpolation of rotations (unit quaternions x y z w) following the shortest path<br>
+	 * Close to a slerp for small angles (interpolation between near frames) and much cheaper
+	 * @param a : start rotation
+	 * @param b : end rotation
+	 * @param t : position between a and b
+	 * @param dest : Vertex4f receiving the unit quaternion
+	 * @return dest
+	 */
+	public static Vertex4f nlerp(Vertex4f a, Vertex4f b, float t, Vertex4f dest) {
+		float sign = a.x*b.x + a.y*b.y + a.z*b.z + a.w*b.w < 0 ? -1 : 1;
+		float x = a.x + t*(sign*b.x - a.x);
+		float y = a.y + t*(sign*b.y - a.y);
+		float z = a.z + t*(sign*b.z - a.z);
+		float w = a.w + t*(sign*b.w - a.w);
+		float invNorm = 1f / (float)Math.sqrt(x*x + y*y + z*z + w*w);
+
+		dest.x = x * invNorm;
+		dest.y = y * invNorm;
+		dest.z = z * invNorm;
+		dest.w = w * invNorm;
+		return dest;
+	}
+
+			/** ----- ----- Cubic Curves ----- ----- **/
+
+	/**
+	 * Cubic Hermite curve from p0 to p1
+	 * @param p0 : start point
+	 * @param m0 : tangent at start point
+	 * @param p1 : end point
+	 * @param m1 : tangent at end point
+	 * @param t : position on the curve
+	 * @param dest : Vertex2f receiving the result
+	 * @return dest
+	 */
+	public static Vertex2f hermite(Vertex2f p0, Vertex2f m0, Vertex2f p1, Vertex2f m1, float t, Vertex2f dest) {
+		float t2 = t*t, t3 = t2*t;
+		float h00 = 2*t3 - 3*t2 + 1, h10 = t3 - 2*t2 + t, h01 = -2*t3 + 3*t2, h11 = t3 - t2;
+
+		dest.x = h00*p0.x + h10*m0.x + h01*p1.x + h11*m1.x;
+		dest.y = h00*p0.y + h10*m0.y + h01*p1.y + h11*m1.y;
+		return dest;
+	}
+
+	/**
+	 * Cubic Hermite curve from p0 to p1
+	 * @param p0 : start point
+	 * @param m0 : tangent at start point
+	 * @param p1 : end point
+	 * @param m1 : tangent at end point
+	 * @param t : position on the curve
+	 * @param dest : Vertex3f receiving the result
+	 * @return dest
+	 */
+	public static Vertex3f hermite(Vertex3f p0, Vertex3f m0, Vertex3f p1, Vertex3f m1, float t, Vertex3f dest) {
+		float t2 = t*t, t3 = t2*t;
+		float h00 = 2*t3 - 3*t2 + 1, h10 = t3 - 2*t2 + t, h01 = -2*t3 + 3*t2, h11 = t3 - t2;
+
+		dest.x = h00*p0.x + h10*m0.x + h01*p1.x + h11*m1.x;
+		dest.y = h00*p0.y + h10*m0.y + h01*p1.y + h11*m1.y;
+		dest.z = h00*p0.z + h10*m0.z + h01*p1.z + h11*m1.z;
+		return dest;
+	}
+
+	/**
+	 * Cubic Hermite curve from p0 to p1
+	 * @param p0 : start point
+	 * @param m0 : tangent at start point
+	 * @param p1 : end point
+	 * @param m1 : tangent at end point
+	 * @param t : position on the curve
+	 * @param dest : Vertex4f receiving the result
+	 * @return dest
+	 */
+	public static Vertex4f hermite(Vertex4f p0, Vertex4f m0, Vertex4f p1, Vertex4f m1, float t, Vertex4f dest) {
+		float t2 = t*t, t3 = t2*t;
+		float h00 = 2*t3 - 3*t2 + 1, h10 = t3 - 2*t2 + t, h01 = -2*t3 + 3*t2, h11 = t3 - t2;
+
+		dest.x = h00*p0.x + h10*m0.x + h01*p1.x + h11*m1.x;
+		dest.y = h00*p0.y + h10*m0.y + h01*p1.y + h11*m1.y;
+		dest.z = h00*p0.z + h10*m0.z + h01*p1.z + h11*m1.z;
+		dest.w = h00*p0.w + h10*m0.w + h01*p1.w + h11*m1.w;
+		return dest;
+	}
+
+	/**
+	 * Catmull-Rom spline between p1 and p2 (passes through every control point)
+	 * @param p0 : point before p1
+	 * @param p1 : start point
+	 * @param p2 : end point
+	 * @param p3 : point after p2
+	 * @param t : position between p1 and p2
+	 * @param dest : Vertex2f receiving the result
+	 * @return dest
+	 */
+	public static Vertex2f catmullRom(Vertex2f p0, Vertex2f p1, Vertex2f p2, Vertex2f p3, float t, Vertex2f dest) {
+		float t2 = t*t, t3 = t2*t;
+		float c0 = 0.5f*(-t3 + 2*t2 - t), c1 = 0.5f*(3*t3 - 5*t2 + 2), c2 = 0.5f*(-3*t3 + 4*t2 + t), c3 = 0.5f*(t3 - t2);
+
+		dest.x = c0*p0.x + c1*p1.x + c2*p2.x + c3*p3.x;
+		dest.y = c0*p0.y + c1*p1.y + c2*p2.y + c3*p3.y;
+		return dest;
+	}
+
+	/**
+	 * Catmull-Rom spline between p1 and p2 (passes through every control point)
+	 * @param p0 : point before p1
+	 * @param p1 : start point
+	 * @param p2 : end point
+	 * @param p3 : point after p2
+	 * @param t : position between p1 and p2
+	 * @param dest : Vertex3f receiving the result
+	 * @return dest
+	 */
+	public static Vertex3f catmullRom(Vertex3f p0, Vertex3f p1, Vertex3f p2, Vertex3f p3, float t, Vertex3f dest) {
+		float t2 = t*t, t3 = t2*t;
+		float c0 = 0.5f*(-t3 + 2*t2 - t), c1 = 0.5f*(3*t3 - 5*t2 + 2), c2 = 0.5f*(-3*t3 + 4*t2 + t), c3 = 0.5f*(t3 - t2);
+
+		dest.x = c0*p0.x + c1*p1.x + c2*p2.x + c3*p3.x;
+		dest.y = c0*p0.y + c1*p1.y + c2*p2.y + c3*p3.y;
+		dest.z = c0*p0.z + c1*p1.z + c2*p2.z + c3*p3.z;
+		return dest;
+	}
+
+	/**
+	 * Catmull-Rom spline between p1 and p2 (passes through every control point)
+	 * @param p0 : point before p1
+	 * @param p1 : start point
+	 * @param p2 : end point
+	 * @param p3 : point after p2
+	 * @param t : position between p1 and p2
+	 * @param dest : Vertex4f receiving the result
+	 * @return dest
+	 */
+	public static Vertex4f catmullRom(Vertex4f p0, Vertex4f p1, Vertex4f p2, Vertex4f p3, float t, Vertex4f dest) {
+		float t2 = t*t, t3 = t2*t;
+		float c0 = 0.5f*(-t3 + 2*t2 - t), c1 = 0.5f*(3*t3 - 5*t2 + 2), c2 = 0.5f*(-3*t3 + 4*t2 + t), c3 = 0.5f*(t3 - t2);
+
+		dest.x = c0*p0.x + c1*p1.x + c2*p2.x + c3*p3.x;
+		dest.y = c0*p0.y + c1*p1.y + c2*p2.y + c3*p3.y;
+		dest.z = c0*p0.z + c1*p1.z + c2*p2.z + c3*p3.z;
+		dest.w = c0*p0.w + c1*p1.w + c2*p2.w + c3*p3.w;
+		return dest;
+	}
+
+	/**
+	 * Cubic Bezier curve from p0 to p3
+	 * @param p0 : start point
+	 * @param p1 : first control point
+	 * @param p2 : second control point
+	 * @param p3 : end point
+	 * @param t : position on the curve
+	 * @param dest : Vertex2f receiving the result
+	 * @return dest
+	 */
+	public static Vertex2f bezier(Vertex2f p0, Vertex2f p1, Vertex2f p2, Vertex2f p3, float t, Vertex2f dest) {
+		float u = 1 - t;
+		float b0 = u*u*u, b1 = 3*u*u*t, b2 = 3*u*t*t, b3 = t*t*t;
+
+		dest.x = b0*p0.x + b1*p1.x + b2*p2.x + b3*p3.x;
+		dest.y = b0*p0.y + b1*p1.y + b2*p2.y + b3*p3.y;
+		return dest;
+	}
+
+	/**
+	 * Cubic Bezier curve from p0 to p3
+	 * @param p0 : start point
+	 * @param p1 : first control point
+	 * @param p2 : second control point
+	 * @param p3 : end point
+	 * @param t : position on the curve
+	 * @param dest : Vertex3f receiving the result
+	 * @return dest
+	 */
+	public static Vertex3f bezier(Vertex3f p0, Vertex3f p1, Vertex3f p2, Vertex3f p3, float t, Vertex3f dest) {
+		float u = 1 - t;
+		float b0 = u*u*u, b1 = 3*u*u*t, b2 = 3*u*t*t, b3 = t*t*t;
+
+		dest.x = b0*p0.x + b1*p1.x + b2*p2.x + b3*p3.x;
+		dest.y = b0*p0.y + b1*p1.y + b2*p2.y + b3*p3.y;
+		dest.z = b0*p0.z + b1*p1.z + b2*p2.z + b3*p3.z;
+		return dest;
+	}
+
+	/**
+	 * Cubic Bezier curve from p0 to p3
+	 * @param p0 : start point
+	 * @param p1 : first control point
+	 * @param p2 : second control point
+	 * @param p3 : end point
+	 * @param t : position on the curve
+	 * @param dest : Vertex4f receiving the result
+	 * @return dest
+	 */
+	public static Vertex4f bezier(Vertex4f p0, Vertex4f p1, Vertex4f p2, Vertex4f p3, float t, Vertex4f dest) {
+		float u = 1 - t;
+		float b0 = u*u*u, b1 = 3*u*u*t, b2 = 3*u*t*t, b3 = t*t*t;
+
+		dest.x = b0*p0.x + b1*p1.x + b2*p2.x + b3*p3.x;
+		dest.y = b0*p0.y + b1*p1.y + b2*p2.y + b3*p3.y;
+		dest.z = b0*p0.z + b1*p1.z + b2*p2.z + b3*p3.z;
+		dest.w = b0*p0.w + b1*p1.w + b2*p2.w + b3*p3.w;
+		return dest;
+	}
+}
@@ -0,0 +1,472 @@
+package pinzen.utils.mathsfog;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * k-d tree of 2D or 3D points for nearest neighbours and radius queries
+ *
+ * Storage : flat arrays without node objects. The node of a range [lo, hi) of points is its
+ * median m : points before m are below it on the split axis of m, points after m are above it.
+ * Ranges of LEAF_SIZE points or less are not split and are tested one by one.
+ * Queries return indices of points in the array given to build() and don't allocate.
+ *
+ * Static points : build once, query as much as needed (queries can run from many threads).
+ * Moving points : update the array then build again, storage is reused and the previous order
+ * is kept as a starting point (points moving a little stay almost partitioned).
+ */
+public class KdTree {
+
+	private static final int LEAF_SIZE = 8;
+	private static final int PARALLEL_THRESHOLD = 1 << 15;
+
+	private final int dimension;
+	private float[] xs, ys, zs;
+	private int[] index;
+	private byte[] axes;
+	private int size;
+
+	/**
+	 * Create an empty KdTree
+	 * @param dimension : number of components of each point (2 or 3)
+	 */
+	public KdTree(int dimension) {
+		if(dimension != 2 && dimension != 3)
+			throw new IllegalArgumentException("Can't create a KdTree of dimension " + dimension);
+
+		this.dimension = dimension;
+		prepare(0);
+	}
+
+	/**
+	 * @return number of components of each point (2 or 3)
+	 */
+	public int getDimension() {
+		return dimension;
+	}
+
+	/**
+	 * @return number of points in the tree
+	 */
+	public int size() {
+		return size;
+	}
+
+			/** ----- ----- Build ----- ----- **/
+
+	/**
+	 * Build the tree over points stored as raw floats (x1 y1 [z1] x2 y2 [z2] ...)<br>
+	 * Big trees are split in parallel (common ForkJoinPool)
+	 * @param points : components of the points (dimension floats per point, copied)
+	 * @param count : number of points
+	 */
+	public void build(float[] points, int count) {
+		if(count < 0 || (long)count * dimension > points.length)
+			throw new IllegalArgumentException("Can't build a KdTree of " + count + " points from " + points.length + " floats");
+
+		prepare(count);
+		for(int i = 0; i<count; i++) {
+			int p = index[i] * dimension;
+			xs[i] = points[p];
+			ys[i] = points[p+1];
+			zs[i] = dimension == 3 ? points[p+2] : 0;
+		}
+		splitAll();
+	}
+
+	/**
+	 * Build the 2D tree over Vertex2f
+	 * @param points : points (copied)
+	 * @param count : number of points
+	 */
+	public void build(Vertex2f[] points, int count) {
+		if(dimension != 2)
+			throw new IllegalArgumentException("Can't build a KdTree of dimension " + dimension + " from Vertex2f");
+		if(count < 0 || count > points.length)
+			throw new IllegalArgumentException("Can't build a KdTree of " + count + " points from " + points.length + " Vertex2f");
+
+		prepare(count);
+		for(int i = 0; i<count; i++) {
+			Vertex2f p = points[index[i]];
+			xs[i] = p.x;
+			ys[i] = p.y;
+		}
+		splitAll();
+	}
+
+	/**
+	 * Build the 3D tree over Vertex3f
+	 * @param points : points (copied)
+	 * @param count : number of points
+	 */
+	public void build(Vertex3f[] points, int count) {
+		if(dimension != 3)
+			throw new IllegalArgumentException("Can't build a KdTree of dimension " + dimension + " from Vertex3f");
+		if(count < 0 || count > points.length)
+			throw new IllegalArgumentException("Can't build a KdTree of " + count + " points from " + points.length + " Vertex3f");
+
+		prepare(count);
+		for(int i = 0; i<count; i++) {
+			Vertex3f p = points[index[i]];
+			xs[i] = p.x;
+			ys[i] = p.y;
+			zs[i] = p.z;
+		}
+		splitAll();
+	}
+
+	/**
+	 * Make room for count points, keep the previous order when the number of points didn't change
+	 */
+	private void prepare(int count) {
+		boolean keepOrder = count == size;
+		if(index == null || index.length < count) {
+			int capacity = Math.max(count, 16);
+			xs = new float[capacity];
+			ys = new float[capacity];
+			zs = new float[capacity];
+			index = new int[capacity];
+			axes = new byte[capacity];
+			keepOrder = false;
+		}
+
+		if(!keepOrder) {
+			for(int i = 0; i<count; i++) {
+				index[i] = i;
+			}
+		}
+		size = count;
+	}
+
+	private void splitAll() {
+		if(size >= PARALLEL_THRESHOLD)
+			ForkJoinPool.commonPool().invoke(new Split(0, size));
+		else
+			split(0, size);
+	}
+
+	/**
+	 * Split a range in parallel until ranges are small enough to be split by one thread
+	 */
+	private class Split extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int lo, hi;
+
+		Split(int lo, int hi) {
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		protected void compute() {
+			if(hi - lo < PARALLEL_THRESHOLD) {
+				split(lo, hi);
+				return;
+			}
+
+			int m = splitNode(lo, hi);
+			invokeAll(new Split(lo, m), new Split(m + 1, hi));
+		}
+	}
+
+	private void split(int lo, int hi) {
+		while(hi - lo > LEAF_SIZE) {
+			int m = splitNode(lo, hi);
+			split(lo, m);
+			lo = m + 1;
+		}
+	}
+
+	/**
+	 * Choose the widest axis of a range and move its median point at the middle
+	 * @return index of the median (node of the range)
+	 */
+	private int splitNode(int lo, int hi) {
+		float minX = xs[lo], maxX = minX, minY = ys[lo], maxY = minY, minZ = zs[lo], maxZ = minZ;
+		for(int i = lo + 1; i<hi; i++) {
+			minX = Math.min(minX, xs[i]);
+			maxX = Math.max(maxX, xs[i]);
+			minY = Math.min(minY, ys[i]);
+			maxY = Math.max(maxY, ys[i]);
+			minZ = Math.min(minZ, zs[i]);
+			maxZ = Math.max(maxZ, zs[i]);
+		}
+
+		float width = maxX - minX;
+		int axis = 0;
+		if(maxY - minY > width) {
+			width = maxY - minY;
+			axis = 1;
+		}
+		if(maxZ - minZ > width)
+			axis = 2;
+
+		int m = (lo + hi) >>> 1;
+		select(coordinates(axis), lo, hi - 1, m);
+		axes[m] = (byte)axis;
+		return m;
+	}
+
+	/**
+	 * Quickselect : move the k-th smallest coordinate at k, smaller ones before it and bigger ones after it
+	 */
+	private void select(float[] c, int left, int right, int k) {
+		while(right > left) {
+			int mid = (left + right) >>> 1;
+			if(c[mid] < c[left])
+				swap(left, mid);
+			if(c[right] < c[left])
+				swap(left, right);
+			if(c[right] < c[mid])
+				swap(mid, right);
+
+			float pivot = c[mid];
+			int i = left, j = right;
+			while(i <= j) {
+				while(c[i] < pivot)
+					i++;
+				while(c[j] > pivot)
+					j--;
+				if(i <= j)
+					swap(i++, j--);
+			}
+
+			if(k <= j)
+				right = j;
+			else if(k >= i)
+				left = i;
+			else
+				return;
+		}
+	}
+
+	private void swap(int i, int j) {
+		float x = xs[i]; xs[i] = xs[j]; xs[j] = x;
+		float y = ys[i]; ys[i] = ys[j]; ys[j] = y;
+		float z = zs[i]; zs[i] = zs[j]; zs[j] = z;
+		int p = index[i]; index[i] = index[j]; index[j] = p;
+	}
+
+	private float[] coordinates(int axis) {
+		return axis == 0 ? xs : axis == 1 ? ys : zs;
+	}
+
+	private float distanceSquared(int i, float x, float y, float z) {
+		float dx = xs[i] - x, dy = ys[i] - y, dz = zs[i] - z;
+		return dx*dx + dy*dy + dz*dz;
+	}
+
+			/** ----- ----- Nearest Neighbour ----- ----- **/
+
+	/**
+	 * Find the nearest point (z is ignored by 2D trees when 0)
+	 * @return index of the nearest point (smallest index when several are at the same distance), -1 if the tree is empty
+	 */
+	public int nearest(float x, float y, float z) {
+		// distance and index packed in a long : comparing longs compares distances then indices
+		return IndexSort.index(nearest(0, size, x, y, z, IndexSort.pack(Float.POSITIVE_INFINITY, -1)));
+	}
+
+	/**
+	 * Find the nearest point
+	 * @return index of the nearest point, -1 if the tree is empty
+	 */
+	public int nearest(Vertex2f p) {
+		return nearest(p.x, p.y, 0);
+	}
+
+	/**
+	 * Find the nearest point
+	 * @return index of the nearest point, -1 if the tree is empty
+	 */
+	public int nearest(Vertex3f p) {
+		return nearest(p.x, p.y, p.z);
+	}
+
+	private long nearest(int lo, int hi, float x, float y, float z, long best) {
+		if(hi - lo <= LEAF_SIZE) {
+			for(int i = lo; i<hi; i++) {
+				best = Math.min(best, IndexSort.pack(distanceSquared(i, x, y, z), index[i]));
+			}
+			return best;
+		}
+
+		int m = (lo + hi) >>> 1;
+		best = Math.min(best, IndexSort.pack(distanceSquared(m, x, y, z), index[m]));
+
+		int axis = axes[m];
+		float d = (axis == 0 ? x : axis == 1 ? y : z) - coordinates(axis)[m];
+		boolean below = d < 0;
+		best = below ? nearest(lo, m, x, y, z, best) : nearest(m + 1, hi, x, y, z, best);
+		if(d*d <= Float.intBitsToFloat((int)(best >>> 32)))
+			best = below ? nearest(m + 1, hi, x, y, z, best) : nearest(lo, m, x, y, z, best);
+		return best;
+	}
+
+	/**
+	 * Find the k nearest points (z is ignored by 2D trees when 0)
+	 * @param k : number of points to find
+	 * @param destIndices : array receiving indices of the points from the nearest to the farthest (at least k)
+	 * @param destDistances : array receiving squared distances of the points (at least k)
+	 * @return number of points found (k, or size() if the tree has less points)
+	 */
+	public int nearest(float x, float y, float z, int k, int[] destIndices, float[] destDistances) {
+		if(k < 0 || destIndices.length < k || destDistances.length < k)
+			throw new IllegalArgumentException("Can't find " + k + " neighbours in arrays of "
+					+ destIndices.length + " indices and " + destDistances.length + " distances");
+		if(k == 0)
+			return 0;
+
+		// max heap of the k best points, sorted at the end
+		int found = nearest(0, size, x, y, z, k, destIndices, destDistances, 0);
+		for(int end = found - 1; end > 0; end--) {
+			int i = destIndices[0]; destIndices[0] = destIndices[end]; destIndices[end] = i;
+			float d = destDistances[0]; destDistances[0] = destDistances[end]; destDistances[end] = d;
+			siftDown(destIndices, destDistances, end);
+		}
+		return found;
+	}
+
+	/**
+	 * Find the k nearest points
+	 * @see KdTree#nearest(float, float, float, int, int[], float[])
+	 */
+	public int nearest(Vertex2f p, int k, int[] destIndices, float[] destDistances) {
+		return nearest(p.x, p.y, 0, k, destIndices, destDistances);
+	}
+
+	/**
+	 * Find the k nearest points
+	 * @see KdTree#nearest(float, float, float, int, int[], float[])
+	 */
+	public int nearest(Vertex3f p, int k, int[] destIndices, float[] destDistances) {
+		return nearest(p.x, p.y, p.z, k, destIndices, destDistances);
+	}
+
+	private int nearest(int lo, int hi, float x, float y, float z, int k, int[] heapIndices, float[] heapDistances, int found) {
+		if(hi - lo <= LEAF_SIZE) {
+			for(int i = lo; i<hi; i++) {
+				found = offer(i, distanceSquared(i, x, y, z), k, heapIndices, heapDistances, found);
+			}
+			return found;
+		}
+
+		int m = (lo + hi) >>> 1;
+		found = offer(m, distanceSquared(m, x, y, z), k, heapIndices, heapDistances, found);
+
+		int axis = axes[m];
+		float d = (axis == 0 ? x : axis == 1 ? y : z) - coordinates(axis)[m];
+		boolean below = d < 0;
+		found = below ? nearest(lo, m, x, y, z, k, heapIndices, heapDistances, found)
+				: nearest(m + 1, hi, x, y, z, k, heapIndices, heapDistances, found);
+		if(found < k || d*d < heapDistances[0])
+			found = below ? nearest(m + 1, hi, x, y, z, k, heapIndices, heapDistances, found)
+					: nearest(lo, m, x, y, z, k, heapIndices, heapDistances, found);
+		return found;
+	}
+
+	/**
+	 * Add a point to the heap of the k best points if it's nearer than the farthest one
+	 * @return number of points in the heap
+	 */
+	private int offer(int i, float distance, int k, int[] heapIndices, float[] heapDistances, int found) {
+		if(found < k) {
+			int child = found;
+			while(child > 0) {
+				int parent = (child - 1) >>> 1;
+				if(heapDistances[parent] >= distance)
+					break;
+				heapIndices[child] = heapIndices[parent];
+				heapDistances[child] = heapDistances[parent];
+				child = parent;
+			}
+			heapIndices[child] = index[i];
+			heapDistances[child] = distance;
+			return found + 1;
+		}
+
+		if(distance < heapDistances[0]) {
+			heapIndices[0] = index[i];
+			heapDistances[0] = distance;
+			siftDown(heapIndices, heapDistances, k);
+		}
+		return found;
+	}
+
+	private static void siftDown(int[] heapIndices, float[] heapDistances, int count) {
+		int parent = 0, i = heapIndices[0];
+		float distance = heapDistances[0];
+		while(true) {
+			int child = parent*2 + 1;
+			if(child >= count)
+				break;
+			if(child + 1 < count && heapDistances[child + 1] > heapDistances[child])
+				child++;
+			if(heapDistances[child] <= distance)
+				break;
+			heapIndices[parent] = heapIndices[child];
+			heapDistances[parent] = heapDistances[child];
+			parent = child;
+		}
+		heapIndices[parent] = i;
+		heapDistances[parent] = distance;
+	}
+
+			/** ----- ----- Radius ----- ----- **/
+
+	/**
+	 * Find every point at a distance less or equal to radius (z is ignored by 2D trees when 0)
+	 * @param radius : maximum distance
+	 * @param dest : array receiving indices of the points (in no particular order)
+	 * @return number of points found, only the first dest.length ones are written in dest
+	 * (a result bigger than dest.length means dest is too small)
+	 */
+	public int withinRadius(float x, float y, float z, float radius, int[] dest) {
+		return withinRadius(0, size, x, y, z, radius*radius, dest, 0);
+	}
+
+	/**
+	 * Find every point at a distance less or equal to radius
+	 * @see KdTree#withinRadius(float, float, float, float, int[])
+	 */
+	public int withinRadius(Vertex2f p, float radius, int[] dest) {
+		return withinRadius(p.x, p.y, 0, radius, dest);
+	}
+
+	/**
+	 * Find every point at a distance less or equal to radius
+	 * @see KdTree#withinRadius(float, float, float, float, int[])
+	 */
+	public int withinRadius(Vertex3f p, float radius, int[] dest) {
+		return withinRadius(p.x, p.y, p.z, radius, dest);
+	}
+
+	private int withinRadius(int lo, int hi, float x, float y, float z, float radiusSquared, int[] dest, int found) {
+		if(hi - lo <= LEAF_SIZE) {
+			for(int i = lo; i<hi; i++) {
+				if(distanceSquared(i, x, y, z) <= radiusSquared) {
+					if(found < dest.length)
+						dest[found] = index[i];
+					found++;
+				}
+			}
+			return found;
+		}
+
+		int m = (lo + hi) >>> 1;
+		if(distanceSquared(m, x, y, z) <= radiusSquared) {
+			if(found < dest.length)
+				dest[found] = index[m];
+			found++;
+		}
+
+		int axis = axes[m];
+		float d = (axis == 0 ? x : axis == 1 ? y : z) - coordinates(axis)[m];
+		if(d <= 0 || d*d <= radiusSquared)
+			found = withinRadius(lo, m, x, y, z, radiusSquared, dest, found);
+		if(d >= 0 || d*d <= radiusSquared)
+			found = withinRadius(m + 1, hi, x, y, z, radiusSquared, dest, found);
+		return found;
+	}
+}
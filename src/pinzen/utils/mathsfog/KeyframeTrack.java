@@ -0,0 +1,223 @@
+package pinzen.utils.mathsfog;
+
+/**
+ * Animation curve : keys at increasing times, each key holding the same number of float channels
+ * (3 for a position, 4 for a rotation, 7 for both...)
+ *
+ * Keys are stored in flat arrays : times[k] and values[k*channels + c].
+ * Sampling finds the segment of the time starting from the last segment used (time usually moves
+ * forward a little between two samples), then falls back to a binary search.
+ * Times before the first key (after the last key) give the first key (the last key).
+ */
+public class KeyframeTrack {
+
+	/**
+	 * Interpolation between two keys
+	 */
+	public enum Mode {
+		/** Value of the previous key */
+		STEP,
+		/** Straight line between keys */
+		LINEAR,
+		/** Smooth curve through every key (Catmull-Rom on key index) */
+		CATMULL_ROM
+	}
+
+	private final float[] times, values;
+	private final int channels, keyCount;
+	private final Mode mode;
+	private int hint;
+	private final float[] scratch = new float[4];
+
+	/**
+	 * Create a KeyframeTrack (arrays are used directly, not copied)
+	 * @param times : time of each key (increasing)
+	 * @param values : values of each key (channels floats per key)
+	 * @param channels : number of floats per key
+	 * @param mode : interpolation between keys
+	 */
+	public KeyframeTrack(float[] times, float[] values, int channels, Mode mode) {
+		if(times.length == 0 || channels < 1 || values.length < times.length * channels)
+			throw new IllegalArgumentException("Can't create a KeyframeTrack of " + times.length + " keys with "
+					+ values.length + " values for " + channels + " channels");
+		for(int k = 1; k<times.length; k++) {
+			if(!(times[k] > times[k-1]))
+				throw new IllegalArgumentException("Can't create a KeyframeTrack with key " + k + " not after key " + (k-1));
+		}
+
+		this.times = times;
+		this.values = values;
+		this.channels = channels;
+		this.keyCount = times.length;
+		this.mode = mode;
+	}
+
+	public int getChannels() {
+		return channels;
+	}
+
+	public int getKeyCount() {
+		return keyCount;
+	}
+
+	public float getStartTime() {
+		return times[0];
+	}
+
+	public float getEndTime() {
+		return times[keyCount - 1];
+	}
+
+	public Mode getMode() {
+		return mode;
+	}
+
+	/**
+	 * Find the segment containing a time
+	 * @param time : time to find
+	 * @param hint : segment found by a previous call (tested first), any value if unknown
+	 * @return index k of the key such as times[k] <= time < times[k+1]
+	 * (0 before the first key, last key index after the last key)
+	 */
+	public int findSegment(float time, int hint) {
+		if(time <= times[0])
+			return 0;
+		if(time >= times[keyCount - 1])
+			return keyCount - 1;
+
+		// same segment or next one : usual case when time moves forward
+		if(hint >= 0 && hint < keyCount - 1 && times[hint] <= time) {
+			if(time < times[hint + 1])
+				return hint;
+			if(hint + 2 < keyCount && time < times[hint + 2])
+				return hint + 1;
+		}
+
+		int low = 0, high = keyCount - 1;
+		while(high - low > 1) {
+			int mid = (low + high) >>> 1;
+			if(times[mid] <= time)
+				low = mid;
+			else
+				high = mid;
+		}
+		return low;
+	}
+
+	/**
+	 * Sample every channel at a time (uses and updates the hint of this track : not thread safe,
+	 * use sample(time, hint, dest, offset) to share a track between threads or entities)
+	 * @param time : time to sample
+	 * @param dest : array receiving the channels
+	 * @param offset : index of the first channel in dest
+	 */
+	public void sample(float time, float[] dest, int offset) {
+		hint = sample(time, hint, dest, offset);
+	}
+
+	/**
+	 * Sample every channel at a time
+	 * @param time : time to sample
+	 * @param hint : segment returned by the previous sample of the same caller (any value if unknown)
+	 * @param dest : array receiving the channels
+	 * @param offset : index of the first channel in dest
+	 * @return segment of the time, to give as hint of the next sample
+	 */
+	public int sample(float time, int hint, float[] dest, int offset) {
+		int k = findSegment(time, hint);
+		int base = k * channels;
+
+		if(k == keyCount - 1 || mode == Mode.STEP || time <= times[0]) {
+			System.arraycopy(values, base, dest, offset, channels);
+			return k;
+		}
+
+		float t = (time - times[k]) / (times[k+1] - times[k]);
+		int next = base + channels;
+
+		if(mode == Mode.LINEAR) {
+			for(int c = 0; c<channels; c++) {
+				float a = values[base + c];
+				dest[offset + c] = a + t*(values[next + c] - a);
+			}
+			return k;
+		}
+
+		// Catmull-Rom : first and last keys are repeated at the ends
+		int before = k > 0 ? base - channels : base;
+		int after = k + 2 < keyCount ? next + channels : next;
+		float t2 = t*t, t3 = t2*t;
+		float c0 = 0.5f*(-t3 + 2*t2 - t), c1 = 0.5f*(3*t3 - 5*t2 + 2), c2 = 0.5f*(-3*t3 + 4*t2 + t), c3 = 0.5f*(t3 - t2);
+		for(int c = 0; c<channels; c++) {
+			dest[offset + c] = c0*values[before + c] + c1*values[base + c] + c2*values[next + c] + c3*values[after + c];
+		}
+		return k;
+	}
+
+	/**
+	 * Sample a 2 channels track (2D position, UV...) in a Vertex2f
+	 * @param time : time to sample
+	 * @param dest : Vertex2f receiving the value
+	 * @return dest
+	 */
+	public Vertex2f sample(float time, Vertex2f dest) {
+		if(channels != 2)
+			throw new IllegalArgumentException("Can't sample a KeyframeTrack of " + channels + " channels in a Vertex2f");
+
+		sample(time, scratch, 0);
+		dest.x = scratch[0];
+		dest.y = scratch[1];
+		return dest;
+	}
+
+	/**
+	 * Sample a 3 channels track (position, scale...) in a Vertex3f
+	 * @param time : time to sample
+	 * @param dest : Vertex3f receiving the value
+	 * @return dest
+	 */
+	public Vertex3f sample(float time, Vertex3f dest) {
+		if(channels != 3)
+			throw new IllegalArgumentException("Can't sample a KeyframeTrack of " + channels + " channels in a Vertex3f");
+
+		sample(time, scratch, 0);
+		dest.x = scratch[0];
+		dest.y = scratch[1];
+		dest.z = scratch[2];
+		return dest;
+	}
+
+	/**
+	 * Sample a 4 channels track (color, rotation...) in a Vertex4f
+	 * @param time : time to sample
+	 * @param dest : Vertex4f receiving the value
+	 * @return dest
+	 */
+	public Vertex4f sample(float time, Vertex4f dest) {
+		if(channels != 4)
+			throw new IllegalArgumentException("Can't sample a KeyframeTrack of " + channels + " channels in a Vertex4f");
+
+		sample(time, scratch, 0);
+		dest.x = scratch[0];
+		dest.y = scratch[1];
+		dest.z = scratch[2];
+		dest.w = scratch[3];
+		return dest;
+	}
+
+	/**
+	 * Sample many entities in one call : entity i reads the track at sampleTimes[i] and writes its
+	 * channels at dest[i*channels]
+	 * @param sampleTimes : time of each entity
+	 * @param hints : segment hint of each entity (updated), can be null
+	 * @param count : number of entities
+	 * @param dest : array receiving channels of each entity
+	 */
+	public void sampleAll(float[] sampleTimes, int[] hints, int count, float[] dest) {
+		for(int i = 0; i<count; i++) {
+			int h = sample(sampleTimes[i], hints != null ? hints[i] : -1, dest, i * channels);
+			if(hints != null)
+				hints[i] = h;
+		}
+	}
+}
@@ -0,0 +1,224 @@
+package pinzen.utils.mathsfog;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+
+/**
+ * Opt-in instrumentation of the library : counts calls of each Operation and allocations of
+ * Matrix4f and Vertex*f to find which code uses the most maths.
+ *
+ * Enabled with system properties (read once when the class is loaded) :
+ * -Dpinzen.mathsfog.profile=true          count operations
+ * -Dpinzen.mathsfog.profile.sampling=N    also record the caller of 1 call out of N (0 : disabled)
+ * -Dpinzen.mathsfog.profile.jfr=true      also emit JFR events (counters every second and sampled callers),
+ *                                         needs the jdk.jfr module (add --add-modules jdk.jfr on the module path)
+ *
+ * When disabled, ENABLED is a constant false and the JIT removes every instrumentation point.
+ * Results are read with getCount(Operation) or report().
+ */
+public final class MathsProfiler {
+
+	public static final boolean ENABLED = Boolean.getBoolean("pinzen.mathsfog.profile");
+	public static final int SAMPLING = ENABLED ? Integer.getInteger("pinzen.mathsfog.profile.sampling", 0) : 0;
+	public static final boolean JFR = ENABLED && Boolean.getBoolean("pinzen.mathsfog.profile.jfr")
+			&& ModuleLayer.boot().findModule("jdk.jfr").isPresent();
+
+	private static final String PACKAGE = MathsProfiler.class.getPackage().getName() + ".";
+	private static final int MAX_CALL_SITES = 4096;
+
+	/**
+	 * Instrumented operations
+	 */
+	public enum Operation {
+		MATRIX4F_ALLOC, MATRIX4F_MULT, MATRIX4F_TRANSLATE, MATRIX4F_ROTATE, MATRIX4F_SCALE,
+		MATRIX4F_PROJECTION, MATRIX4F_TRANSFORM_POINTS, MATRIX4F_TRANSFORM_BOUNDS, MATRIX4F_BUILD,
+		VERTEX2F_ALLOC, VERTEX2F_NORMALIZE, VERTEX2F_ROTATE,
+		VERTEX3F_ALLOC, VERTEX3F_NORMALIZE,
+		VERTEX4F_ALLOC, VERTEX4F_NORMALIZE,
+		RECTBOUNDS2F_CONTAINS, RECTBOUNDS2F_COLLIDE,
+		CIRCLEBOUNDS2D_CONTAINS, CIRCLEBOUNDS2D_COLLIDE,
+		AABB3F_CONTAINS, AABB3F_COLLIDE,
+		SPHEREBOUNDS3F_CONTAINS, SPHEREBOUNDS3F_COLLIDE
+	}
+
+	private static final Operation[] OPERATIONS = Operation.values();
+	private static final LongAdder[] COUNTERS = new LongAdder[OPERATIONS.length];
+	private static final Map<String, LongAdder> CALL_SITES = new ConcurrentHashMap<>();
+
+	static {
+		for(int i = 0; i<COUNTERS.length; i++) {
+			COUNTERS[i] = new LongAdder();
+		}
+
+		if(JFR)
+			Events.register();
+	}
+
+	private MathsProfiler() {}
+
+	/**
+	 * Count one call of an operation<br>
+	 * Must be called as : if(MathsProfiler.ENABLED) MathsProfiler.count(op);
+	 * @param op : called operation
+	 */
+	static void count(Operation op) {
+		COUNTERS[op.ordinal()].increment();
+
+		if(SAMPLING > 0 && ThreadLocalRandom.current().nextInt(SAMPLING) == 0)
+			sample(op);
+	}
+
+	private static void sample(Operation op) {
+		String caller = StackWalker.getInstance()
+				.walk(frames -> frames.filter(f -> !f.getClassName().startsWith(PACKAGE)).findFirst())
+				.map(f -> f.getClassName() + "." + f.getMethodName() + ":" + f.getLineNumber())
+				.orElse("?");
+
+		String key = op + " @ " + caller;
+		LongAdder counter = CALL_SITES.get(key);
+		if(counter == null && CALL_SITES.size() < MAX_CALL_SITES)
+			counter = CALL_SITES.computeIfAbsent(key, k -> new LongAdder());
+		if(counter != null)
+			counter.increment();
+
+		if(JFR)
+			Events.callSite(op, caller);
+	}
+
+	/**
+	 * Get number of calls of an operation since start (or last reset)
+	 * @param op : operation
+	 * @return number of calls, 0 if profiling is disabled
+	 */
+	public static long getCount(Operation op) {
+		return COUNTERS[op.ordinal()].sum();
+	}
+
+	/**
+	 * Set every counter to 0 and forget sampled callers
+	 */
+	public static void reset() {
+		for(LongAdder counter : COUNTERS) {
+			counter.reset();
+		}
+		CALL_SITES.clear();
+	}
+
+	/**
+	 * Output counters (biggest first) then sampled callers (biggest first) :
+	 * "MathsProfiler :
+	 *  MATRIX4F_MULT   1234
+	 *  ...
+	 * Sampled call sites (1 call out of N) :
+	 *  57   MATRIX4F_MULT @ my.Renderer.draw:42"
+	 */
+	public static String report() {
+		if(!ENABLED)
+			return "MathsProfiler : disabled (use -Dpinzen.mathsfog.profile=true)";
+
+		List<Map.Entry<String, Long>> counts = new ArrayList<>();
+		for(Operation op : OPERATIONS) {
+			long n = getCount(op);
+			if(n > 0)
+				counts.add(new AbstractMap.SimpleEntry<>(op.name(), n));
+		}
+		StringBuilder ret = new StringBuilder("MathsProfiler :\n");
+		appendSorted(ret, counts, false);
+
+		if(SAMPLING > 0) {
+			List<Map.Entry<String, Long>> sites = new ArrayList<>();
+			for(Map.Entry<String, LongAdder> site : CALL_SITES.entrySet()) {
+				sites.add(new AbstractMap.SimpleEntry<>(site.getKey(), site.getValue().sum()));
+			}
+			ret.append("Sampled call sites (1 call out of ").append(SAMPLING).append(") :\n");
+			appendSorted(ret, sites, true);
+		}
+
+		return ret.toString();
+	}
+
+	private static void appendSorted(StringBuilder ret, List<Map.Entry<String, Long>> entries, boolean countFirst) {
+		Collections.sort(entries, (a, b) -> Long.compare(b.getValue(), a.getValue()));
+		for(Map.Entry<String, Long> e : entries) {
+			if(countFirst)
+				ret.append(String.format(" %-12d %s%n", e.getValue(), e.getKey()));
+			else
+				ret.append(String.format(" %-28s %d%n", e.getKey(), e.getValue()));
+		}
+	}
+
+	/**
+	 * JFR events, only loaded when -Dpinzen.mathsfog.profile.jfr=true and jdk.jfr is in the boot layer
+	 */
+	private static class Events {
+
+		@Name("pinzen.mathsfog.OperationCount")
+		@Label("Maths Operation Count")
+		@Category("MathsFOG")
+		@Period("1 s")
+		static class OperationCount extends Event {
+			@Label("Operation")
+			String operation;
+
+			@Label("Calls")
+			long calls;
+		}
+
+		@Name("pinzen.mathsfog.CallSite")
+		@Label("Maths Call Site Sample")
+		@Category("MathsFOG")
+		static class CallSite extends Event {
+			@Label("Operation")
+			String operation;
+
+			@Label("Caller")
+			String caller;
+		}
+
+		private static final long[] LAST = new long[OPERATIONS.length];
+
+		private static void register() {
+			FlightRecorder.addPeriodicEvent(OperationCount.class, Events::emitCounts);
+		}
+
+		/**
+		 * Emit number of calls of each operation since previous period
+		 */
+		private static void emitCounts() {
+			for(Operation op : OPERATIONS) {
+				long total = getCount(op);
+				long calls = total >= LAST[op.ordinal()] ? total - LAST[op.ordinal()] : total;
+				LAST[op.ordinal()] = total;
+
+				if(calls > 0) {
+					OperationCount event = new OperationCount();
+					event.operation = op.name();
+					event.calls = calls;
+					event.commit();
+				}
+			}
+		}
+
+		private static void callSite(Operation op, String caller) {
+			CallSite event = new CallSite();
+			if(event.isEnabled()) {
+				event.operation = op.name();
+				event.caller = caller;
+				event.commit();
+			}
+		}
+	}
+}
@@ -1,5 +1,10 @@
 package pinzen.utils.mathsfog;
 
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+import pinzen.utils.mathsfog.MathsProfiler.Operation;
+
 /**
  * Represents a Matrix 4x4 of float
  * 
@@ -16,11 +21,15 @@ package pinzen.utils.mathsfog;
 public class Matrix4f {
 
 	private float[] mat;
+	private boolean readOnly;
 	
 	/**
 	 * Identity Matrix4f
 	 */
 	public Matrix4f() {
+		if(MathsProfiler.ENABLED)
+			MathsProfiler.count(Operation.MATRIX4F_ALLOC);
+		
 		mat = new float[16];
 		
 		for(int i = 0; i<16; i++) {
@@ -31,6 +40,90 @@ public class Matrix4f {
 		}
 	}
 	
+	/**
+	 * Clone this Matrix4f (return a new Matrix4f with the same elements)
+	 */
+	public Matrix4f clone() {
+		Matrix4f m = new Matrix4f();
+		m.load(mat, 0);
+		return m;
+	}
+	
+	/**
+	 * Get a read only copy of this Matrix4f (set, load... throw an UnsupportedOperationException)<br>
+	 * Useful to share a Matrix4f (cache, constants) without defensive copies
+	 * @return new read only Matrix4f with the same elements
+	 */
+	public Matrix4f toReadOnly() {
+		Matrix4f m = clone();
+		m.readOnly = true;
+		return m;
+	}
+	
+	/**
+	 * @return true if this Matrix4f can't be modified
+	 */
+	public boolean isReadOnly() {
+		return readOnly;
+	}
+	
+	private void checkWritable() {
+		if(readOnly)
+			throw new UnsupportedOperationException("Can't modify a read only Matrix4f");
+	}
+	
+	/**
+	 * Set every element to 0 (checks that this Matrix4f can be modified)
+	 * @return elements of this Matrix4f
+	 */
+	private float[] clear() {
+		checkWritable();
+		Arrays.fill(mat, 0);
+		return mat;
+	}
+	
+	/**
+	 * Exact equality : every element is == (NaN equals NaN, 0 equals -0)
+	 */
+	public boolean equals(Object o) {
+		if(this == o)
+			return true;
+		if(!(o instanceof Matrix4f))
+			return false;
+		
+		float[] other = ((Matrix4f)o).mat;
+		for(int i = 0; i<16; i++) {
+			if(mat[i] != other[i] && !(mat[i] != mat[i] && other[i] != other[i]))
+				return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Approximate equality
+	 * @param m : Matrix4f to compare
+	 * @param epsilon : maximum difference between two elements
+	 * @return true if every element of m is in [element - epsilon, element + epsilon]
+	 */
+	public boolean equals(Matrix4f m, float epsilon) {
+		for(int i = 0; i<16; i++) {
+			if(!(Math.abs(mat[i] - m.mat[i]) <= epsilon))
+				return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Hash of the 16 elements, consistent with equals(Object) and stable between runs
+	 */
+	public int hashCode() {
+		int hash = 1;
+		for(int i = 0; i<16; i++) {
+			hash = 31*hash + (mat[i] == 0 ? 0 : Float.floatToIntBits(mat[i]));
+		}
+		return hash;
+	}
+	
 	/**
 	 * Output :
 	 * "Matrix4f :
@@ -126,8 +219,260 @@ public class Matrix4f {
 		if(index < 0 || index > 15)
 			throw new ArrayIndexOutOfBoundsException("Can't reach Matrix4f[" + line + "][" + col + "]");
 		
+		checkWritable();
 		mat[index] = val;
 	}
+
+	/**
+	 * Copy the 16 elements of this Matrix4f in an existing array (column major)
+	 * @param dest : array receiving the elements
+	 * @param offset : index of m11 in dest
+	 */
+	public void store(float[] dest, int offset) {
+		System.arraycopy(mat, 0, dest, offset, 16);
+	}
+
+	/**
+	 * Copy the 16 elements of this Matrix4f in a FloatBuffer (column major)<br>
+	 * Uses absolute indexing : the position of the buffer is not modified
+	 * @param dest : buffer receiving the elements
+	 * @param offset : index of m11 in dest
+	 */
+	public void store(FloatBuffer dest, int offset) {
+		for(int i = 0; i<16; i++) {
+			dest.put(offset + i, mat[i]);
+		}
+	}
+
+	/**
+	 * Set the 16 elements of this Matrix4f from an array (column major)
+	 * @param src : array containing the elements
+	 * @param offset : index of m11 in src
+	 */
+	public void load(float[] src, int offset) {
+		checkWritable();
+		System.arraycopy(src, offset, mat, 0, 16);
+	}
+
+	/**
+	 * Set the 16 elements of this Matrix4f from a FloatBuffer (column major)<br>
+	 * Uses absolute indexing : the position of the buffer is not modified
+	 * @param src : buffer containing the elements
+	 * @param offset : index of m11 in src
+	 */
+	public void load(FloatBuffer src, int offset) {
+		checkWritable();
+		for(int i = 0; i<16; i++) {
+			mat[i] = src.get(offset + i);
+		}
+	}
+
+	/**
+	 * Transform points stored in a flat array by this Matrix4f (points are used with w = 1)<br>
+	 * Results are divided by w when this Matrix4f is a projection (line 4 different from 0 0 0 1)
+	 * @param points : flat array of points (x1 y1 z1 x2 y2 z2 ...), modified in place
+	 * @param offset : index of x1 in points
+	 * @param count : number of points
+	 */
+	public void transformPoints(float[] points, int offset, int count) {
+		if(MathsProfiler.ENABLED)
+			MathsProfiler.count(Operation.MATRIX4F_TRANSFORM_POINTS);
+
+		float m11 = mat[0], m21 = mat[1], m31 = mat[2], m41 = mat[3];
+		float m12 = mat[4], m22 = mat[5], m32 = mat[6], m42 = mat[7];
+		float m13 = mat[8], m23 = mat[9], m33 = mat[10], m43 = mat[11];
+		float m14 = mat[12], m24 = mat[13], m34 = mat[14], m44 = mat[15];
+		boolean affine = m41 == 0 && m42 == 0 && m43 == 0 && m44 == 1;
+
+		int end = offset + count*3;
+		for(int i = offset; i<end; i+=3) {
+			float x = points[i], y = points[i+1], z = points[i+2];
+			float rx = m11*x + m12*y + m13*z + m14;
+			float ry = m21*x + m22*y + m23*z + m24;
+			float rz = m31*x + m32*y + m33*z + m34;
+
+			if(!affine) {
+				float w = 1f / (m41*x + m42*y + m43*z + m44);
+				rx *= w;
+				ry *= w;
+				rz *= w;
+			}
+
+			points[i] = rx;
+			points[i+1] = ry;
+			points[i+2] = rz;
+		}
+	}
+
+	/**
+	 * Transform a point by this Matrix4f (point used with w = 1, result divided by w)
+	 * @param x : X component of the point
+	 * @param y : Y component of the point
+	 * @param z : Z component of the point
+	 * @param dest : Vertex3f receiving the transformed point
+	 * @return dest
+	 */
+	public Vertex3f transformPoint(float x, float y, float z, Vertex3f dest) {
+		float w = mat[3]*x + mat[7]*y + mat[11]*z + mat[15];
+		float rx = mat[0]*x + mat[4]*y + mat[8]*z + mat[12];
+		float ry = mat[1]*x + mat[5]*y + mat[9]*z + mat[13];
+		float rz = mat[2]*x + mat[6]*y + mat[10]*z + mat[14];
+		
+		if(w != 1) {
+			w = 1f / w;
+			rx *= w;
+			ry *= w;
+			rz *= w;
+		}
+		
+		dest.x = rx;
+		dest.y = ry;
+		dest.z = rz;
+		return dest;
+	}
+
+	/**
+	 * Bounds of a box transformed by this affine Matrix4f (Arvo's method : center transformed,
+	 * half size projected with absolute values, no corner) (line 4 is ignored)
+	 * @param src : box to transform
+	 * @param dest : AABB3f receiving the smallest box containing the transformed box (can be src)
+	 * @return dest
+	 */
+	public AABB3f transformBounds(AABB3f src, AABB3f dest) {
+		if(MathsProfiler.ENABLED)
+			MathsProfiler.count(Operation.MATRIX4F_TRANSFORM_BOUNDS);
+
+		float cx = (src.min.x + src.max.x) * 0.5f, cy = (src.min.y + src.max.y) * 0.5f, cz = (src.min.z + src.max.z) * 0.5f;
+		float ex = (src.max.x - src.min.x) * 0.5f, ey = (src.max.y - src.min.y) * 0.5f, ez = (src.max.z - src.min.z) * 0.5f;
+
+		float x = mat[0]*cx + mat[4]*cy + mat[8]*cz + mat[12];
+		float y = mat[1]*cx + mat[5]*cy + mat[9]*cz + mat[13];
+		float z = mat[2]*cx + mat[6]*cy + mat[10]*cz + mat[14];
+		float rx = Math.abs(mat[0])*ex + Math.abs(mat[4])*ey + Math.abs(mat[8])*ez;
+		float ry = Math.abs(mat[1])*ex + Math.abs(mat[5])*ey + Math.abs(mat[9])*ez;
+		float rz = Math.abs(mat[2])*ex + Math.abs(mat[6])*ey + Math.abs(mat[10])*ez;
+
+		return dest.set(x - rx, y - ry, z - rz, x + rx, y + ry, z + rz);
+	}
+
+	/**
+	 * Bounds of a rect (at z = 0) transformed by this affine Matrix4f (Arvo's method, see transformBounds(AABB3f, AABB3f))
+	 * @param src : rect to transform
+	 * @param dest : RectBounds2f receiving the smallest rect containing the transformed rect (can be src)
+	 * @return dest
+	 */
+	public RectBounds2f transformBounds(RectBounds2f src, RectBounds2f dest) {
+		if(MathsProfiler.ENABLED)
+			MathsProfiler.count(Operation.MATRIX4F_TRANSFORM_BOUNDS);
+
+		float ex = src.dimension.x * 0.5f, ey = src.dimension.y * 0.5f;
+		float cx = src.position.x + ex, cy = src.position.y + ey;
+
+		float x = mat[0]*cx + mat[4]*cy + mat[12];
+		float y = mat[1]*cx + mat[5]*cy + mat[13];
+		float rx = Math.abs(mat[0])*ex + Math.abs(mat[4])*ey;
+		float ry = Math.abs(mat[1])*ex + Math.abs(mat[5])*ey;
+
+		dest.position.x = x - rx;
+		dest.position.y = y - ry;
+		dest.dimension.x = rx * 2;
+		dest.dimension.y = ry * 2;
+		return dest;
+	}
+
+	/**
+	 * Decompose this affine Matrix4f into translation * rotation * scale (no allocation)<br>
+	 * Scales are taken positive : see decompose(translation, rotation, scale, true) for mirrored matrices
+	 * @param translation : Vertex3f receiving the translation (can be null)
+	 * @param rotation : Vertex4f receiving the rotation as a unit quaternion (x y z w) (can be null)
+	 * @param scale : Vertex3f receiving the scale on each axis (can be null)
+	 */
+	public void decompose(Vertex3f translation, Vertex4f rotation, Vertex3f scale) {
+		decompose(translation, rotation, scale, false);
+	}
+	
+	/**
+	 * Decompose this affine Matrix4f into translation * rotation * scale (no allocation)<br>
+	 * The matrix must not contain shear (product of translations, rotations and scales with
+	 * the scales applied first), compose() gives the matrix back
+	 * @param translation : Vertex3f receiving the translation (can be null)
+	 * @param rotation : Vertex4f receiving the rotation as a unit quaternion (x y z w) (can be null)
+	 * @param scale : Vertex3f receiving the scale on each axis (can be null)
+	 * @param negativeScale : true to detect mirrored matrices (negative determinant) and give a negative X scale,
+	 * false to save a determinant when scales are known to be positive
+	 */
+	public void decompose(Vertex3f translation, Vertex4f rotation, Vertex3f scale, boolean negativeScale) {
+		if(translation != null) {
+			translation.x = mat[12];
+			translation.y = mat[13];
+			translation.z = mat[14];
+		}
+		
+		float r11 = mat[0], r21 = mat[1], r31 = mat[2];
+		float r12 = mat[4], r22 = mat[5], r32 = mat[6];
+		float r13 = mat[8], r23 = mat[9], r33 = mat[10];
+		
+		float sx = (float)Math.sqrt(r11*r11 + r21*r21 + r31*r31);
+		float sy = (float)Math.sqrt(r12*r12 + r22*r22 + r32*r32);
+		float sz = (float)Math.sqrt(r13*r13 + r23*r23 + r33*r33);
+		
+		if(negativeScale) {
+			float det = r11*(r22*r33 - r32*r23) - r12*(r21*r33 - r31*r23) + r13*(r21*r32 - r31*r22);
+			if(det < 0)
+				sx = -sx;
+		}
+		
+		if(scale != null) {
+			scale.x = sx;
+			scale.y = sy;
+			scale.z = sz;
+		}
+		if(rotation == null)
+			return;
+		
+		// columns divided by scales : rotation matrix
+		float ix = sx != 0 ? 1f/sx : 0, iy = sy != 0 ? 1f/sy : 0, iz = sz != 0 ? 1f/sz : 0;
+		r11 *= ix; r21 *= ix; r31 *= ix;
+		r12 *= iy; r22 *= iy; r32 *= iy;
+		r13 *= iz; r23 *= iz; r33 *= iz;
+		
+		// quaternion from the biggest of w, x, y, z (stable for every angle)
+		float trace = r11 + r22 + r33;
+		float x, y, z, w;
+		if(trace > 0) {
+			float s = 0.5f / (float)Math.sqrt(trace + 1);
+			w = 0.25f / s;
+			x = (r32 - r23) * s;
+			y = (r13 - r31) * s;
+			z = (r21 - r12) * s;
+		}
+		else if(r11 > r22 && r11 > r33) {
+			float s = 2 * (float)Math.sqrt(1 + r11 - r22 - r33);
+			w = (r32 - r23) / s;
+			x = 0.25f * s;
+			y = (r12 + r21) / s;
+			z = (r13 + r31) / s;
+		}
+		else if(r22 > r33) {
+			float s = 2 * (float)Math.sqrt(1 + r22 - r11 - r33);
+			w = (r13 - r31) / s;
+			x = (r12 + r21) / s;
+			y = 0.25f * s;
+			z = (r23 + r32) / s;
+		}
+		else {
+			float s = 2 * (float)Math.sqrt(1 + r33 - r11 - r22);
+			w = (r21 - r12) / s;
+			x = (r13 + r31) / s;
+			y = (r23 + r32) / s;
+			z = 0.25f * s;
+		}
+		
+		rotation.x = x;
+		rotation.y = y;
+		rotation.z = z;
+		rotation.w = w;
+	}
 	
 	
 			/** ----- ----- Static Functions ----- ----- **/
@@ -240,34 +585,225 @@ public class Matrix4f {
 	 * @return a Matrix4f representing the orthographic projection
 	 */
 	public static Matrix4f getOrtho(float left, float bottom, float right, float top, float near, float far) {
-		Matrix4f m = new Matrix4f();
+		return getOrtho(left, bottom, right, top, near, far, new Matrix4f());
+	}
+	
+	/**
+	 * Get an orthographic projection in an existing Matrix4f (no allocation)
+	 * @param dest : Matrix4f receiving the projection
+	 * @return dest
+	 * @see #getOrtho(float, float, float, float, float, float)
+	 */
+	public static Matrix4f getOrtho(float left, float bottom, float right, float top, float near, float far, Matrix4f dest) {
+		if(MathsProfiler.ENABLED)
+			MathsProfiler.count(Operation.MATRIX4F_PROJECTION);
 		
-		m.set(1, 1, 2f/(right-left));
-		m.set(2, 2, 2f/(top-bottom));
-		m.set(3, 3, -2f/(far-near));
+		float[] d = dest.clear();
 		
-		m.set(1, 4, -(right+left)/(right-left));
-		m.set(2, 4, -(top+bottom)/(top-bottom));
-		m.set(3, 4, -(far+near)/(far-near));
+		d[0] = 2f/(right-left);
+		d[5] = 2f/(top-bottom);
+		d[10] = -2f/(far-near);
 		
-		return m;
+		d[12] = -(right+left)/(right-left);
+		d[13] = -(top+bottom)/(top-bottom);
+		d[14] = -(far+near)/(far-near);
+		d[15] = 1;
+		
+		return dest;
 	}
 	
+	/**
+	 * Get a perspective projection<br>
+	 * Left handed : the camera looks toward +Z (see lookAt), depth in [-1, 1] from zNear to zFar
+	 * @param fov : vertical field of view in degrees
+	 * @param aspect : width / height of the viewport
+	 * @param zNear : distance of the near plane (> 0)
+	 * @param zFar : distance of the far plane
+	 * @return a Matrix4f representing the perspective projection
+	 */
 	public static Matrix4f getPerspective(float fov, float aspect, float zNear, float zFar) {
-		Matrix4f m = new Matrix4f();
+		return getPerspective(fov, aspect, zNear, zFar, new Matrix4f());
+	}
+	
+	/**
+	 * Get a perspective projection in an existing Matrix4f (no allocation)
+	 * @param dest : Matrix4f receiving the projection
+	 * @return dest
+	 * @see #getPerspective(float, float, float, float)
+	 */
+	public static Matrix4f getPerspective(float fov, float aspect, float zNear, float zFar, Matrix4f dest) {
+		float tanFov = (float)Math.tan(fov / 2f * Math.PI / 180f);
+		float[] d = perspective(dest, aspect, tanFov);
+		
+		d[10] = (-zNear - zFar) / (zNear - zFar);
+		d[14] = (2f * zFar * zNear) / (zNear - zFar);
+		
+		return dest;
+	}
+	
+	/**
+	 * Get a perspective projection without far plane (in an existing Matrix4f)<br>
+	 * Depth in [-1, 1] from zNear to infinity
+	 * @param fov : vertical field of view in degrees
+	 * @param aspect : width / height of the viewport
+	 * @param zNear : distance of the near plane (> 0)
+	 * @param dest : Matrix4f receiving the projection
+	 * @return dest
+	 */
+	public static Matrix4f getInfinitePerspective(float fov, float aspect, float zNear, Matrix4f dest) {
+		float tanFov = (float)Math.tan(fov / 2f * Math.PI / 180f);
+		float[] d = perspective(dest, aspect, tanFov);
 		
+		d[10] = 1;
+		d[14] = -2f * zNear;
+		
+		return dest;
+	}
+	
+	/**
+	 * Get a reversed Z perspective projection (in an existing Matrix4f)<br>
+	 * Depth in [0, 1] from zFar (0) to zNear (1) : float precision of the depth buffer is spread
+	 * evenly over the distance. Needs a [0, 1] clip space (glClipControl(GL_LOWER_LEFT, GL_ZERO_TO_ONE)),
+	 * a depth cleared to 0 and a GL_GREATER depth test
+	 * @param fov : vertical field of view in degrees
+	 * @param aspect : width / height of the viewport
+	 * @param zNear : distance of the near plane (> 0)
+	 * @param zFar : distance of the far plane, can be Float.POSITIVE_INFINITY
+	 * @param dest : Matrix4f receiving the projection
+	 * @return dest
+	 */
+	public static Matrix4f getReversedPerspective(float fov, float aspect, float zNear, float zFar, Matrix4f dest) {
 		float tanFov = (float)Math.tan(fov / 2f * Math.PI / 180f);
+		float[] d = perspective(dest, aspect, tanFov);
 		
-		m.set(1, 1, 1f / (aspect * tanFov));
-		m.set(2, 2, 1f / (tanFov));
-		m.set(3, 3, (-zNear - zFar) / (zNear - zFar));
-		m.set(4, 4, 0f);
+		if(zFar == Float.POSITIVE_INFINITY) {
+			d[10] = 0;
+			d[14] = zNear;
+		}
+		else {
+			d[10] = zNear / (zNear - zFar);
+			d[14] = zNear * zFar / (zFar - zNear);
+		}
 		
-		m.set(3, 4, (2f * zFar * zNear) / (zNear - zFar));
+		return dest;
+	}
+	
+	/**
+	 * Get an off-centre perspective projection (in an existing Matrix4f) : asymmetric frustum for
+	 * stereo rendering, portals or tiled rendering<br>
+	 * Left handed like getPerspective, depth in [-1, 1] from near to far
+	 * @param left : left limit on the near plane
+	 * @param bottom : bottom limit on the near plane
+	 * @param right : right limit on the near plane
+	 * @param top : top limit on the near plane
+	 * @param near : distance of the near plane (> 0)
+	 * @param far : distance of the far plane
+	 * @param dest : Matrix4f receiving the projection
+	 * @return dest
+	 */
+	public static Matrix4f getFrustum(float left, float bottom, float right, float top, float near, float far, Matrix4f dest) {
+		if(MathsProfiler.ENABLED)
+			MathsProfiler.count(Operation.MATRIX4F_PROJECTION);
 		
-		m.set(4, 3, 1f);
+		float[] d = dest.clear();
 		
-		return m;
+		d[0] = 2f * near / (right - left);
+		d[5] = 2f * near / (top - bottom);
+		d[8] = -(right + left) / (right - left);
+		d[9] = -(top + bottom) / (top - bottom);
+		d[10] = (far + near) / (far - near);
+		d[11] = 1;
+		d[14] = -2f * far * near / (far - near);
+		
+		return dest;
+	}
+	
+	/**
+	 * Set X and Y scales and w = z of a symmetric perspective
+	 */
+	private static float[] perspective(Matrix4f dest, float aspect, float tanFov) {
+		if(MathsProfiler.ENABLED)
+			MathsProfiler.count(Operation.MATRIX4F_PROJECTION);
+		
+		float[] d = dest.clear();
+		d[0] = 1f / (aspect * tanFov);
+		d[5] = 1f / tanFov;
+		d[11] = 1;
+		return d;
+	}
+	
+	/**
+	 * Get a view matrix (camera placed at eye looking at target) in an existing Matrix4f<br>
+	 * Left handed like getPerspective : target is toward +Z, up toward +Y
+	 * @param eye : position of the camera
+	 * @param target : point looked at
+	 * @param up : up direction of the camera (not parallel to target - eye)
+	 * @param dest : Matrix4f receiving the view
+	 * @return dest
+	 */
+	public static Matrix4f lookAt(Vertex3f eye, Vertex3f target, Vertex3f up, Matrix4f dest) {
+		dest.checkWritable();
+		
+		// forward
+		float fx = target.x - eye.x, fy = target.y - eye.y, fz = target.z - eye.z;
+		float inv = 1f / (float)Math.sqrt(fx*fx + fy*fy + fz*fz);
+		fx *= inv; fy *= inv; fz *= inv;
+		
+		// side = up x forward
+		float sx = up.y*fz - up.z*fy, sy = up.z*fx - up.x*fz, sz = up.x*fy - up.y*fx;
+		inv = 1f / (float)Math.sqrt(sx*sx + sy*sy + sz*sz);
+		sx *= inv; sy *= inv; sz *= inv;
+		
+		// true up = forward x side
+		float ux = fy*sz - fz*sy, uy = fz*sx - fx*sz, uz = fx*sy - fy*sx;
+		
+		float[] d = dest.mat;
+		d[0] = sx; d[4] = sy; d[8] = sz;  d[12] = -(sx*eye.x + sy*eye.y + sz*eye.z);
+		d[1] = ux; d[5] = uy; d[9] = uz;  d[13] = -(ux*eye.x + uy*eye.y + uz*eye.z);
+		d[2] = fx; d[6] = fy; d[10] = fz; d[14] = -(fx*eye.x + fy*eye.y + fz*eye.z);
+		d[3] = 0;  d[7] = 0;  d[11] = 0;  d[15] = 1;
+		return dest;
+	}
+	
+	/**
+	 * Multiply a projection by an affine view (projection * view) in an existing Matrix4f<br>
+	 * Faster than mult : last line of the view (0 0 0 1) isn't read
+	 * @param projection : any projection
+	 * @param view : affine view matrix (lookAt, rotations, translations)
+	 * @param dest : Matrix4f receiving projection * view (can be projection or view)
+	 * @return dest
+	 */
+	public static Matrix4f viewProjection(Matrix4f projection, Matrix4f view, Matrix4f dest) {
+		if(MathsProfiler.ENABLED)
+			MathsProfiler.count(Operation.MATRIX4F_MULT);
+		
+		dest.checkWritable();
+		float[] p = projection.mat, v = view.mat, d = dest.mat;
+		
+		float p0 = p[0], p1 = p[1], p2 = p[2], p3 = p[3];
+		float p4 = p[4], p5 = p[5], p6 = p[6], p7 = p[7];
+		float p8 = p[8], p9 = p[9], p10 = p[10], p11 = p[11];
+		float p12 = p[12], p13 = p[13], p14 = p[14], p15 = p[15];
+		float v0 = v[0], v1 = v[1], v2 = v[2], v4 = v[4], v5 = v[5], v6 = v[6];
+		float v8 = v[8], v9 = v[9], v10 = v[10], v12 = v[12], v13 = v[13], v14 = v[14];
+		
+		d[0]  = p0*v0 + p4*v1 + p8*v2;
+		d[1]  = p1*v0 + p5*v1 + p9*v2;
+		d[2]  = p2*v0 + p6*v1 + p10*v2;
+		d[3]  = p3*v0 + p7*v1 + p11*v2;
+		d[4]  = p0*v4 + p4*v5 + p8*v6;
+		d[5]  = p1*v4 + p5*v5 + p9*v6;
+		d[6]  = p2*v4 + p6*v5 + p10*v6;
+		d[7]  = p3*v4 + p7*v5 + p11*v6;
+		d[8]  = p0*v8 + p4*v9 + p8*v10;
+		d[9]  = p1*v8 + p5*v9 + p9*v10;
+		d[10] = p2*v8 + p6*v9 + p10*v10;
+		d[11] = p3*v8 + p7*v9 + p11*v10;
+		d[12] = p0*v12 + p4*v13 + p8*v14 + p12;
+		d[13] = p1*v12 + p5*v13 + p9*v14 + p13;
+		d[14] = p2*v12 + p6*v13 + p10*v14 + p14;
+		d[15] = p3*v12 + p7*v13 + p11*v14 + p15;
+		return dest;
 	}
 	
 	/**
@@ -277,6 +813,9 @@ public class Matrix4f {
 	 * @return new Matrix4f result of the multiplication
 	 */
 	public static Matrix4f mult(Matrix4f left, Matrix4f right) {
+		if(MathsProfiler.ENABLED)
+			MathsProfiler.count(Operation.MATRIX4F_MULT);
+		
 		Matrix4f r = new Matrix4f();
 		
 		for(int line = 1; line<=4; line++) {
@@ -294,6 +833,129 @@ public class Matrix4f {
 		return r;
 	}
 	
+	/**
+	 * Multiply two Matrix4f and store the result in an existing Matrix4f (no allocation)<br>
+	 * dest can be left or right
+	 * @param left : left Matrix4f to multiply
+	 * @param right : right Matrix4f to multiply
+	 * @param dest : Matrix4f receiving the result
+	 * @return dest
+	 */
+	public static Matrix4f mult(Matrix4f left, Matrix4f right, Matrix4f dest) {
+		if(MathsProfiler.ENABLED)
+			MathsProfiler.count(Operation.MATRIX4F_MULT);
+		
+		dest.checkWritable();
+		mult(left.mat, right.mat, dest.mat);
+		return dest;
+	}
+	
+	/**
+	 * Multiply two column major 4x4 arrays (dest can be l or r)
+	 */
+	static void mult(float[] l, float[] r, float[] dest) {
+		float l11 = l[0], l21 = l[1], l31 = l[2], l41 = l[3];
+		float l12 = l[4], l22 = l[5], l32 = l[6], l42 = l[7];
+		float l13 = l[8], l23 = l[9], l33 = l[10], l43 = l[11];
+		float l14 = l[12], l24 = l[13], l34 = l[14], l44 = l[15];
+		
+		for(int c = 0; c<16; c+=4) {
+			float r1 = r[c], r2 = r[c+1], r3 = r[c+2], r4 = r[c+3];
+			dest[c]   = l11*r1 + l12*r2 + l13*r3 + l14*r4;
+			dest[c+1] = l21*r1 + l22*r2 + l23*r3 + l24*r4;
+			dest[c+2] = l31*r1 + l32*r2 + l33*r3 + l34*r4;
+			dest[c+3] = l41*r1 + l42*r2 + l43*r3 + l44*r4;
+		}
+	}
+	
+	/**
+	 * Invert a Matrix4f
+	 * @param m : Matrix4f to invert
+	 * @return new Matrix4f inverse of m
+	 * @throws ArithmeticException if m can't be inverted (determinant is 0)
+	 */
+	public static Matrix4f invert(Matrix4f m) {
+		return invert(m, new Matrix4f());
+	}
+	
+	/**
+	 * Invert a Matrix4f and store the result in an existing Matrix4f (no allocation)
+	 * @param m : Matrix4f to invert
+	 * @param dest : Matrix4f receiving the inverse (can be m)
+	 * @return dest
+	 * @throws ArithmeticException if m can't be inverted (determinant is 0)
+	 */
+	public static Matrix4f invert(Matrix4f m, Matrix4f dest) {
+		dest.checkWritable();
+		float[] a = m.mat;
+		
+		float i0  =  a[5]*a[10]*a[15] - a[5]*a[11]*a[14] - a[9]*a[6]*a[15] + a[9]*a[7]*a[14] + a[13]*a[6]*a[11] - a[13]*a[7]*a[10];
+		float i4  = -a[4]*a[10]*a[15] + a[4]*a[11]*a[14] + a[8]*a[6]*a[15] - a[8]*a[7]*a[14] - a[12]*a[6]*a[11] + a[12]*a[7]*a[10];
+		float i8  =  a[4]*a[9]*a[15]  - a[4]*a[11]*a[13] - a[8]*a[5]*a[15] + a[8]*a[7]*a[13] + a[12]*a[5]*a[11] - a[12]*a[7]*a[9];
+		float i12 = -a[4]*a[9]*a[14]  + a[4]*a[10]*a[13] + a[8]*a[5]*a[14] - a[8]*a[6]*a[13] - a[12]*a[5]*a[10] + a[12]*a[6]*a[9];
+		
+		float det = a[0]*i0 + a[1]*i4 + a[2]*i8 + a[3]*i12;
+		if(det == 0 || det != det)
+			throw new ArithmeticException("Can't invert Matrix4f : determinant is " + det);
+		
+		float i1  = -a[1]*a[10]*a[15] + a[1]*a[11]*a[14] + a[9]*a[2]*a[15] - a[9]*a[3]*a[14] - a[13]*a[2]*a[11] + a[13]*a[3]*a[10];
+		float i5  =  a[0]*a[10]*a[15] - a[0]*a[11]*a[14] - a[8]*a[2]*a[15] + a[8]*a[3]*a[14] + a[12]*a[2]*a[11] - a[12]*a[3]*a[10];
+		float i9  = -a[0]*a[9]*a[15]  + a[0]*a[11]*a[13] + a[8]*a[1]*a[15] - a[8]*a[3]*a[13] - a[12]*a[1]*a[11] + a[12]*a[3]*a[9];
+		float i13 =  a[0]*a[9]*a[14]  - a[0]*a[10]*a[13] - a[8]*a[1]*a[14] + a[8]*a[2]*a[13] + a[12]*a[1]*a[10] - a[12]*a[2]*a[9];
+		float i2  =  a[1]*a[6]*a[15]  - a[1]*a[7]*a[14]  - a[5]*a[2]*a[15] + a[5]*a[3]*a[14] + a[13]*a[2]*a[7]  - a[13]*a[3]*a[6];
+		float i6  = -a[0]*a[6]*a[15]  + a[0]*a[7]*a[14]  + a[4]*a[2]*a[15] - a[4]*a[3]*a[14] - a[12]*a[2]*a[7]  + a[12]*a[3]*a[6];
+		float i10 =  a[0]*a[5]*a[15]  - a[0]*a[7]*a[13]  - a[4]*a[1]*a[15] + a[4]*a[3]*a[13] + a[12]*a[1]*a[7]  - a[12]*a[3]*a[5];
+		float i14 = -a[0]*a[5]*a[14]  + a[0]*a[6]*a[13]  + a[4]*a[1]*a[14] - a[4]*a[2]*a[13] - a[12]*a[1]*a[6]  + a[12]*a[2]*a[5];
+		float i3  = -a[1]*a[6]*a[11]  + a[1]*a[7]*a[10]  + a[5]*a[2]*a[11] - a[5]*a[3]*a[10] - a[9]*a[2]*a[7]   + a[9]*a[3]*a[6];
+		float i7  =  a[0]*a[6]*a[11]  - a[0]*a[7]*a[10]  - a[4]*a[2]*a[11] + a[4]*a[3]*a[10] + a[8]*a[2]*a[7]   - a[8]*a[3]*a[6];
+		float i11 = -a[0]*a[5]*a[11]  + a[0]*a[7]*a[9]   + a[4]*a[1]*a[11] - a[4]*a[3]*a[9]  - a[8]*a[1]*a[7]   + a[8]*a[3]*a[5];
+		float i15 =  a[0]*a[5]*a[10]  - a[0]*a[6]*a[9]   - a[4]*a[1]*a[10] + a[4]*a[2]*a[9]  + a[8]*a[1]*a[6]   - a[8]*a[2]*a[5];
+		
+		float inv = 1f / det;
+		float[] d = dest.mat;
+		d[0] = i0*inv;   d[1] = i1*inv;   d[2] = i2*inv;   d[3] = i3*inv;
+		d[4] = i4*inv;   d[5] = i5*inv;   d[6] = i6*inv;   d[7] = i7*inv;
+		d[8] = i8*inv;   d[9] = i9*inv;   d[10] = i10*inv; d[11] = i11*inv;
+		d[12] = i12*inv; d[13] = i13*inv; d[14] = i14*inv; d[15] = i15*inv;
+		return dest;
+	}
+	
+	/**
+	 * Compose translation * rotation * scale (inverse of decompose) in an existing Matrix4f (no allocation)
+	 * @param translation : translation
+	 * @param rotation : rotation as a unit quaternion (x y z w)
+	 * @param scale : scale on each axis
+	 * @param dest : Matrix4f receiving the transformation
+	 * @return dest
+	 */
+	public static Matrix4f compose(Vertex3f translation, Vertex4f rotation, Vertex3f scale, Matrix4f dest) {
+		dest.checkWritable();
+		float x = rotation.x, y = rotation.y, z = rotation.z, w = rotation.w;
+		float sx = scale.x, sy = scale.y, sz = scale.z;
+		float[] d = dest.mat;
+		
+		d[0] = (1 - 2*(y*y + z*z)) * sx;
+		d[1] = 2*(x*y + z*w) * sx;
+		d[2] = 2*(x*z - y*w) * sx;
+		d[3] = 0;
+		
+		d[4] = 2*(x*y - z*w) * sy;
+		d[5] = (1 - 2*(x*x + z*z)) * sy;
+		d[6] = 2*(y*z + x*w) * sy;
+		d[7] = 0;
+		
+		d[8] = 2*(x*z + y*w) * sz;
+		d[9] = 2*(y*z - x*w) * sz;
+		d[10] = (1 - 2*(x*x + y*y)) * sz;
+		d[11] = 0;
+		
+		d[12] = translation.x;
+		d[13] = translation.y;
+		d[14] = translation.z;
+		d[15] = 1;
+		return dest;
+	}
+	
 	/**
 	 * Translate a Matrix4f using a translation Vertex3f
 	 * @param origin : the Matrix4f to translate
@@ -301,6 +963,9 @@ public class Matrix4f {
 	 * @return new translated Matrix4f
 	 */
 	public static Matrix4f translate(Matrix4f origin, Vertex3f trans) {
+		if(MathsProfiler.ENABLED)
+			MathsProfiler.count(Operation.MATRIX4F_TRANSLATE);
+		
 		Matrix4f transMat = getTranslationMatrix(trans);
 		return mult(transMat, origin);
 	}
@@ -323,6 +988,9 @@ public class Matrix4f {
 	 * @return new rotated Matrix4f
 	 */
 	public static Matrix4f rotate(Matrix4f origin, Vertex3f rot, float angle) {
+		if(MathsProfiler.ENABLED)
+			MathsProfiler.count(Operation.MATRIX4F_ROTATE);
+		
 		Matrix4f rotMat = getRotationMatrix(rot, angle);
 		return mult(rotMat, origin);
 	}
@@ -334,6 +1002,9 @@ public class Matrix4f {
 	 * @return new scaled Matrix4f
 	 */
 	public static Matrix4f scale(Matrix4f origin, Vertex3f scales) {
+		if(MathsProfiler.ENABLED)
+			MathsProfiler.count(Operation.MATRIX4F_SCALE);
+		
 		Matrix4f scaleMat = getScalingMatrix(scales);
 		return mult(scaleMat, origin);
 	}
@@ -355,7 +1026,286 @@ public class Matrix4f {
 	 * @return new scaled Matrix4f
 	 */
 	public static Matrix4f scale(Matrix4f origin, float scale) {
+		if(MathsProfiler.ENABLED)
+			MathsProfiler.count(Operation.MATRIX4F_SCALE);
+		
 		Matrix4f scaleMat = getScalingMatrix(scale);
 		return mult(scaleMat, origin);
 	}
+	
+	/**
+	 * Create a Builder recording transformations and computing them all at once<br>
+	 * Transformations are applied in call order, like chained Matrix4f.scale/rotate/translate :<br>
+	 * Matrix4f.builder().scale(3f).rotate(axe, 42).translate(v).build()
+	 * @return new Builder starting from identity
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+	
+	/**
+	 * Records scale, rotate, translate and mult operations then fuses them on build() :
+	 * <ul>
+	 * <li>consecutive translations, scales and rotations around the same axe are folded into one</li>
+	 * <li>scale, rotation and translation are written directly (closed form TRS, no 4x4 multiplication)</li>
+	 * <li>a general multiplication is only used for mult(Matrix4f)</li>
+	 * </ul>
+	 * A Builder can be built several times and reused after reset()
+	 */
+	public static class Builder {
+		
+		private static final byte SCALE = 0, ROTATE = 1, TRANSLATE = 2, MULT = 3;
+		
+		private byte[] ops = new byte[4];
+		private float[] params = new float[4*4];
+		private Matrix4f[] operands = new Matrix4f[4];
+		private int count;
+		
+		private Builder() {}
+		
+		/**
+		 * Remove all recorded operations (back to identity)
+		 * @return this Builder
+		 */
+		public Builder reset() {
+			for(int i = 0; i<count; i++) {
+				operands[i] = null;
+			}
+			count = 0;
+			return this;
+		}
+		
+		/**
+		 * Scale using a scaling factor
+		 * @param s : scaling factor
+		 * @return this Builder
+		 */
+		public Builder scale(float s) {
+			return scale(s, s, s);
+		}
+		
+		/**
+		 * Scale using a scaling Vertex2f for 2D (z is scaled by 0 like Matrix4f.scale)
+		 * @param scales : scaling Vertex2f
+		 * @return this Builder
+		 */
+		public Builder scale(Vertex2f scales) {
+			return scale(scales.x, scales.y, 0);
+		}
+		
+		/**
+		 * Scale using a scaling Vertex3f
+		 * @param scales : scaling Vertex3f
+		 * @return this Builder
+		 */
+		public Builder scale(Vertex3f scales) {
+			return scale(scales.x, scales.y, scales.z);
+		}
+		
+		private Builder scale(float x, float y, float z) {
+			if(last() == SCALE) {
+				int p = (count-1)*4;
+				params[p] *= x;
+				params[p+1] *= y;
+				params[p+2] *= z;
+				return this;
+			}
+			return add(SCALE, x, y, z, 0);
+		}
+		
+		/**
+		 * Rotate around an axe with an angle in degrees
+		 * @param axe : axe of the rotation (SHOULD BE A UNIT VERTEX)
+		 * @param angle : angle of rotation in degrees
+		 * @return this Builder
+		 */
+		public Builder rotate(Vertex3f axe, float angle) {
+			return rotateRad(axe, (float)(angle*Math.PI/180));
+		}
+		
+		/**
+		 * Rotate around an axe with an angle in rads
+		 * @param axe : axe of the rotation (SHOULD BE A UNIT VERTEX)
+		 * @param angle : angle of rotation in rads
+		 * @return this Builder
+		 */
+		public Builder rotateRad(Vertex3f axe, float angle) {
+			if(last() == ROTATE) {
+				int p = (count-1)*4;
+				if(params[p] == axe.x && params[p+1] == axe.y && params[p+2] == axe.z) {
+					params[p+3] += angle;
+					return this;
+				}
+			}
+			return add(ROTATE, axe.x, axe.y, axe.z, angle);
+		}
+		
+		/**
+		 * Translate using a translation Vertex2f for 2D
+		 * @param trans : translation Vertex2f
+		 * @return this Builder
+		 */
+		public Builder translate(Vertex2f trans) {
+			return translate(trans.x, trans.y, 0);
+		}
+		
+		/**
+		 * Translate using a translation Vertex3f
+		 * @param trans : translation Vertex3f
+		 * @return this Builder
+		 */
+		public Builder translate(Vertex3f trans) {
+			return translate(trans.x, trans.y, trans.z);
+		}
+		
+		private Builder translate(float x, float y, float z) {
+			if(last() == TRANSLATE) {
+				int p = (count-1)*4;
+				params[p] += x;
+				params[p+1] += y;
+				params[p+2] += z;
+				return this;
+			}
+			return add(TRANSLATE, x, y, z, 0);
+		}
+		
+		/**
+		 * Apply any Matrix4f (general multiplication : m x current)<br>
+		 * m is copied, changing it later has no effect on this Builder
+		 * @param m : Matrix4f to apply
+		 * @return this Builder
+		 */
+		public Builder mult(Matrix4f m) {
+			add(MULT, 0, 0, 0, 0);
+			operands[count-1] = m.clone();
+			return this;
+		}
+		
+		private byte last() {
+			return count == 0 ? -1 : ops[count-1];
+		}
+		
+		private Builder add(byte op, float a, float b, float c, float d) {
+			if(count == ops.length) {
+				ops = Arrays.copyOf(ops, count*2);
+				params = Arrays.copyOf(params, count*2*4);
+				operands = Arrays.copyOf(operands, count*2);
+			}
+			
+			int p = count*4;
+			ops[count] = op;
+			params[p] = a;
+			params[p+1] = b;
+			params[p+2] = c;
+			params[p+3] = d;
+			count++;
+			return this;
+		}
+		
+		/**
+		 * Compute the recorded transformations
+		 * @return new Matrix4f
+		 */
+		public Matrix4f build() {
+			return build(new Matrix4f());
+		}
+		
+		/**
+		 * Compute the recorded transformations in an existing Matrix4f (no allocation)
+		 * @param dest : Matrix4f receiving the result (previous content is ignored)
+		 * @return dest
+		 */
+		public Matrix4f build(Matrix4f dest) {
+			if(MathsProfiler.ENABLED)
+				MathsProfiler.count(Operation.MATRIX4F_BUILD);
+			
+			dest.checkWritable();
+			float[] m = dest.mat;
+			for(int i = 0; i<16; i++) {
+				m[i] = i%5 == 0 ? 1 : 0;
+			}
+			
+			// diagonal : upper 3x3 is diagonal, affine : line 4 is (0 0 0 1)
+			boolean diagonal = true, affine = true;
+			
+			for(int i = 0; i<count; i++) {
+				int p = i*4;
+				float x = params[p], y = params[p+1], z = params[p+2];
+				
+				switch(ops[i]) {
+				case SCALE:
+					for(int c = 0; c<16; c+=4) {
+						m[c] *= x;
+						m[c+1] *= y;
+						m[c+2] *= z;
+					}
+					break;
+					
+				case TRANSLATE:
+					if(affine) {
+						m[12] += x;
+						m[13] += y;
+						m[14] += z;
+					}
+					else {
+						for(int c = 0; c<16; c+=4) {
+							m[c] += x * m[c+3];
+							m[c+1] += y * m[c+3];
+							m[c+2] += z * m[c+3];
+						}
+						diagonal = false;
+					}
+					break;
+					
+				case ROTATE:
+					rotate(m, x, y, z, params[p+3], diagonal && affine);
+					diagonal = false;
+					break;
+					
+				case MULT:
+					float[] o = operands[i].mat;
+					Matrix4f.mult(o, m, m);
+					affine = affine && o[3] == 0 && o[7] == 0 && o[11] == 0 && o[15] == 1;
+					diagonal = false;
+					break;
+				}
+			}
+			
+			return dest;
+		}
+		
+		/**
+		 * m = R x m with R the rotation around (x,y,z)
+		 * @param trs : m is [diag(s) | t], R x m is written directly
+		 */
+		private static void rotate(float[] m, float x, float y, float z, float angle, boolean trs) {
+			float c = (float)Math.cos(angle);
+			float s = (float)Math.sin(angle);
+			
+			float r11 = c + x*x*(1-c), r12 = x*y*(1-c) - z*s, r13 = x*z*(1-c) + y*s;
+			float r21 = y*x*(1-c) + z*s, r22 = c + y*y*(1-c), r23 = y*z*(1-c) - x*s;
+			float r31 = z*x*(1-c) - y*s, r32 = z*y*(1-c) + x*s, r33 = c + z*z*(1-c);
+			
+			if(trs) {
+				float s1 = m[0], s2 = m[5], s3 = m[10];
+				float t1 = m[12], t2 = m[13], t3 = m[14];
+				
+				m[0] = r11*s1; m[1] = r21*s1; m[2] = r31*s1;
+				m[4] = r12*s2; m[5] = r22*s2; m[6] = r32*s2;
+				m[8] = r13*s3; m[9] = r23*s3; m[10] = r33*s3;
+				
+				m[12] = r11*t1 + r12*t2 + r13*t3;
+				m[13] = r21*t1 + r22*t2 + r23*t3;
+				m[14] = r31*t1 + r32*t2 + r33*t3;
+				return;
+			}
+			
+			for(int col = 0; col<16; col+=4) {
+				float a = m[col], b = m[col+1], d = m[col+2];
+				m[col]   = r11*a + r12*b + r13*d;
+				m[col+1] = r21*a + r22*b + r23*d;
+				m[col+2] = r31*a + r32*b + r33*d;
+			}
+		}
+	}
 }
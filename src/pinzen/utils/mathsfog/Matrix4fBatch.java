@@ -0,0 +1,122 @@
+package pinzen.utils.mathsfog;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * Represents a batch of Matrix4f stored as raw floats
+ *
+ * Storage : 16 floats per matrix, column major (same layout as Matrix4f.toArray)
+ *
+ * Matrices are accessed with 0 based indexes (like an array)
+ */
+public class Matrix4fBatch {
+
+	private final FloatBuffer data;
+	private final int count;
+
+	/**
+	 * Create a Matrix4fBatch of count identity matrices<br>
+	 * Uses a direct buffer in native order (can be given as is to OpenGL)
+	 * @param count : number of matrices
+	 */
+	public Matrix4fBatch(int count) {
+		this(ByteBuffer.allocateDirect(checkSize(count) * 4).order(ByteOrder.nativeOrder()).asFloatBuffer(), count);
+
+		for(int i = 0; i<count; i++) {
+			for(int j = 0; j<16; j+=5) {
+				data.put(i*16 + j, 1);
+			}
+		}
+	}
+
+	/**
+	 * Create a Matrix4fBatch over an existing buffer (no copy)
+	 * @param data : buffer containing 16*count floats from index 0
+	 * @param count : number of matrices
+	 */
+	Matrix4fBatch(FloatBuffer data, int count) {
+		if(data.capacity() < checkSize(count))
+			throw new IllegalArgumentException("Can't store " + count + " matrices in a buffer of " + data.capacity() + " floats");
+
+		this.data = data;
+		this.count = count;
+	}
+
+	/**
+	 * Create a Matrix4fBatch using an existing array (no copy, changes are shared)
+	 * @param array : array of matrices elements (16 floats per matrix, column major)
+	 * @return new Matrix4fBatch backed by the array
+	 */
+	public static Matrix4fBatch wrap(float[] array) {
+		return new Matrix4fBatch(FloatBuffer.wrap(array), array.length / 16);
+	}
+
+	private static int checkSize(int count) {
+		if(count < 0 || count > Integer.MAX_VALUE / 16)
+			throw new IllegalArgumentException("Can't create a Matrix4fBatch of " + count + " matrices");
+
+		return count * 16;
+	}
+
+	/**
+	 * Output "Matrix4fBatch(count)"
+	 */
+	public String toString() {
+		return "Matrix4fBatch(" + count + ")";
+	}
+
+	/**
+	 * @return number of matrices in this batch
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * @return true if the batch can't be modified (read only mapping for example)
+	 */
+	public boolean isReadOnly() {
+		return data.isReadOnly();
+	}
+
+	/**
+	 * Get a view of the underlying buffer (position 0, limit 16*size)<br>
+	 * Changes made through the view are visible in this batch
+	 * @return new FloatBuffer sharing the content of this batch
+	 */
+	public FloatBuffer getBuffer() {
+		FloatBuffer view = data.duplicate();
+		view.clear();
+		view.limit(16 * count);
+		return view;
+	}
+
+	/**
+	 * Copy a matrix of this batch in an existing Matrix4f
+	 * @param index : index of the matrix (0 for first one)
+	 * @param dest : Matrix4f receiving the elements
+	 * @return dest
+	 */
+	public Matrix4f get(int index, Matrix4f dest) {
+		dest.load(data, offset(index));
+		return dest;
+	}
+
+	/**
+	 * Set a matrix of this batch
+	 * @param index : index of the matrix (0 for first one)
+	 * @param m : new value of the matrix
+	 */
+	public void set(int index, Matrix4f m) {
+		m.store(data, offset(index));
+	}
+
+	private int offset(int index) {
+		if(index < 0 || index >= count)
+			throw new ArrayIndexOutOfBoundsException("Can't reach Matrix4fBatch[" + index + "]");
+
+		return index * 16;
+	}
+}
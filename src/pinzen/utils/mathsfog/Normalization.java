@@ -0,0 +1,159 @@
+package pinzen.utils.mathsfog;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Normalization of many vectors stored as raw floats (x1 y1 [z1 [w1]] x2 y2 ...), in place and without allocation
+ *
+ * Exact mode gives the same results as Vertex2f/Vertex3f/Vertex4f.normalize.
+ * Fast mode uses an approximated inverse square root refined by two Newton iterations
+ * (relative error below 1e-5, enough for lighting normals) : on HotSpot with a hardware square root
+ * it's usually slower than exact mode, measure with NormalizationBench before using it.
+ * Vectors too short to be normalized (squared length below Float.MIN_NORMAL, or length below about 1e-19)
+ * are handled by a ZeroLength policy instead of becoming NaN.
+ */
+public final class Normalization {
+
+	/**
+	 * What to do with vectors too short to be normalized
+	 */
+	public enum ZeroLength {
+		/** Set every component to 0 */
+		ZERO,
+		/** Keep the vector unchanged */
+		KEEP,
+		/** Unit vector along the last axis : (0, 1), (0, 0, 1) or (0, 0, 0, 1) (identity quaternion) */
+		LAST_AXIS,
+		/** Throw an ArithmeticException (vectors before it are already normalized) */
+		THROW
+	}
+
+	private Normalization() {}
+
+	/**
+	 * Normalize vectors of a flat array in place
+	 * @param vectors : flat array of vectors, modified in place
+	 * @param offset : index of the first component of the first vector
+	 * @param count : number of vectors
+	 * @param dimension : number of components of each vector (2, 3 or 4)
+	 * @param fast : true to use the approximated inverse square root
+	 * @param zeroLength : policy for vectors too short to be normalized
+	 * @return number of vectors too short to be normalized
+	 */
+	public static int normalize(float[] vectors, int offset, int count, int dimension, boolean fast, ZeroLength zeroLength) {
+		if(dimension < 2 || dimension > 4)
+			throw new IllegalArgumentException("Can't normalize vectors of dimension " + dimension);
+		if(offset < 0 || count < 0 || offset + (long)count * dimension > vectors.length)
+			throw new ArrayIndexOutOfBoundsException("Can't normalize " + count + " vectors of dimension " + dimension
+					+ " from index " + offset + " of an array of " + vectors.length + " floats");
+
+		int zeros = 0;
+		int end = offset + count * dimension;
+		for(int i = offset; i<end; i+=dimension) {
+			// same order as Vertex norms : x*x + y*y + z*z + w*w
+			float lengthSquared = vectors[i]*vectors[i] + vectors[i+1]*vectors[i+1];
+			if(dimension > 2)
+				lengthSquared += vectors[i+2]*vectors[i+2];
+			if(dimension > 3)
+				lengthSquared += vectors[i+3]*vectors[i+3];
+
+			if(lengthSquared < Float.MIN_NORMAL) {
+				zeros++;
+				if(overwrite(zeroLength, (i - offset) / dimension)) {
+					for(int c = 0; c<dimension; c++) {
+						vectors[i + c] = 0;
+					}
+					if(zeroLength == ZeroLength.LAST_AXIS)
+						vectors[i + dimension - 1] = 1;
+				}
+				continue;
+			}
+
+			float inverse = inverse(lengthSquared, fast);
+			vectors[i] *= inverse;
+			vectors[i+1] *= inverse;
+			if(dimension > 2)
+				vectors[i+2] *= inverse;
+			if(dimension > 3)
+				vectors[i+3] *= inverse;
+		}
+		return zeros;
+	}
+
+	/**
+	 * Normalize every vertex of a VertexBatch in place
+	 * @param batch : vertices to normalize (not read only)
+	 * @param fast : true to use the approximated inverse square root
+	 * @param zeroLength : policy for vectors too short to be normalized
+	 * @return number of vectors too short to be normalized
+	 */
+	public static int normalize(VertexBatch batch, boolean fast, ZeroLength zeroLength) {
+		if(batch.isReadOnly())
+			throw new IllegalArgumentException("Can't normalize a read only VertexBatch");
+
+		FloatBuffer buffer = batch.getBuffer();
+		int dimension = batch.getDimension();
+		if(buffer.hasArray())
+			return normalize(buffer.array(), buffer.arrayOffset(), batch.size(), dimension, fast, zeroLength);
+
+		// direct or mapped buffer : same loop with absolute gets and puts
+		int zeros = 0;
+		for(int i = 0, b = 0; i<batch.size(); i++, b+=dimension) {
+			float x = buffer.get(b), y = buffer.get(b+1);
+			float z = dimension > 2 ? buffer.get(b+2) : 0, w = dimension > 3 ? buffer.get(b+3) : 0;
+			float lengthSquared = x*x + y*y;
+			if(dimension > 2)
+				lengthSquared += z*z;
+			if(dimension > 3)
+				lengthSquared += w*w;
+
+			if(lengthSquared < Float.MIN_NORMAL) {
+				zeros++;
+				if(overwrite(zeroLength, i)) {
+					for(int c = 0; c<dimension; c++) {
+						buffer.put(b + c, 0);
+					}
+					if(zeroLength == ZeroLength.LAST_AXIS)
+						buffer.put(b + dimension - 1, 1);
+				}
+				continue;
+			}
+
+			float inverse = inverse(lengthSquared, fast);
+			buffer.put(b, x * inverse);
+			buffer.put(b+1, y * inverse);
+			if(dimension > 2)
+				buffer.put(b+2, z * inverse);
+			if(dimension > 3)
+				buffer.put(b+3, w * inverse);
+		}
+		return zeros;
+	}
+
+	private static float inverse(float lengthSquared, boolean fast) {
+		// squared length overflowing to infinity : exact path like Vertex normalize
+		return fast && lengthSquared <= Float.MAX_VALUE ? fastInverseSqrt(lengthSquared) : 1 / (float)Math.sqrt(lengthSquared);
+	}
+
+	/**
+	 * Apply the policy to vector index (too short to be normalized)
+	 * @return true if the vector must be overwritten with zeros (and 1 on the last axis for LAST_AXIS)
+	 */
+	private static boolean overwrite(ZeroLength zeroLength, int index) {
+		if(zeroLength == ZeroLength.THROW)
+			throw new ArithmeticException("Can't normalize vector " + index + " of length 0");
+		return zeroLength != ZeroLength.KEEP;
+	}
+
+	/**
+	 * Approximated 1 / sqrt(x) : bit level first guess then two Newton iterations (relative error below 1e-5)
+	 * @param x : positive normal float
+	 */
+	public static float fastInverseSqrt(float x) {
+		float half = 0.5f * x;
+		float y = Float.intBitsToFloat(0x5F375A86 - (Float.floatToRawIntBits(x) >> 1));
+		y = y * (1.5f - half*y*y);
+		y = y * (1.5f - half*y*y);
+		return y;
+	}
+}
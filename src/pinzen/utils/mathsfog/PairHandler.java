@@ -0,0 +1,14 @@
+package pinzen.utils.mathsfog;
+
+/**
+ * Receives pairs of colliding bounds found by a broad phase (indexes in a bounds set)
+ */
+public interface PairHandler {
+
+	/**
+	 * Called once for each colliding pair
+	 * @param a : index of the first bounds (a < b)
+	 * @param b : index of the second bounds
+	 */
+	void onPair(int a, int b);
+}
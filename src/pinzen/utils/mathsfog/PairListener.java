@@ -0,0 +1,21 @@
+package pinzen.utils.mathsfog;
+
+/**
+ * Receives changes of the overlapping pairs of a persistent broad phase (ids of its proxies)
+ */
+public interface PairListener {
+
+	/**
+	 * Called when two proxies start to overlap
+	 * @param a : id of the first proxy (a < b)
+	 * @param b : id of the second proxy
+	 */
+	void pairAdded(int a, int b);
+
+	/**
+	 * Called when two proxies stop to overlap (or one of them is removed)
+	 * @param a : id of the first proxy (a < b)
+	 * @param b : id of the second proxy
+	 */
+	void pairRemoved(int a, int b);
+}
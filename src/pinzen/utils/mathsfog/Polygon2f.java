@@ -0,0 +1,410 @@
+package pinzen.utils.mathsfog;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Represents a simple polygon stored as raw floats (x1 y1 x2 y2 ...), the last point is linked to the first one
+ *
+ * The bounding rect (RectBounds2f) of the polygon is kept to reject far points and polygons
+ * before exact tests. Static functions work directly on flat coordinate arrays.
+ */
+public class Polygon2f {
+
+	private static final int POINTS_PER_TASK = 4096;
+
+	private final float[] coords;
+	private final int count;
+	private final RectBounds2f bounds = new RectBounds2f(0, 0, 0, 0);
+
+	/**
+	 * Create a Polygon2f over raw floats (array used directly, not copied : call updateBounds() after changing it)
+	 * @param coords : coordinates of the points (x1 y1 x2 y2 ...)
+	 * @param count : number of points
+	 */
+	public Polygon2f(float[] coords, int count) {
+		if(count < 1 || count * 2 > coords.length)
+			throw new IllegalArgumentException("Can't create a Polygon2f of " + count + " points from " + coords.length + " floats");
+
+		this.coords = coords;
+		this.count = count;
+		updateBounds();
+	}
+
+	/**
+	 * Create a Polygon2f from points (copied)
+	 * @param points : points of the polygon in order
+	 */
+	public Polygon2f(Vertex2f... points) {
+		this(toCoordinates(points, points.length), points.length);
+	}
+
+	/**
+	 * Output "Polygon2f(x1,y1 x2,y2 ...)"
+	 */
+	public String toString() {
+		StringBuilder builder = new StringBuilder("Polygon2f(");
+		for(int i = 0; i<count; i++) {
+			builder.append(i == 0 ? "" : " ").append(coords[i*2]).append(',').append(coords[i*2+1]);
+		}
+		return builder.append(')').toString();
+	}
+
+	/**
+	 * @return number of points
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * @return raw coordinates of the points (not a copy)
+	 */
+	public float[] getCoordinates() {
+		return coords;
+	}
+
+	/**
+	 * Get one point of the polygon
+	 * @param index : index of the point
+	 * @param dest : Vertex2f receiving the point
+	 * @return dest
+	 */
+	public Vertex2f get(int index, Vertex2f dest) {
+		if(index < 0 || index >= count)
+			throw new ArrayIndexOutOfBoundsException("Can't reach point " + index + " of a Polygon2f of " + count + " points");
+
+		dest.x = coords[index*2];
+		dest.y = coords[index*2+1];
+		return dest;
+	}
+
+	/**
+	 * @return bounding rect of the polygon (not a copy)
+	 */
+	public RectBounds2f getBounds() {
+		return bounds;
+	}
+
+	/**
+	 * Compute the bounding rect again after the coordinates were changed
+	 */
+	public void updateBounds() {
+		float minX = coords[0], maxX = minX, minY = coords[1], maxY = minY;
+		for(int i = 1; i<count; i++) {
+			minX = Math.min(minX, coords[i*2]);
+			maxX = Math.max(maxX, coords[i*2]);
+			minY = Math.min(minY, coords[i*2+1]);
+			maxY = Math.max(maxY, coords[i*2+1]);
+		}
+		bounds.position.x = minX;
+		bounds.position.y = minY;
+		bounds.dimension.x = maxX - minX;
+		bounds.dimension.y = maxY - minY;
+	}
+
+	/**
+	 * @return signed area (positive if points are counter clockwise)
+	 */
+	public float getArea() {
+		return area(coords, count);
+	}
+
+	/**
+	 * Check if a point is inside this polygon (bounding rect first, then even-odd rule)
+	 */
+	public boolean contains(float x, float y) {
+		return bounds.contains(x, y) && contains(coords, count, x, y);
+	}
+
+	/**
+	 * Check if a point is inside this polygon
+	 */
+	public boolean contains(Vertex2f p) {
+		return contains(p.x, p.y);
+	}
+
+	/**
+	 * Test many points against this polygon : bit (i % 64) of mask[i / 64] is set when point i is inside
+	 * @param points : coordinates of the points (x1 y1 x2 y2 ...)
+	 * @param pointCount : number of points
+	 * @param mask : array of at least (pointCount + 63) / 64 longs receiving the result
+	 * @return number of points inside
+	 */
+	public int contains(float[] points, int pointCount, long[] mask) {
+		if(mask.length < (pointCount + 63) / 64)
+			throw new IllegalArgumentException("Can't store " + pointCount + " results in a mask of " + mask.length + " longs");
+
+		float minX = bounds.position.x, minY = bounds.position.y;
+		float maxX = minX + bounds.dimension.x, maxY = minY + bounds.dimension.y;
+		Arrays.fill(mask, 0, (pointCount + 63) / 64, 0);
+
+		int inside = 0;
+		for(int i = 0; i<pointCount; i++) {
+			float x = points[i*2], y = points[i*2+1];
+			if(x >= minX && x <= maxX && y >= minY && y <= maxY && contains(coords, count, x, y)) {
+				mask[i >>> 6] |= 1L << i;
+				inside++;
+			}
+		}
+		return inside;
+	}
+
+	/**
+	 * Check if this convex polygon collides another convex polygon (bounding rects first, then separating axis test)<br>
+	 * Touching polygons collide
+	 * @param p : other convex polygon
+	 */
+	public boolean collide(Polygon2f p) {
+		Vertex2f aPos = bounds.position, aDim = bounds.dimension, bPos = p.bounds.position, bDim = p.bounds.dimension;
+		if(aPos.x > bPos.x + bDim.x || bPos.x > aPos.x + aDim.x || aPos.y > bPos.y + bDim.y || bPos.y > aPos.y + aDim.y)
+			return false;
+
+		return collideConvex(coords, count, p.coords, p.count);
+	}
+
+	/**
+	 * Get the convex hull of this polygon
+	 * @return new Polygon2f with the hull points counter clockwise
+	 */
+	public Polygon2f getConvexHull() {
+		float[] hull = new float[count * 2];
+		return new Polygon2f(hull, convexHull(coords, count, hull));
+	}
+
+			/** ----- ----- Static Functions ----- ----- **/
+
+	/**
+	 * Copy points in raw floats (x1 y1 x2 y2 ...)
+	 * @param points : points to copy
+	 * @param count : number of points
+	 * @return new array of 2*count floats
+	 */
+	public static float[] toCoordinates(Vertex2f[] points, int count) {
+		float[] coords = new float[count * 2];
+		for(int i = 0; i<count; i++) {
+			coords[i*2] = points[i].x;
+			coords[i*2+1] = points[i].y;
+		}
+		return coords;
+	}
+
+	/**
+	 * Signed area of a polygon (shoelace formula)
+	 * @param coords : coordinates of the points (x1 y1 x2 y2 ...)
+	 * @param count : number of points
+	 * @return area, positive if points are counter clockwise, negative if clockwise
+	 */
+	public static float area(float[] coords, int count) {
+		if(count < 3)
+			return 0;
+
+		// relative to the first point : keeps precision far from the origin
+		double x0 = coords[0], y0 = coords[1], sum = 0;
+		double px = coords[2] - x0, py = coords[3] - y0;
+		for(int i = 2; i<count; i++) {
+			double x = coords[i*2] - x0, y = coords[i*2+1] - y0;
+			sum += px*y - x*py;
+			px = x;
+			py = y;
+		}
+		return (float)(sum / 2);
+	}
+
+	/**
+	 * Check if a point is inside a polygon (even-odd rule, works for concave polygons)<br>
+	 * Points exactly on an edge can be inside or outside
+	 * @param coords : coordinates of the points (x1 y1 x2 y2 ...)
+	 * @param count : number of points
+	 */
+	public static boolean contains(float[] coords, int count, float x, float y) {
+		boolean inside = false;
+		float px = coords[count*2 - 2], py = coords[count*2 - 1];
+		for(int i = 0; i<count; i++) {
+			float cx = coords[i*2], cy = coords[i*2+1];
+			if((cy > y) != (py > y) && x < px + (y - py) * (cx - px) / (cy - py))
+				inside = !inside;
+			px = cx;
+			py = cy;
+		}
+		return inside;
+	}
+
+	/**
+	 * Check if two convex polygons collide (separating axis test on the normal of each edge)<br>
+	 * Touching polygons collide
+	 * @param a : coordinates of the first polygon (x1 y1 x2 y2 ...)
+	 * @param aCount : number of points of the first polygon
+	 * @param b : coordinates of the second polygon
+	 * @param bCount : number of points of the second polygon
+	 */
+	public static boolean collideConvex(float[] a, int aCount, float[] b, int bCount) {
+		return !separatedByEdge(a, aCount, b, bCount) && !separatedByEdge(b, bCount, a, aCount);
+	}
+
+	/**
+	 * Check if the normal of one edge of a separates both polygons
+	 */
+	private static boolean separatedByEdge(float[] a, int aCount, float[] b, int bCount) {
+		float px = a[aCount*2 - 2], py = a[aCount*2 - 1];
+		for(int i = 0; i<aCount; i++) {
+			float cx = a[i*2], cy = a[i*2+1];
+			float nx = py - cy, ny = cx - px;
+			px = cx;
+			py = cy;
+
+			float aMin = Float.POSITIVE_INFINITY, aMax = Float.NEGATIVE_INFINITY;
+			for(int j = 0; j<aCount; j++) {
+				float d = nx*a[j*2] + ny*a[j*2+1];
+				aMin = Math.min(aMin, d);
+				aMax = Math.max(aMax, d);
+			}
+			float bMin = Float.POSITIVE_INFINITY, bMax = Float.NEGATIVE_INFINITY;
+			for(int j = 0; j<bCount; j++) {
+				float d = nx*b[j*2] + ny*b[j*2+1];
+				bMin = Math.min(bMin, d);
+				bMax = Math.max(bMax, d);
+			}
+
+			if(aMax < bMin || bMax < aMin)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Convex hull of points (Andrew's monotone chain, O(n log n))
+	 * @param coords : coordinates of the points (x1 y1 x2 y2 ...)
+	 * @param count : number of points
+	 * @param dest : array receiving coordinates of the hull points counter clockwise, starting from the
+	 * lowest x (at least 2*count floats, not coords)
+	 * @return number of hull points (collinear points are removed)
+	 */
+	public static int convexHull(float[] coords, int count, float[] dest) {
+		return convexHull(coords, 0, count, dest, new long[count], new int[count + 1]);
+	}
+
+	/**
+	 * Convex hulls of many point sets, computed in parallel (common ForkJoinPool)
+	 * @param coords : coordinates of the points of every set (x1 y1 x2 y2 ...)
+	 * @param starts : index of the first point of each set, the set s is made of points starts[s] to starts[s+1]-1
+	 * @param setCount : number of sets (starts has setCount+1 values)
+	 * @param dest : array receiving hulls (at least as big as coords, not coords), hull s starts at float 2*starts[s]
+	 * @param hullSizes : array receiving number of points of each hull
+	 */
+	public static void convexHulls(float[] coords, int[] starts, int setCount, float[] dest, int[] hullSizes) {
+		if(starts.length < setCount + 1 || hullSizes.length < setCount)
+			throw new IllegalArgumentException("Can't compute " + setCount + " hulls with " + starts.length
+					+ " starts and " + hullSizes.length + " sizes");
+
+		ForkJoinPool.commonPool().invoke(new HullBatch(coords, starts, dest, hullSizes, 0, setCount));
+	}
+
+	/**
+	 * Compute hulls of a range of sets, split in two tasks while the range contains many points
+	 */
+	private static class HullBatch extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final float[] coords, dest;
+		private final int[] starts, hullSizes;
+		private final int first, last;
+
+		HullBatch(float[] coords, int[] starts, float[] dest, int[] hullSizes, int first, int last) {
+			this.coords = coords;
+			this.starts = starts;
+			this.dest = dest;
+			this.hullSizes = hullSizes;
+			this.first = first;
+			this.last = last;
+		}
+
+		protected void compute() {
+			if(last - first > 1 && starts[last] - starts[first] > POINTS_PER_TASK) {
+				int mid = (first + last) >>> 1;
+				invokeAll(new HullBatch(coords, starts, dest, hullSizes, first, mid),
+						new HullBatch(coords, starts, dest, hullSizes, mid, last));
+				return;
+			}
+
+			int biggest = 0;
+			for(int s = first; s<last; s++) {
+				biggest = Math.max(biggest, starts[s+1] - starts[s]);
+			}
+
+			long[] sorted = new long[biggest];
+			int[] stack = new int[biggest + 1];
+			for(int s = first; s<last; s++) {
+				hullSizes[s] = convexHull(coords, starts[s], starts[s+1] - starts[s], dest, sorted, stack);
+			}
+		}
+	}
+
+	/**
+	 * Monotone chain over points first to first+count-1, hull written in dest from point first
+	 */
+	private static int convexHull(float[] coords, int first, int count, float[] dest, long[] sorted, int[] stack) {
+		if(count * 2 > dest.length - first * 2)
+			throw new IllegalArgumentException("Can't store a hull of " + count + " points in " + (dest.length - first * 2) + " floats");
+
+		// sort by x then y (+ 0f turns -0 into 0 : same key and same tie group for both zeros)
+		for(int i = 0; i<count; i++) {
+			sorted[i] = IndexSort.pack(coords[(first + i)*2] + 0f, first + i);
+		}
+		Arrays.sort(sorted, 0, count);
+		for(int start = 0; start<count; ) {
+			int end = start + 1;
+			while(end < count && (sorted[end] >>> 32) == (sorted[start] >>> 32)) {
+				end++;
+			}
+			if(end - start > 1) {
+				for(int i = start; i<end; i++) {
+					int p = IndexSort.index(sorted[i]);
+					sorted[i] = IndexSort.pack(coords[p*2+1] + 0f, p);
+				}
+				Arrays.sort(sorted, start, end);
+			}
+			start = end;
+		}
+
+		// lower hull from left to right then upper hull from right to left
+		int size = 0;
+		for(int i = 0; i<count; i++) {
+			int p = IndexSort.index(sorted[i]);
+			while(size >= 2 && cross(coords, stack[size-2], stack[size-1], p) <= 0) {
+				size--;
+			}
+			stack[size++] = p;
+		}
+		int lower = size + 1;
+		for(int i = count - 2; i>=0; i--) {
+			int p = IndexSort.index(sorted[i]);
+			while(size >= lower && cross(coords, stack[size-2], stack[size-1], p) <= 0) {
+				size--;
+			}
+			stack[size++] = p;
+		}
+		// the first point closes the upper hull
+		if(count > 1)
+			size--;
+		// all points at the same place
+		if(size == 2 && coords[stack[0]*2] == coords[stack[1]*2] && coords[stack[0]*2+1] == coords[stack[1]*2+1])
+			size = 1;
+
+		for(int i = 0; i<size; i++) {
+			dest[(first + i)*2] = coords[stack[i]*2];
+			dest[(first + i)*2+1] = coords[stack[i]*2+1];
+		}
+		return size;
+	}
+
+	/**
+	 * Cross product of (b - a) and (c - a), positive when a b c turn counter clockwise (in double : stable sign for nearly collinear points)
+	 */
+	private static double cross(float[] coords, int a, int b, int c) {
+		double ax = coords[a*2], ay = coords[a*2+1];
+		return (coords[b*2] - ax) * (coords[c*2+1] - ay) - (coords[b*2+1] - ay) * (coords[c*2] - ax);
+	}
+}
@@ -0,0 +1,130 @@
+package pinzen.utils.mathsfog;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache (least recently used) of projection matrices
+ *
+ * Returns the same read only Matrix4f for the same parameters : no trigonometry nor allocation
+ * when a viewport keeps its projection. Results can be compared with == to detect changes.
+ * A ProjectionCache can be shared between threads.
+ */
+public class ProjectionCache {
+
+	/**
+	 * Cache shared by the application (64 projections)
+	 */
+	public static final ProjectionCache SHARED = new ProjectionCache(64);
+
+	private static final byte PERSPECTIVE = 0, ORTHO = 1;
+
+	private final LinkedHashMap<Key, Matrix4f> cache;
+	private final Key probe = new Key();
+
+	/**
+	 * Create an empty ProjectionCache
+	 * @param capacity : maximum number of projections kept
+	 */
+	public ProjectionCache(final int capacity) {
+		if(capacity < 1)
+			throw new IllegalArgumentException("Can't create a ProjectionCache of " + capacity + " projections");
+
+		cache = new LinkedHashMap<Key, Matrix4f>(capacity * 2, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			protected boolean removeEldestEntry(Map.Entry<Key, Matrix4f> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Get a perspective projection (see Matrix4f.getPerspective)
+	 * @return read only Matrix4f, the same instance while it stays in the cache
+	 */
+	public synchronized Matrix4f getPerspective(float fov, float aspect, float zNear, float zFar) {
+		Matrix4f m = cache.get(probe.set(PERSPECTIVE, fov, aspect, zNear, zFar, 0, 0));
+		if(m == null) {
+			m = Matrix4f.getPerspective(fov, aspect, zNear, zFar).toReadOnly();
+			cache.put(probe.copy(), m);
+		}
+		return m;
+	}
+
+	/**
+	 * Get an orthographic projection (see Matrix4f.getOrtho)
+	 * @return read only Matrix4f, the same instance while it stays in the cache
+	 */
+	public synchronized Matrix4f getOrtho(float left, float bottom, float right, float top, float near, float far) {
+		Matrix4f m = cache.get(probe.set(ORTHO, left, bottom, right, top, near, far));
+		if(m == null) {
+			m = Matrix4f.getOrtho(left, bottom, right, top, near, far).toReadOnly();
+			cache.put(probe.copy(), m);
+		}
+		return m;
+	}
+
+	/**
+	 * @return number of projections in the cache
+	 */
+	public synchronized int size() {
+		return cache.size();
+	}
+
+	/**
+	 * Remove every projection from the cache
+	 */
+	public synchronized void clear() {
+		cache.clear();
+	}
+
+	/**
+	 * Parameters of a projection (compared bit by bit)
+	 */
+	private static class Key {
+
+		private byte kind;
+		private float p1, p2, p3, p4, p5, p6;
+
+		private Key set(byte kind, float p1, float p2, float p3, float p4, float p5, float p6) {
+			this.kind = kind;
+			this.p1 = p1;
+			this.p2 = p2;
+			this.p3 = p3;
+			this.p4 = p4;
+			this.p5 = p5;
+			this.p6 = p6;
+			return this;
+		}
+
+		private Key copy() {
+			return new Key().set(kind, p1, p2, p3, p4, p5, p6);
+		}
+
+		public boolean equals(Object o) {
+			if(!(o instanceof Key))
+				return false;
+
+			Key k = (Key)o;
+			return kind == k.kind
+				&& Float.floatToIntBits(p1) == Float.floatToIntBits(k.p1)
+				&& Float.floatToIntBits(p2) == Float.floatToIntBits(k.p2)
+				&& Float.floatToIntBits(p3) == Float.floatToIntBits(k.p3)
+				&& Float.floatToIntBits(p4) == Float.floatToIntBits(k.p4)
+				&& Float.floatToIntBits(p5) == Float.floatToIntBits(k.p5)
+				&& Float.floatToIntBits(p6) == Float.floatToIntBits(k.p6);
+		}
+
+		public int hashCode() {
+			int hash = kind;
+			hash = 31*hash + Float.floatToIntBits(p1);
+			hash = 31*hash + Float.floatToIntBits(p2);
+			hash = 31*hash + Float.floatToIntBits(p3);
+			hash = 31*hash + Float.floatToIntBits(p4);
+			hash = 31*hash + Float.floatToIntBits(p5);
+			hash = 31*hash + Float.floatToIntBits(p6);
+			return hash;
+		}
+	}
+}
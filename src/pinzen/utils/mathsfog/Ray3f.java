@@ -0,0 +1,315 @@
+package pinzen.utils.mathsfog;
+
+/**
+ * Represents a ray (half line) in 3D : origin + t * direction with t >= 0
+ *
+ * Intersection functions return the smallest t >= 0 where the ray hits the shape
+ * (the distance when direction is a unit vector) or NO_HIT.
+ * A ray starting inside a closed shape (sphere, box) hits it where it goes out.
+ *
+ * Flat arrays of triangles store 9 floats per triangle (ax ay az bx by bz cx cy cz)
+ * Flat arrays of rays store 6 floats per ray (ox oy oz dx dy dz)
+ */
+public class Ray3f {
+
+	public static final float NO_HIT = -1;
+
+	private static final float EPSILON = 1e-8f;
+
+	public Vertex3f origin, direction;
+
+	/**
+	 * Create a Ray3f
+	 * @param origin : start point of the ray
+	 * @param direction : direction of the ray (doesn't need to be normalized)
+	 */
+	public Ray3f(Vertex3f origin, Vertex3f direction) {
+		this.origin = origin.clone();
+		this.direction = direction.clone();
+	}
+
+	/**
+	 * Create default Ray3f : origin (0,0,0) and direction (0,0,1)
+	 */
+	public Ray3f() {
+		this(new Vertex3f(), new Vertex3f(0,0,1));
+	}
+
+	public Ray3f clone() {
+		return new Ray3f(origin, direction);
+	}
+
+	/**
+	 * Output "Ray3f(origin,direction)"
+	 */
+	public String toString() {
+		return "Ray3f(" + origin + "," + direction + ")";
+	}
+
+	/**
+	 * Get point origin + t * direction
+	 * @param t : distance along the ray (in direction length)
+	 * @param dest : Vertex3f receiving the point
+	 * @return dest
+	 */
+	public Vertex3f getPoint(float t, Vertex3f dest) {
+		dest.x = origin.x + t*direction.x;
+		dest.y = origin.y + t*direction.y;
+		dest.z = origin.z + t*direction.z;
+		return dest;
+	}
+
+			/** ----- ----- Unprojection ----- ----- **/
+
+	/**
+	 * Set this ray from a point of the screen (picking)<br>
+	 * The ray goes from the near plane to the far plane, direction is normalized
+	 * @param ndcX : X coordinate of the point in normalized device coordinates [-1, 1]
+	 * @param ndcY : Y coordinate of the point in normalized device coordinates [-1, 1]
+	 * @param inverseViewProjection : Matrix4f.invert(Matrix4f.mult(projection, view)) (compute it once per frame)
+	 * @return this Ray3f
+	 */
+	public Ray3f unproject(float ndcX, float ndcY, Matrix4f inverseViewProjection) {
+		inverseViewProjection.transformPoint(ndcX, ndcY, -1, origin);
+		inverseViewProjection.transformPoint(ndcX, ndcY, 1, direction);
+
+		float dx = direction.x - origin.x;
+		float dy = direction.y - origin.y;
+		float dz = direction.z - origin.z;
+		float invNorm = 1f / (float)Math.sqrt(dx*dx + dy*dy + dz*dz);
+
+		direction.x = dx * invNorm;
+		direction.y = dy * invNorm;
+		direction.z = dz * invNorm;
+		return this;
+	}
+
+	/**
+	 * Set this ray from a pixel of a window (picking)
+	 * @param x : X coordinate of the pixel (0 on left)
+	 * @param y : Y coordinate of the pixel (0 on top)
+	 * @param width : width of the window
+	 * @param height : height of the window
+	 * @param inverseViewProjection : Matrix4f.invert(Matrix4f.mult(projection, view)) (compute it once per frame)
+	 * @return this Ray3f
+	 */
+	public Ray3f unproject(float x, float y, float width, float height, Matrix4f inverseViewProjection) {
+		return unproject(2*x/width - 1, 1 - 2*y/height, inverseViewProjection);
+	}
+
+			/** ----- ----- Intersections ----- ----- **/
+
+	/**
+	 * Intersection with a sphere
+	 * @param center : center of the sphere
+	 * @param radius : radius of the sphere
+	 * @return t of the intersection or NO_HIT
+	 */
+	public float intersectSphere(Vertex3f center, float radius) {
+		float ox = origin.x - center.x, oy = origin.y - center.y, oz = origin.z - center.z;
+		float dx = direction.x, dy = direction.y, dz = direction.z;
+
+		// a*t^2 + 2*b*t + c = 0
+		float a = dx*dx + dy*dy + dz*dz;
+		float b = ox*dx + oy*dy + oz*dz;
+		float c = ox*ox + oy*oy + oz*oz - radius*radius;
+		float delta = b*b - a*c;
+
+		if(delta < 0 || a == 0)
+			return NO_HIT;
+
+		float sqrtDelta = (float)Math.sqrt(delta);
+		float t = (-b - sqrtDelta) / a;
+		if(t >= 0)
+			return t;
+
+		t = (-b + sqrtDelta) / a;
+		return t >= 0 ? t : NO_HIT;
+	}
+
+	/**
+	 * Intersection with an axis aligned box (slabs method)
+	 * @param box : box to test
+	 * @return t of the intersection or NO_HIT
+	 */
+	public float intersect(AABB3f box) {
+		float tMin = Float.NEGATIVE_INFINITY, tMax = Float.POSITIVE_INFINITY;
+
+		// ray parallel to a slab : inside it or no hit (0 * infinity would give NaN)
+		if(direction.x == 0) {
+			if(origin.x < box.min.x || origin.x > box.max.x)
+				return NO_HIT;
+		}
+		else {
+			float t1 = (box.min.x - origin.x) / direction.x, t2 = (box.max.x - origin.x) / direction.x;
+			tMin = Math.min(t1, t2);
+			tMax = Math.max(t1, t2);
+		}
+
+		if(direction.y == 0) {
+			if(origin.y < box.min.y || origin.y > box.max.y)
+				return NO_HIT;
+		}
+		else {
+			float t1 = (box.min.y - origin.y) / direction.y, t2 = (box.max.y - origin.y) / direction.y;
+			tMin = Math.max(tMin, Math.min(t1, t2));
+			tMax = Math.min(tMax, Math.max(t1, t2));
+		}
+
+		if(direction.z == 0) {
+			if(origin.z < box.min.z || origin.z > box.max.z)
+				return NO_HIT;
+		}
+		else {
+			float t1 = (box.min.z - origin.z) / direction.z, t2 = (box.max.z - origin.z) / direction.z;
+			tMin = Math.max(tMin, Math.min(t1, t2));
+			tMax = Math.min(tMax, Math.max(t1, t2));
+		}
+
+		if(tMax < 0 || tMin > tMax)
+			return NO_HIT;
+
+		return tMin >= 0 ? tMin : tMax;
+	}
+
+	/**
+	 * Intersection with a plane of equation normal.p + d = 0
+	 * @param normal : normal of the plane
+	 * @param d : distance of the plane to origin (along -normal)
+	 * @return t of the intersection or NO_HIT (ray parallel to the plane)
+	 */
+	public float intersectPlane(Vertex3f normal, float d) {
+		float denom = normal.x*direction.x + normal.y*direction.y + normal.z*direction.z;
+		if(Math.abs(denom) < EPSILON)
+			return NO_HIT;
+
+		float t = -(normal.x*origin.x + normal.y*origin.y + normal.z*origin.z + d) / denom;
+		return t >= 0 ? t : NO_HIT;
+	}
+
+	/**
+	 * Intersection with a triangle (both faces, Moller-Trumbore)
+	 * @param a : first point of the triangle
+	 * @param b : second point of the triangle
+	 * @param c : third point of the triangle
+	 * @return t of the intersection or NO_HIT
+	 */
+	public float intersectTriangle(Vertex3f a, Vertex3f b, Vertex3f c) {
+		return triangle(origin.x, origin.y, origin.z, direction.x, direction.y, direction.z,
+				a.x, a.y, a.z, b.x, b.y, b.z, c.x, c.y, c.z);
+	}
+
+	/**
+	 * Intersection with many triangles
+	 * @param triangles : flat array of triangles (9 floats per triangle)
+	 * @param offset : index of the first triangle's ax in triangles
+	 * @param count : number of triangles
+	 * @param dest : array receiving t of the intersection or NO_HIT for each triangle
+	 * @param destOffset : index in dest of the first result
+	 */
+	public void intersectTriangles(float[] triangles, int offset, int count, float[] dest, int destOffset) {
+		float ox = origin.x, oy = origin.y, oz = origin.z;
+		float dx = direction.x, dy = direction.y, dz = direction.z;
+
+		for(int i = 0; i<count; i++) {
+			int t = offset + i*9;
+			dest[destOffset + i] = triangle(ox, oy, oz, dx, dy, dz,
+					triangles[t], triangles[t+1], triangles[t+2],
+					triangles[t+3], triangles[t+4], triangles[t+5],
+					triangles[t+6], triangles[t+7], triangles[t+8]);
+		}
+	}
+
+	/**
+	 * Find the closest triangle hit by this ray
+	 * @param triangles : flat array of triangles (9 floats per triangle)
+	 * @param offset : index of the first triangle's ax in triangles
+	 * @param count : number of triangles
+	 * @return index of the closest triangle (0 for the first one), -1 if no triangle is hit
+	 */
+	public int closestTriangle(float[] triangles, int offset, int count) {
+		float ox = origin.x, oy = origin.y, oz = origin.z;
+		float dx = direction.x, dy = direction.y, dz = direction.z;
+
+		int closest = -1;
+		float closestT = Float.POSITIVE_INFINITY;
+		for(int i = 0; i<count; i++) {
+			int t = offset + i*9;
+			float hit = triangle(ox, oy, oz, dx, dy, dz,
+					triangles[t], triangles[t+1], triangles[t+2],
+					triangles[t+3], triangles[t+4], triangles[t+5],
+					triangles[t+6], triangles[t+7], triangles[t+8]);
+
+			if(hit >= 0 && hit < closestT) {
+				closestT = hit;
+				closest = i;
+			}
+		}
+		return closest;
+	}
+
+			/** ----- ----- Static Functions ----- ----- **/
+
+	/**
+	 * Find the closest triangle hit by each ray (visibility tests for many rays)
+	 * @param rays : flat array of rays (6 floats per ray)
+	 * @param rayCount : number of rays
+	 * @param triangles : flat array of triangles (9 floats per triangle)
+	 * @param triangleCount : number of triangles
+	 * @param hitIndex : array receiving for each ray the index of the closest triangle or -1
+	 * @param hitT : array receiving for each ray t of the closest intersection or NO_HIT (can be null)
+	 */
+	public static void closestTriangles(float[] rays, int rayCount, float[] triangles, int triangleCount, int[] hitIndex, float[] hitT) {
+		for(int r = 0; r<rayCount; r++) {
+			int o = r*6;
+			float ox = rays[o], oy = rays[o+1], oz = rays[o+2];
+			float dx = rays[o+3], dy = rays[o+4], dz = rays[o+5];
+
+			int closest = -1;
+			float closestT = Float.POSITIVE_INFINITY;
+			for(int i = 0; i<triangleCount; i++) {
+				int t = i*9;
+				float hit = triangle(ox, oy, oz, dx, dy, dz,
+						triangles[t], triangles[t+1], triangles[t+2],
+						triangles[t+3], triangles[t+4], triangles[t+5],
+						triangles[t+6], triangles[t+7], triangles[t+8]);
+
+				if(hit >= 0 && hit < closestT) {
+					closestT = hit;
+					closest = i;
+				}
+			}
+
+			hitIndex[r] = closest;
+			if(hitT != null)
+				hitT[r] = closest < 0 ? NO_HIT : closestT;
+		}
+	}
+
+	/**
+	 * Moller-Trumbore ray/triangle intersection<br>
+	 * Every value is computed then tests are combined without branch (&amp;)
+	 * @return t of the intersection or NO_HIT
+	 */
+	private static float triangle(float ox, float oy, float oz, float dx, float dy, float dz,
+			float ax, float ay, float az, float bx, float by, float bz, float cx, float cy, float cz) {
+		float e1x = bx - ax, e1y = by - ay, e1z = bz - az;
+		float e2x = cx - ax, e2y = cy - ay, e2z = cz - az;
+
+		// p = d x e2
+		float px = dy*e2z - dz*e2y, py = dz*e2x - dx*e2z, pz = dx*e2y - dy*e2x;
+		float det = e1x*px + e1y*py + e1z*pz;
+		float inv = 1f / det;
+
+		float sx = ox - ax, sy = oy - ay, sz = oz - az;
+		float u = (sx*px + sy*py + sz*pz) * inv;
+
+		// q = s x e1
+		float qx = sy*e1z - sz*e1y, qy = sz*e1x - sx*e1z, qz = sx*e1y - sy*e1x;
+		float v = (dx*qx + dy*qy + dz*qz) * inv;
+		float t = (e2x*qx + e2y*qy + e2z*qz) * inv;
+
+		boolean hit = (Math.abs(det) > EPSILON) & (u >= 0) & (v >= 0) & (u + v <= 1) & (t >= 0);
+		return hit ? t : NO_HIT;
+	}
+}
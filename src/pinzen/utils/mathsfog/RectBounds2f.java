@@ -1,5 +1,7 @@
 package pinzen.utils.mathsfog;
 
+import pinzen.utils.mathsfog.MathsProfiler.Operation;
+
 public class RectBounds2f {
 
 	public Vertex2f position, dimension;
@@ -19,8 +21,15 @@ public class RectBounds2f {
 	
 	
 	public boolean contains(Vertex2f p) {
-		if(p.x >= position.x && p.x <= (position.x + dimension.x))
-			if(p.y >= position.y && p.y <= (position.y + dimension.y))
+		return contains(p.x, p.y);
+	}
+	
+	public boolean contains(float x, float y) {
+		if(MathsProfiler.ENABLED)
+			MathsProfiler.count(Operation.RECTBOUNDS2F_CONTAINS);
+		
+		if(x >= position.x && x <= (position.x + dimension.x))
+			if(y >= position.y && y <= (position.y + dimension.y))
 				return true;
 				
 		return false;
@@ -36,6 +45,9 @@ public class RectBounds2f {
 	}
 	
 	public boolean collide(RectBounds2f b) {
+		if(MathsProfiler.ENABLED)
+			MathsProfiler.count(Operation.RECTBOUNDS2F_COLLIDE);
+		
 		//One point of b is on this RectBounds2f
 		for(Vertex2f p : b.getPoints()) {
 			if(this.contains(p))
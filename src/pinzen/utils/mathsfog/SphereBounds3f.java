@@ -0,0 +1,127 @@
+package pinzen.utils.mathsfog;
+
+import pinzen.utils.mathsfog.MathsProfiler.Operation;
+
+/**
+ * Represents a sphere in 3D using its center and radius
+ *
+ * Same functions as CircleBounds2D, tests don't allocate (squared distances, no Vertex3f)
+ */
+public class SphereBounds3f {
+
+	private float x, y, z;
+	private float radius;
+
+	public SphereBounds3f(Vertex3f pos, float rad) {
+		this(pos.x, pos.y, pos.z, rad);
+	}
+
+	public SphereBounds3f(float x, float y, float z, float rad) {
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		this.radius = rad;
+	}
+
+	public SphereBounds3f clone() {
+		return new SphereBounds3f(x, y, z, radius);
+	}
+
+	/**
+	 * Output "SphereBounds3f(x,y,z,radius)"
+	 */
+	public String toString() {
+		return "SphereBounds3f(" + x + "," + y + "," + z + "," + radius + ")";
+	}
+
+	public boolean contains(Vertex3f point) {
+		return contains(point.x, point.y, point.z);
+	}
+
+	public boolean contains(float px, float py, float pz) {
+		if(MathsProfiler.ENABLED)
+			MathsProfiler.count(Operation.SPHEREBOUNDS3F_CONTAINS);
+
+		float dx = px - x, dy = py - y, dz = pz - z;
+		return dx*dx + dy*dy + dz*dz <= radius*radius;
+	}
+
+	public boolean collide(SphereBounds3f bounds) {
+		if(MathsProfiler.ENABLED)
+			MathsProfiler.count(Operation.SPHEREBOUNDS3F_COLLIDE);
+
+		float dx = bounds.x - x, dy = bounds.y - y, dz = bounds.z - z;
+		float r = radius + bounds.radius;
+		return dx*dx + dy*dy + dz*dz <= r*r;
+	}
+
+	/**
+	 * Collision with a box : distance between center and closest point of the box
+	 * @param box : AABB3f to test
+	 * @return true if the box and this sphere intersect
+	 */
+	public boolean collide(AABB3f box) {
+		if(MathsProfiler.ENABLED)
+			MathsProfiler.count(Operation.SPHEREBOUNDS3F_COLLIDE);
+
+		float dx = x - Math.max(box.min.x, Math.min(x, box.max.x));
+		float dy = y - Math.max(box.min.y, Math.min(y, box.max.y));
+		float dz = z - Math.max(box.min.z, Math.min(z, box.max.z));
+		return dx*dx + dy*dy + dz*dz <= radius*radius;
+	}
+
+	public Vertex3f getCenter() {
+		return new Vertex3f(x, y, z);
+	}
+
+	/**
+	 * Get center of the sphere without allocation
+	 * @param dest : Vertex3f receiving the center
+	 * @return dest
+	 */
+	public Vertex3f getCenter(Vertex3f dest) {
+		dest.x = x;
+		dest.y = y;
+		dest.z = z;
+		return dest;
+	}
+
+	/**
+	 * @return x of the center
+	 */
+	public float getX() {
+		return x;
+	}
+
+	/**
+	 * @return y of the center
+	 */
+	public float getY() {
+		return y;
+	}
+
+	/**
+	 * @return z of the center
+	 */
+	public float getZ() {
+		return z;
+	}
+
+	public void setCenter(Vertex3f c) {
+		setCenter(c.x, c.y, c.z);
+	}
+
+	public void setCenter(float x, float y, float z) {
+		this.x = x;
+		this.y = y;
+		this.z = z;
+	}
+
+	public float getRadius() {
+		return radius;
+	}
+
+	public void setRadius(float radius) {
+		this.radius = radius;
+	}
+}
@@ -0,0 +1,209 @@
+package pinzen.utils.mathsfog;
+
+import java.util.Arrays;
+
+/**
+ * Collection of SphereBounds3f stored as structure of arrays (one float array per component)
+ *
+ * Bounds are referenced by their index (0 for the first added). Tests against many
+ * bounds are done in single branch free loops and return a bitmask :
+ * bit (i % 64) of mask[i / 64] is set when bounds i collides.
+ *
+ * Queries (collide) don't modify the set : many threads can query it at once
+ * while no thread adds, sets or sorts bounds.
+ */
+public class SphereBounds3fSet {
+
+	private float[] x, y, z, radius;
+	private float[] minX;
+	private int size;
+	private long[] sorted;
+	// spheres sorted by minX (sweep and prune)
+	private float[] sMinX, sX, sY, sZ, sRadius;
+	private int[] sIndex;
+
+	/**
+	 * Create an empty SphereBounds3fSet
+	 * @param capacity : initial capacity (grows when needed)
+	 */
+	public SphereBounds3fSet(int capacity) {
+		capacity = Math.max(capacity, 16);
+		x = new float[capacity];
+		y = new float[capacity];
+		z = new float[capacity];
+		radius = new float[capacity];
+		minX = new float[capacity];
+	}
+
+	/**
+	 * @return number of bounds in this set
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Remove every bounds (capacity is kept)
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Add bounds at the end of this set
+	 * @param sphere : bounds to add (copied)
+	 * @return index of the added bounds
+	 */
+	public int add(SphereBounds3f sphere) {
+		return add(sphere.getX(), sphere.getY(), sphere.getZ(), sphere.getRadius());
+	}
+
+	/**
+	 * Add bounds at the end of this set
+	 * @return index of the added bounds
+	 */
+	public int add(float x, float y, float z, float radius) {
+		if(size == this.x.length) {
+			int capacity = size * 2;
+			this.x = Arrays.copyOf(this.x, capacity);
+			this.y = Arrays.copyOf(this.y, capacity);
+			this.z = Arrays.copyOf(this.z, capacity);
+			this.radius = Arrays.copyOf(this.radius, capacity);
+			this.minX = Arrays.copyOf(this.minX, capacity);
+		}
+
+		set(size++, x, y, z, radius);
+		return size - 1;
+	}
+
+	/**
+	 * Change bounds at a given index
+	 * @param index : index of the bounds
+	 * @param sphere : new bounds (copied)
+	 */
+	public void set(int index, SphereBounds3f sphere) {
+		set(index, sphere.getX(), sphere.getY(), sphere.getZ(), sphere.getRadius());
+	}
+
+	/**
+	 * Change bounds at a given index
+	 * @param index : index of the bounds
+	 */
+	public void set(int index, float x, float y, float z, float radius) {
+		check(index);
+		this.x[index] = x;
+		this.y[index] = y;
+		this.z[index] = z;
+		this.radius[index] = radius;
+	}
+
+	/**
+	 * Copy bounds at a given index in an existing SphereBounds3f
+	 * @param index : index of the bounds
+	 * @param dest : SphereBounds3f receiving the bounds
+	 * @return dest
+	 */
+	public SphereBounds3f get(int index, SphereBounds3f dest) {
+		check(index);
+		dest.setCenter(x[index], y[index], z[index]);
+		dest.setRadius(radius[index]);
+		return dest;
+	}
+
+	private void check(int index) {
+		if(index < 0 || index >= size)
+			throw new ArrayIndexOutOfBoundsException("Can't reach SphereBounds3fSet[" + index + "]");
+	}
+
+	/**
+	 * Test one sphere against every bounds of this set
+	 * @param sphere : SphereBounds3f to test
+	 * @param mask : array of at least (size+63)/64 longs receiving the result bitmask
+	 * @return number of colliding bounds
+	 */
+	public int collide(SphereBounds3f sphere, long[] mask) {
+		float sx = sphere.getX(), sy = sphere.getY(), sz = sphere.getZ(), sr = sphere.getRadius();
+		int hits = 0;
+
+		for(int block = 0; block*64 < size; block++) {
+			int start = block*64;
+			int end = Math.min(start + 64, size);
+			long bits = BatchKernels.spheresSphereBits(x, y, z, radius, start, end, sx, sy, sz, sr);
+
+			mask[block] = bits;
+			hits += Long.bitCount(bits);
+		}
+		return hits;
+	}
+
+	/**
+	 * Test one box against every bounds of this set
+	 * @param box : AABB3f to test
+	 * @param mask : array of at least (size+63)/64 longs receiving the result bitmask
+	 * @return number of colliding bounds
+	 */
+	public int collide(AABB3f box, long[] mask) {
+		float bMinX = box.min.x, bMinY = box.min.y, bMinZ = box.min.z;
+		float bMaxX = box.max.x, bMaxY = box.max.y, bMaxZ = box.max.z;
+		int hits = 0;
+
+		for(int block = 0; block*64 < size; block++) {
+			int start = block*64;
+			int end = Math.min(start + 64, size);
+			long bits = BatchKernels.spheresBoxBits(x, y, z, radius, start, end, bMinX, bMinY, bMinZ, bMaxX, bMaxY, bMaxZ);
+
+			mask[block] = bits;
+			hits += Long.bitCount(bits);
+		}
+		return hits;
+	}
+
+	/**
+	 * Find every pair of colliding spheres of this set (sort on X axis then sweep)<br>
+	 * O(n log n + pairs overlapping on X), no allocation once the internal arrays are big enough
+	 * @param handler : called once for each colliding pair (a < b)
+	 * @return number of colliding pairs
+	 */
+	public int sweepAndPrune(PairHandler handler) {
+		for(int i = 0; i<size; i++) {
+			minX[i] = x[i] - radius[i];
+		}
+		sorted = IndexSort.sort(minX, size, sorted);
+
+		// spheres copied in sorted order : the sweep reads memory sequentially
+		if(sMinX == null || sMinX.length < size) {
+			sMinX = new float[x.length];
+			sX = new float[x.length];
+			sY = new float[x.length];
+			sZ = new float[x.length];
+			sRadius = new float[x.length];
+			sIndex = new int[x.length];
+		}
+		for(int s = 0; s<size; s++) {
+			int i = IndexSort.index(sorted[s]);
+			sIndex[s] = i;
+			sMinX[s] = minX[i];
+			sX[s] = x[i];
+			sY[s] = y[i];
+			sZ[s] = z[i];
+			sRadius[s] = radius[i];
+		}
+
+		int pairs = 0;
+		for(int s = 0; s<size; s++) {
+			float ix = sX[s], iy = sY[s], iz = sZ[s], ir = sRadius[s];
+			float iMaxX = ix + ir;
+
+			for(int t = s+1; t<size && sMinX[t] <= iMaxX; t++) {
+				float dx = sX[t] - ix, dy = sY[t] - iy, dz = sZ[t] - iz;
+				float r = ir + sRadius[t];
+				if(dx*dx + dy*dy + dz*dz <= r*r) {
+					int i = sIndex[s], j = sIndex[t];
+					handler.onPair(Math.min(i, j), Math.max(i, j));
+					pairs++;
+				}
+			}
+		}
+		return pairs;
+	}
+}
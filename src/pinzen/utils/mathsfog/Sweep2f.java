@@ -0,0 +1,269 @@
+package pinzen.utils.mathsfog;
+
+/**
+ * Continuous collision tests (swept bounds) in 2D : a fast moving body can't go through a thin obstacle
+ * between two ticks
+ *
+ * Each body moves by its velocity during one tick (velocity is the displacement of the tick).
+ * Tests return the time of impact : fraction of the tick in [0, 1] where bodies start to touch,
+ * 0 if they already overlap, NO_HIT if they don't touch during the tick.
+ *
+ * Flat arrays of circles store 3 floats per circle (x y radius)
+ * Flat arrays of rects store 4 floats per rect (x y width height), like RectBounds2f
+ * Flat arrays of segments store 4 floats per segment (ax ay bx by)
+ * Flat arrays of velocities store 2 floats per body (vx vy)
+ */
+public final class Sweep2f {
+
+	public static final float NO_HIT = -1;
+
+	private Sweep2f() {}
+
+	/**
+	 * Moving circle against moving circle
+	 * @param a : first circle
+	 * @param velocityA : displacement of a during the tick
+	 * @param b : second circle
+	 * @param velocityB : displacement of b during the tick
+	 * @return time of impact in [0, 1] or NO_HIT
+	 */
+	public static float circleCircle(CircleBounds2D a, Vertex2f velocityA, CircleBounds2D b, Vertex2f velocityB) {
+		Vertex2f ca = a.getCenter(new Vertex2f()), cb = b.getCenter(new Vertex2f());
+		return circleCircle(ca.x - cb.x, ca.y - cb.y, a.getRadius() + b.getRadius(),
+				velocityA.x - velocityB.x, velocityA.y - velocityB.y);
+	}
+
+	/**
+	 * Moving rect against moving rect
+	 * @param a : first rect
+	 * @param velocityA : displacement of a during the tick
+	 * @param b : second rect
+	 * @param velocityB : displacement of b during the tick
+	 * @return time of impact in [0, 1] or NO_HIT
+	 */
+	public static float rectRect(RectBounds2f a, Vertex2f velocityA, RectBounds2f b, Vertex2f velocityB) {
+		return rectRect(a.position.x, a.position.y, a.dimension.x, a.dimension.y,
+				velocityA.x - velocityB.x, velocityA.y - velocityB.y,
+				b.position.x, b.position.y, b.dimension.x, b.dimension.y);
+	}
+
+	/**
+	 * Moving circle against a static segment (thin wall)
+	 * @param circle : moving circle
+	 * @param velocity : displacement of the circle during the tick
+	 * @param segmentA : first point of the segment
+	 * @param segmentB : second point of the segment
+	 * @return time of impact in [0, 1] or NO_HIT
+	 */
+	public static float circleSegment(CircleBounds2D circle, Vertex2f velocity, Vertex2f segmentA, Vertex2f segmentB) {
+		Vertex2f c = circle.getCenter(new Vertex2f());
+		return circleSegment(c.x, c.y, circle.getRadius(), velocity.x, velocity.y,
+				segmentA.x, segmentA.y, segmentB.x, segmentB.y);
+	}
+
+			/** ----- ----- Batches ----- ----- **/
+
+	/**
+	 * Earliest impact of each moving circle against static circles
+	 * @param circles : flat array of moving circles (3 floats per circle)
+	 * @param velocities : flat array of velocities (2 floats per moving circle)
+	 * @param count : number of moving circles
+	 * @param obstacles : flat array of static circles (3 floats per circle)
+	 * @param obstacleCount : number of static circles
+	 * @param toi : array receiving for each moving circle the time of impact or NO_HIT
+	 * @param hitIndex : array receiving for each moving circle the index of the obstacle hit first or -1 (can be null)
+	 * @return number of moving circles hitting an obstacle
+	 */
+	public static int circlesCircles(float[] circles, float[] velocities, int count,
+			float[] obstacles, int obstacleCount, float[] toi, int[] hitIndex) {
+		int hits = 0;
+		for(int i = 0; i<count; i++) {
+			float x = circles[i*3], y = circles[i*3+1], r = circles[i*3+2];
+			float vx = velocities[i*2], vy = velocities[i*2+1];
+
+			int first = -1;
+			float firstT = Float.POSITIVE_INFINITY;
+			for(int o = 0; o<obstacleCount; o++) {
+				float t = circleCircle(x - obstacles[o*3], y - obstacles[o*3+1], r + obstacles[o*3+2], vx, vy);
+				if(t >= 0 && t < firstT) {
+					firstT = t;
+					first = o;
+				}
+			}
+			hits += store(i, first, firstT, toi, hitIndex);
+		}
+		return hits;
+	}
+
+	/**
+	 * Earliest impact of each moving rect against static rects
+	 * @param rects : flat array of moving rects (4 floats per rect)
+	 * @param velocities : flat array of velocities (2 floats per moving rect)
+	 * @param count : number of moving rects
+	 * @param obstacles : flat array of static rects (4 floats per rect)
+	 * @param obstacleCount : number of static rects
+	 * @param toi : array receiving for each moving rect the time of impact or NO_HIT
+	 * @param hitIndex : array receiving for each moving rect the index of the obstacle hit first or -1 (can be null)
+	 * @return number of moving rects hitting an obstacle
+	 */
+	public static int rectsRects(float[] rects, float[] velocities, int count,
+			float[] obstacles, int obstacleCount, float[] toi, int[] hitIndex) {
+		int hits = 0;
+		for(int i = 0; i<count; i++) {
+			float x = rects[i*4], y = rects[i*4+1], w = rects[i*4+2], h = rects[i*4+3];
+			float vx = velocities[i*2], vy = velocities[i*2+1];
+
+			int first = -1;
+			float firstT = Float.POSITIVE_INFINITY;
+			for(int o = 0; o<obstacleCount; o++) {
+				int b = o*4;
+				float t = rectRect(x, y, w, h, vx, vy, obstacles[b], obstacles[b+1], obstacles[b+2], obstacles[b+3]);
+				if(t >= 0 && t < firstT) {
+					firstT = t;
+					first = o;
+				}
+			}
+			hits += store(i, first, firstT, toi, hitIndex);
+		}
+		return hits;
+	}
+
+	/**
+	 * Earliest impact of each moving circle against static segments (projectiles against walls)
+	 * @param circles : flat array of moving circles (3 floats per circle)
+	 * @param velocities : flat array of velocities (2 floats per moving circle)
+	 * @param count : number of moving circles
+	 * @param segments : flat array of segments (4 floats per segment)
+	 * @param segmentCount : number of segments
+	 * @param toi : array receiving for each moving circle the time of impact or NO_HIT
+	 * @param hitIndex : array receiving for each moving circle the index of the segment hit first or -1 (can be null)
+	 * @return number of moving circles hitting a segment
+	 */
+	public static int circlesSegments(float[] circles, float[] velocities, int count,
+			float[] segments, int segmentCount, float[] toi, int[] hitIndex) {
+		int hits = 0;
+		for(int i = 0; i<count; i++) {
+			float x = circles[i*3], y = circles[i*3+1], r = circles[i*3+2];
+			float vx = velocities[i*2], vy = velocities[i*2+1];
+
+			int first = -1;
+			float firstT = Float.POSITIVE_INFINITY;
+			for(int s = 0; s<segmentCount; s++) {
+				int b = s*4;
+				float t = circleSegment(x, y, r, vx, vy, segments[b], segments[b+1], segments[b+2], segments[b+3]);
+				if(t >= 0 && t < firstT) {
+					firstT = t;
+					first = s;
+				}
+			}
+			hits += store(i, first, firstT, toi, hitIndex);
+		}
+		return hits;
+	}
+
+	private static int store(int i, int first, float firstT, float[] toi, int[] hitIndex) {
+		toi[i] = first < 0 ? NO_HIT : firstT;
+		if(hitIndex != null)
+			hitIndex[i] = first;
+		return first < 0 ? 0 : 1;
+	}
+
+			/** ----- ----- Kernels ----- ----- **/
+
+	/**
+	 * Point (dx, dy) moving by (vx, vy) against a static circle of radius r centered on origin
+	 */
+	private static float circleCircle(float dx, float dy, float r, float vx, float vy) {
+		// |d + t*v|^2 = r^2  <=>  a*t^2 + 2*b*t + c = 0
+		float c = dx*dx + dy*dy - r*r;
+		if(c <= 0)
+			return 0;
+
+		float b = dx*vx + dy*vy;
+		if(b >= 0)
+			return NO_HIT;
+
+		float a = vx*vx + vy*vy;
+		float delta = b*b - a*c;
+		if(delta < 0)
+			return NO_HIT;
+
+		float t = (-b - (float)Math.sqrt(delta)) / a;
+		return t <= 1 ? t : NO_HIT;
+	}
+
+	/**
+	 * Rect (x, y, w, h) moving by (vx, vy) against a static rect (slabs method)
+	 */
+	private static float rectRect(float x, float y, float w, float h, float vx, float vy,
+			float ox, float oy, float ow, float oh) {
+		float enter = Float.NEGATIVE_INFINITY, exit = Float.POSITIVE_INFINITY;
+
+		if(vx == 0) {
+			if(x > ox + ow || x + w < ox)
+				return NO_HIT;
+		}
+		else {
+			float t1 = (ox - (x + w)) / vx, t2 = (ox + ow - x) / vx;
+			enter = Math.min(t1, t2);
+			exit = Math.max(t1, t2);
+		}
+
+		if(vy == 0) {
+			if(y > oy + oh || y + h < oy)
+				return NO_HIT;
+		}
+		else {
+			float t1 = (oy - (y + h)) / vy, t2 = (oy + oh - y) / vy;
+			enter = Math.max(enter, Math.min(t1, t2));
+			exit = Math.min(exit, Math.max(t1, t2));
+		}
+
+		if(enter > exit || exit < 0 || enter > 1)
+			return NO_HIT;
+		return Math.max(enter, 0);
+	}
+
+	/**
+	 * Circle moving by (vx, vy) against segment (ax, ay)-(bx, by) : point against a capsule
+	 * (two sides of the segment and two round caps)
+	 */
+	private static float circleSegment(float x, float y, float r, float vx, float vy,
+			float ax, float ay, float bx, float by) {
+		float ex = bx - ax, ey = by - ay;
+		float len2 = ex*ex + ey*ey;
+		if(len2 == 0)
+			return circleCircle(x - ax, y - ay, r, vx, vy);
+
+		// already touching : distance to the closest point of the segment
+		float s = Math.max(0, Math.min(1, ((x - ax)*ex + (y - ay)*ey) / len2));
+		float cx = x - (ax + s*ex), cy = y - (ay + s*ey);
+		if(cx*cx + cy*cy <= r*r)
+			return 0;
+
+		float first = NO_HIT;
+
+		// side of the capsule facing the circle
+		float invLen = 1f / (float)Math.sqrt(len2);
+		float nx = -ey*invLen, ny = ex*invLen;
+		float dist = (x - ax)*nx + (y - ay)*ny;
+		float dv = vx*nx + vy*ny;
+		if(dist*dv < 0) {
+			float t = ((dist > 0 ? r : -r) - dist) / dv;
+			float px = x + t*vx - ax, py = y + t*vy - ay;
+			float proj = px*ex + py*ey;
+			if(t >= 0 && t <= 1 && proj >= 0 && proj <= len2)
+				first = t;
+		}
+
+		// caps
+		float t = circleCircle(x - ax, y - ay, r, vx, vy);
+		if(t >= 0 && (first < 0 || t < first))
+			first = t;
+		t = circleCircle(x - bx, y - by, r, vx, vy);
+		if(t >= 0 && (first < 0 || t < first))
+			first = t;
+
+		return first;
+	}
+}
@@ -0,0 +1,491 @@
+package pinzen.utils.mathsfog;
+
+import java.util.Arrays;
+
+/**
+ * Persistent broad phase (sweep and prune) for moving 2D bounds
+ *
+ * Each proxy is the extent (axis aligned box) of a RectBounds2f or a CircleBounds2D, referenced
+ * by an id. Endpoints on X and Y stay sorted between ticks : update() only moves endpoints of bounds
+ * that moved (insertion sort) and each swap of a min and a max starts or ends an overlap, so a tick
+ * costs about O(n + swaps) when motion is coherent, instead of O(n^2) pair tests.
+ * Overlapping pairs are not listed again each tick : update() reports pairs added and removed.
+ *
+ * Ids of removed proxies are reused by next add().
+ */
+public class SweepAndPrune2f {
+
+	private static final int X = 0, Y = 1;
+	private static final byte FREE = 0, ALIVE = 1, REMOVED = 2;
+	private static final long EMPTY = -1L;
+	// flags of a pair : overlapping now, overlapping at previous update()
+	private static final byte NOW = 1, BEFORE = 2;
+
+	// proxies (by id) : min[axis][id], max[axis][id]
+	private float[][] min = new float[2][], max = new float[2][];
+	private byte[] state;
+	private int[] freeIds;
+	private int freeCount, idCount, pendingAdds, pendingRemovals;
+
+	// endpoints of each axis sorted by value : id*2 for a min, id*2+1 for a max
+	private float[][] endValue = new float[2][];
+	private int[][] endData = new int[2][];
+	private int endCount;
+
+	// overlapping pairs (open addressing) and pairs changed during current update()
+	private long[] pairs;
+	private byte[] flags;
+	private int pairCount, activeCount;
+	private long[] changed = new long[64];
+	private int changedCount;
+
+	// full rebuild
+	private long[] sorted;
+	private int[] open, openPos;
+
+	private final Vertex2f center = new Vertex2f();
+
+	/**
+	 * Create an empty SweepAndPrune2f
+	 * @param capacity : initial number of proxies (grows when needed)
+	 */
+	public SweepAndPrune2f(int capacity) {
+		capacity = Math.max(capacity, 16);
+		for(int axis = X; axis<=Y; axis++) {
+			min[axis] = new float[capacity];
+			max[axis] = new float[capacity];
+			endValue[axis] = new float[capacity * 2];
+			endData[axis] = new int[capacity * 2];
+		}
+		state = new byte[capacity];
+		freeIds = new int[capacity];
+
+		pairs = new long[Integer.highestOneBit(capacity * 2 - 1) << 1];
+		Arrays.fill(pairs, EMPTY);
+		flags = new byte[pairs.length];
+	}
+
+	/**
+	 * @return number of proxies (removed proxies are counted until next update())
+	 */
+	public int size() {
+		return idCount - freeCount;
+	}
+
+	/**
+	 * @return number of overlapping pairs at last update()
+	 */
+	public int getPairCount() {
+		return activeCount;
+	}
+
+	/**
+	 * Call handler for each overlapping pair at last update()
+	 * @param handler : called once for each pair (a < b)
+	 */
+	public void forEachPair(PairHandler handler) {
+		for(int i = 0; i<pairs.length; i++) {
+			if(pairs[i] != EMPTY)
+				handler.onPair((int)(pairs[i] >>> 32), (int)pairs[i]);
+		}
+	}
+
+			/** ----- ----- Proxies ----- ----- **/
+
+	/**
+	 * Add extent of a RectBounds2f
+	 * @param bounds : bounds to add (copied)
+	 * @return id of the proxy
+	 */
+	public int add(RectBounds2f bounds) {
+		return add(bounds.position.x, bounds.position.y,
+				bounds.position.x + bounds.dimension.x, bounds.position.y + bounds.dimension.y);
+	}
+
+	/**
+	 * Add extent of a CircleBounds2D
+	 * @param bounds : bounds to add (copied)
+	 * @return id of the proxy
+	 */
+	public int add(CircleBounds2D bounds) {
+		bounds.getCenter(center);
+		float r = bounds.getRadius();
+		return add(center.x - r, center.y - r, center.x + r, center.y + r);
+	}
+
+	/**
+	 * Add an extent<br>
+	 * Overlaps with the new proxy are reported by next update()
+	 * @return id of the proxy
+	 */
+	public int add(float minX, float minY, float maxX, float maxY) {
+		int id;
+		if(freeCount > 0) {
+			id = freeIds[--freeCount];
+		}
+		else {
+			if(idCount == state.length)
+				grow(idCount * 2);
+			id = idCount++;
+		}
+		state[id] = ALIVE;
+		set(id, minX, minY, maxX, maxY);
+
+		// appended after every endpoint : on the right of everything (no overlap) until sorted
+		for(int axis = X; axis<=Y; axis++) {
+			endData[axis][endCount] = id*2;
+			endData[axis][endCount + 1] = id*2 + 1;
+		}
+		endCount += 2;
+		pendingAdds++;
+		return id;
+	}
+
+	/**
+	 * Move a proxy to the extent of a RectBounds2f
+	 * @param id : id of the proxy
+	 * @param bounds : new bounds
+	 */
+	public void update(int id, RectBounds2f bounds) {
+		update(id, bounds.position.x, bounds.position.y,
+				bounds.position.x + bounds.dimension.x, bounds.position.y + bounds.dimension.y);
+	}
+
+	/**
+	 * Move a proxy to the extent of a CircleBounds2D
+	 * @param id : id of the proxy
+	 * @param bounds : new bounds
+	 */
+	public void update(int id, CircleBounds2D bounds) {
+		bounds.getCenter(center);
+		float r = bounds.getRadius();
+		update(id, center.x - r, center.y - r, center.x + r, center.y + r);
+	}
+
+	/**
+	 * Move a proxy<br>
+	 * Changes of overlaps are reported by next update()
+	 * @param id : id of the proxy
+	 */
+	public void update(int id, float minX, float minY, float maxX, float maxY) {
+		check(id);
+		set(id, minX, minY, maxX, maxY);
+	}
+
+	/**
+	 * Remove a proxy<br>
+	 * Its pairs are reported as removed by next update(), then its id can be reused
+	 * @param id : id of the proxy
+	 */
+	public void remove(int id) {
+		check(id);
+		state[id] = REMOVED;
+		pendingRemovals++;
+	}
+
+	private void set(int id, float minX, float minY, float maxX, float maxY) {
+		if(!(minX <= maxX && minY <= maxY))
+			throw new IllegalArgumentException("Can't use extent (" + minX + "," + minY + ")-(" + maxX + "," + maxY + ")");
+
+		min[X][id] = minX;
+		min[Y][id] = minY;
+		max[X][id] = maxX;
+		max[Y][id] = maxY;
+	}
+
+	private void check(int id) {
+		if(id < 0 || id >= idCount || state[id] != ALIVE)
+			throw new ArrayIndexOutOfBoundsException("Can't reach SweepAndPrune2f proxy " + id);
+	}
+
+	private void grow(int capacity) {
+		for(int axis = X; axis<=Y; axis++) {
+			min[axis] = Arrays.copyOf(min[axis], capacity);
+			max[axis] = Arrays.copyOf(max[axis], capacity);
+			endValue[axis] = Arrays.copyOf(endValue[axis], capacity * 2);
+			endData[axis] = Arrays.copyOf(endData[axis], capacity * 2);
+		}
+		state = Arrays.copyOf(state, capacity);
+		freeIds = Arrays.copyOf(freeIds, capacity);
+	}
+
+			/** ----- ----- Tick ----- ----- **/
+
+	/**
+	 * Sort endpoints again and report changes of overlapping pairs since previous update()<br>
+	 * A pair overlapping only during the tick (added then removed) isn't reported
+	 * @param listener : receives added and removed pairs
+	 */
+	public void update(PairListener listener) {
+		if(pendingRemovals > 0)
+			flushRemovals();
+
+		// many new proxies : insertion sort would be quadratic, sort everything at once
+		if(pendingAdds > 64 && pendingAdds*4 > endCount/2) {
+			rebuild();
+		}
+		else {
+			sort(X);
+			sort(Y);
+		}
+		pendingAdds = 0;
+
+		for(int c = 0; c<changedCount; c++) {
+			int i = find(changed[c]);
+			if(i < 0)
+				continue;
+
+			byte f = flags[i];
+			int a = (int)(pairs[i] >>> 32), b = (int)pairs[i];
+			if(f == NOW) {
+				activeCount++;
+				listener.pairAdded(a, b);
+			}
+			else if(f == BEFORE) {
+				activeCount--;
+				listener.pairRemoved(a, b);
+			}
+
+			if((f & NOW) == 0)
+				deleteSlot(i);
+			else
+				flags[i] = NOW | BEFORE;
+		}
+		changedCount = 0;
+	}
+
+	/**
+	 * Insertion sort of the endpoints of an axis<br>
+	 * A min moving before a max starts an overlap on this axis (pair added if the other axis overlaps),
+	 * a max moving before a min ends it (pair removed)
+	 */
+	private void sort(int axis) {
+		float[] value = endValue[axis], min = this.min[axis], max = this.max[axis];
+		int[] data = endData[axis];
+		float[] otherMin = this.min[1 - axis], otherMax = this.max[1 - axis];
+
+		for(int e = 0; e<endCount; e++) {
+			int d = data[e];
+			value[e] = (d & 1) == 0 ? min[d >> 1] : max[d >> 1];
+		}
+
+		for(int e = 1; e<endCount; e++) {
+			float v = value[e];
+			int d = data[e];
+			int j = e;
+
+			while(j > 0 && before(v, d, value[j-1], data[j-1])) {
+				int prev = data[j-1];
+				int a = d >> 1, b = prev >> 1;
+				if((d & 1) == 0 && (prev & 1) == 1) {
+					if(otherMin[a] <= otherMax[b] && otherMin[b] <= otherMax[a])
+						setPair(a, b, true);
+				}
+				else if((d & 1) == 1 && (prev & 1) == 0) {
+					setPair(a, b, false);
+				}
+
+				value[j] = value[j-1];
+				data[j] = prev;
+				j--;
+			}
+			value[j] = v;
+			data[j] = d;
+		}
+	}
+
+	/**
+	 * Order of endpoints : by value, a min before a max of same value (touching bounds overlap)
+	 */
+	private static boolean before(float value, int data, float prevValue, int prevData) {
+		return value < prevValue || (value == prevValue && (data & 1) == 0 && (prevData & 1) == 1);
+	}
+
+	/**
+	 * Sort every endpoint from scratch then find overlapping pairs by sweeping X
+	 */
+	private void rebuild() {
+		for(int axis = X; axis<=Y; axis++) {
+			float[] value = endValue[axis];
+			int[] data = endData[axis];
+			if(sorted == null || sorted.length < endCount)
+				sorted = new long[data.length];
+
+			// low bits of a packed endpoint : max flag above the id, so a min comes first for the same value
+			for(int e = 0; e<endCount; e++) {
+				int d = data[e];
+				float v = (d & 1) == 0 ? min[axis][d >> 1] : max[axis][d >> 1];
+				sorted[e] = IndexSort.pack(v, ((d & 1) << 30) | (d >> 1));
+			}
+			Arrays.sort(sorted, 0, endCount);
+
+			for(int e = 0; e<endCount; e++) {
+				int packed = IndexSort.index(sorted[e]);
+				int d = ((packed & 0x3FFFFFFF) << 1) | (packed >>> 30);
+				data[e] = d;
+				value[e] = (d & 1) == 0 ? min[axis][d >> 1] : max[axis][d >> 1];
+			}
+		}
+
+		// every known pair is marked as not overlapping, the sweep marks again the overlapping ones
+		for(int i = 0; i<pairs.length; i++) {
+			if(pairs[i] != EMPTY && (flags[i] & NOW) != 0) {
+				flags[i] &= ~NOW;
+				addChanged(pairs[i]);
+			}
+		}
+
+		if(open == null || open.length < state.length) {
+			open = new int[state.length];
+			openPos = new int[state.length];
+		}
+		int openCount = 0;
+		int[] data = endData[X];
+		float[] minY = min[Y], maxY = max[Y];
+		for(int e = 0; e<endCount; e++) {
+			int id = data[e] >> 1;
+			if((data[e] & 1) == 0) {
+				for(int o = 0; o<openCount; o++) {
+					int other = open[o];
+					if(minY[id] <= maxY[other] && minY[other] <= maxY[id])
+						setPair(id, other, true);
+				}
+				openPos[id] = openCount;
+				open[openCount++] = id;
+			}
+			else {
+				int last = open[--openCount];
+				open[openPos[id]] = last;
+				openPos[last] = openPos[id];
+			}
+		}
+	}
+
+	private void flushRemovals() {
+		for(int axis = X; axis<=Y; axis++) {
+			int[] data = endData[axis];
+			int kept = 0;
+			for(int e = 0; e<endCount; e++) {
+				if(state[data[e] >> 1] == ALIVE)
+					data[kept++] = data[e];
+			}
+		}
+		endCount -= pendingRemovals * 2;
+
+		for(int i = 0; i<pairs.length; i++) {
+			long pair = pairs[i];
+			if(pair != EMPTY && (flags[i] & NOW) != 0
+					&& (state[(int)(pair >>> 32)] == REMOVED || state[(int)pair] == REMOVED)) {
+				flags[i] &= ~NOW;
+				addChanged(pair);
+			}
+		}
+
+		for(int id = 0; id<idCount; id++) {
+			if(state[id] == REMOVED) {
+				state[id] = FREE;
+				freeIds[freeCount++] = id;
+			}
+		}
+		pendingRemovals = 0;
+	}
+
+			/** ----- ----- Pairs Set ----- ----- **/
+
+	private int slot(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int)(h >>> 32) & (pairs.length - 1);
+	}
+
+	private int find(long key) {
+		int i = slot(key);
+		while(pairs[i] != EMPTY) {
+			if(pairs[i] == key)
+				return i;
+			i = (i + 1) & (pairs.length - 1);
+		}
+		return -1;
+	}
+
+	/**
+	 * Mark a pair as overlapping or not, the change is reported at the end of update()
+	 */
+	private void setPair(int a, int b, boolean overlap) {
+		if(a == b)
+			return;
+
+		long key = a < b ? ((long)a << 32) | b : ((long)b << 32) | a;
+		int i = find(key);
+		if(i < 0) {
+			if(!overlap)
+				return;
+
+			if((pairCount + 1) * 2 > pairs.length) {
+				rehash(pairs.length * 2);
+			}
+			i = slot(key);
+			while(pairs[i] != EMPTY) {
+				i = (i + 1) & (pairs.length - 1);
+			}
+			pairs[i] = key;
+			flags[i] = 0;
+			pairCount++;
+		}
+
+		byte f = overlap ? (byte)(flags[i] | NOW) : (byte)(flags[i] & ~NOW);
+		if(f != flags[i]) {
+			flags[i] = f;
+			addChanged(key);
+		}
+	}
+
+	private void addChanged(long key) {
+		if(changedCount == changed.length)
+			changed = Arrays.copyOf(changed, changedCount * 2);
+		changed[changedCount++] = key;
+	}
+
+	/**
+	 * Empty a slot and move back following entries of the probe sequence (no tombstone)
+	 */
+	private void deleteSlot(int hole) {
+		int mask = pairs.length - 1;
+		int i = hole;
+		while(true) {
+			i = (i + 1) & mask;
+			if(pairs[i] == EMPTY)
+				break;
+
+			// entry can move to hole if its home slot is not in (hole, i]
+			int home = slot(pairs[i]);
+			if(((i - home) & mask) >= ((i - hole) & mask)) {
+				pairs[hole] = pairs[i];
+				flags[hole] = flags[i];
+				hole = i;
+			}
+		}
+		pairs[hole] = EMPTY;
+		flags[hole] = 0;
+		pairCount--;
+	}
+
+	private void rehash(int capacity) {
+		long[] oldPairs = pairs;
+		byte[] oldFlags = flags;
+		pairs = new long[capacity];
+		Arrays.fill(pairs, EMPTY);
+		flags = new byte[capacity];
+
+		for(int j = 0; j<oldPairs.length; j++) {
+			if(oldPairs[j] == EMPTY)
+				continue;
+
+			int i = slot(oldPairs[j]);
+			while(pairs[i] != EMPTY) {
+				i = (i + 1) & (capacity - 1);
+			}
+			pairs[i] = oldPairs[j];
+			flags[i] = oldFlags[j];
+		}
+	}
+}
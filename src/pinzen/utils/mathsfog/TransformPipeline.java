@@ -0,0 +1,283 @@
+package pinzen.utils.mathsfog;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Streaming transformation of 3D points (x y z as little endian floats, like BatchFile data)
+ *
+ * Points are read by chunks from a channel, transformed by the composition of all given
+ * Matrix4f, optionally filtered by bounds (after transformation) and written to a channel
+ * in the same order.
+ *
+ * Memory usage is constant : 2 chunks per worker are allocated once and recycled,
+ * while workers transform some chunks the next ones are being read.
+ * Channels must be blocking (non blocking SelectableChannel are rejected).
+ *
+ * Example :
+ * new TransformPipeline().transform(scale).transform(translation).filter(bounds).run(in, out);
+ */
+public class TransformPipeline {
+
+	private static final int POINT_SIZE = 12;
+
+	private Matrix4f transform = new Matrix4f();
+	private RectBounds2f rectFilter;
+	private AABB3f boxFilter;
+	private int chunkSize = 1 << 16;
+	private int workers = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Create a TransformPipeline without transformation nor filter
+	 * (chunks of 65536 points, one worker per processor)
+	 */
+	public TransformPipeline() {}
+
+	/**
+	 * Add a transformation applied after the previous ones (same order as Matrix4f.translate/rotate/scale)
+	 * @param m : Matrix4f to apply
+	 * @return this TransformPipeline
+	 */
+	public TransformPipeline transform(Matrix4f m) {
+		transform = Matrix4f.mult(m, transform);
+		return this;
+	}
+
+	/**
+	 * Keep only points whose x and y (after transformation) are in a RectBounds2f
+	 * @param bounds : 2D bounds, null to disable filtering
+	 * @return this TransformPipeline
+	 */
+	public TransformPipeline filter(RectBounds2f bounds) {
+		rectFilter = bounds == null ? null : bounds.clone();
+		return this;
+	}
+
+	/**
+	 * Keep only points (after transformation) in an AABB3f
+	 * @param bounds : 3D bounds, null to disable filtering
+	 * @return this TransformPipeline
+	 */
+	public TransformPipeline filter(AABB3f bounds) {
+		boxFilter = bounds == null ? null : bounds.clone();
+		return this;
+	}
+
+	/**
+	 * Set number of points in each chunk (default 65536)
+	 * @param points : points per chunk
+	 * @return this TransformPipeline
+	 */
+	public TransformPipeline chunkSize(int points) {
+		if(points < 1 || points > Integer.MAX_VALUE / POINT_SIZE)
+			throw new IllegalArgumentException("Can't use chunks of " + points + " points");
+
+		chunkSize = points;
+		return this;
+	}
+
+	/**
+	 * Set number of threads transforming chunks (default number of processors)
+	 * @param threads : number of worker threads
+	 * @return this TransformPipeline
+	 */
+	public TransformPipeline workers(int threads) {
+		if(threads < 1)
+			throw new IllegalArgumentException("Can't use " + threads + " workers");
+
+		workers = threads;
+		return this;
+	}
+
+	/**
+	 * Get the composition of all transformations of this pipeline
+	 * @return new Matrix4f applied to each point
+	 */
+	public Matrix4f getTransform() {
+		return transform.clone();
+	}
+
+	/**
+	 * Read all points from in, transform and filter them then write them to out<br>
+	 * Uses a new pool of worker threads stopped at the end of the run, see run(in, out, executor) to share one<br>
+	 * Channels are not closed
+	 * @param in : blocking channel containing points
+	 * @param out : blocking channel receiving transformed points
+	 * @return number of points written
+	 * @throws IOException if a channel fails or in doesn't contain a whole number of points
+	 */
+	public long run(ReadableByteChannel in, WritableByteChannel out) throws IOException {
+		checkBlocking(in);
+		checkBlocking(out);
+
+		ExecutorService pool = Executors.newFixedThreadPool(workers, r -> {
+			Thread t = new Thread(r, "TransformPipeline worker");
+			t.setDaemon(true);
+			return t;
+		});
+
+		try {
+			return run(in, out, pool);
+		}
+		finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Read all points from in, transform and filter them then write them to out<br>
+	 * Chunks are transformed by an existing executor (not shut down), at most 2*workers chunks are in flight<br>
+	 * Channels are not closed
+	 * @param in : blocking channel containing points
+	 * @param out : blocking channel receiving transformed points
+	 * @param executor : executor running chunk transformations
+	 * @return number of points written
+	 * @throws IOException if a channel fails or in doesn't contain a whole number of points
+	 */
+	public long run(ReadableByteChannel in, WritableByteChannel out, Executor executor) throws IOException {
+		checkBlocking(in);
+		checkBlocking(out);
+
+		final Matrix4f m = getTransform();
+		final RectBounds2f rect = rectFilter == null ? null : rectFilter.clone();
+		final AABB3f box = boxFilter == null ? null : boxFilter.clone();
+
+		ArrayDeque<Chunk> free = new ArrayDeque<>();
+		ArrayDeque<Future<Chunk>> pending = new ArrayDeque<>();
+		for(int i = 0; i<workers*2; i++) {
+			free.add(new Chunk(chunkSize));
+		}
+
+		long written = 0;
+		try {
+			while(true) {
+				Chunk chunk = free.poll();
+				if(chunk == null) {
+					chunk = await(pending.poll());
+					written += chunk.write(out);
+				}
+
+				if(!chunk.read(in)) {
+					free.add(chunk);
+					break;
+				}
+
+				final Chunk c = chunk;
+				FutureTask<Chunk> task = new FutureTask<>(() -> c.process(m, rect, box));
+				pending.add(task);
+				executor.execute(task);
+			}
+
+			while(!pending.isEmpty()) {
+				written += await(pending.poll()).write(out);
+			}
+		}
+		finally {
+			// failed run : chunks still queued are not transformed
+			for(Future<Chunk> future : pending) {
+				future.cancel(true);
+			}
+		}
+
+		return written;
+	}
+
+	private static void checkBlocking(Channel channel) {
+		// a non blocking channel can read or write 0 bytes forever
+		if(channel instanceof SelectableChannel && !((SelectableChannel)channel).isBlocking())
+			throw new IllegalArgumentException("Can't stream points through a non blocking channel");
+	}
+
+	private static Chunk await(Future<Chunk> future) throws IOException {
+		try {
+			return future.get();
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("TransformPipeline interrupted");
+		}
+		catch(ExecutionException e) {
+			throw new IOException("Can't transform chunk", e.getCause());
+		}
+	}
+
+	/**
+	 * A chunk of points : raw bytes for the channels and floats for the computation
+	 */
+	private static class Chunk {
+
+		private final ByteBuffer bytes;
+		private final float[] points;
+		private int count;
+
+		private Chunk(int size) {
+			bytes = ByteBuffer.allocateDirect(size * POINT_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			points = new float[size * 3];
+		}
+
+		/**
+		 * Fill this chunk from a channel
+		 * @return false if the channel has no more points
+		 */
+		private boolean read(ReadableByteChannel in) throws IOException {
+			bytes.clear();
+			while(bytes.hasRemaining()) {
+				if(in.read(bytes) < 0)
+					break;
+			}
+			bytes.flip();
+
+			if(bytes.remaining() % POINT_SIZE != 0)
+				throw new IOException("Can't read points : stream ends with a truncated point");
+
+			count = bytes.remaining() / POINT_SIZE;
+			return count > 0;
+		}
+
+		private Chunk process(Matrix4f m, RectBounds2f rect, AABB3f box) {
+			bytes.asFloatBuffer().get(points, 0, count*3);
+			m.transformPoints(points, 0, count);
+
+			if(rect != null || box != null) {
+				int kept = 0;
+				for(int i = 0; i<count*3; i+=3) {
+					float x = points[i], y = points[i+1], z = points[i+2];
+					if(rect != null && !rect.contains(x, y))
+						continue;
+					if(box != null && !box.contains(x, y, z))
+						continue;
+
+					points[kept++] = x;
+					points[kept++] = y;
+					points[kept++] = z;
+				}
+				count = kept / 3;
+			}
+
+			bytes.clear();
+			bytes.asFloatBuffer().put(points, 0, count*3);
+			bytes.limit(count * POINT_SIZE);
+			return this;
+		}
+
+		private int write(WritableByteChannel out) throws IOException {
+			while(bytes.hasRemaining()) {
+				out.write(bytes);
+			}
+			return count;
+		}
+	}
+}
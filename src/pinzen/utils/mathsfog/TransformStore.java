@@ -0,0 +1,173 @@
+package pinzen.utils.mathsfog;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Transforms (Matrix4f) of entities shared between one writer thread (simulation)
+ * and one reader thread (rendering) without lock
+ *
+ * Storage : triple buffering, each buffer is a flat float array (16 floats per entity, column major)
+ * - the writer fills its back buffer with set() then calls publish() once per frame
+ * - the reader calls acquire() to get the last published frame
+ * Buffers are exchanged with a single atomic swap, a Snapshot is never modified while
+ * the reader uses it (no torn read) and the writer never waits for the reader.
+ *
+ * Only one writer thread and one reader thread can use a TransformStore.
+ */
+public class TransformStore {
+
+	private static final int INDEX_MASK = 3;
+	private static final int NEW_FRAME = 4;
+
+	private final int capacity;
+	private final float[][] buffers = new float[3][];
+	private final long[] frames = new long[3];
+	private final Snapshot[] snapshots = new Snapshot[3];
+
+	// index of the buffer between writer and reader, with NEW_FRAME flag when it wasn't read yet
+	private final AtomicInteger middle = new AtomicInteger(1);
+
+	// owned by the writer thread
+	private int writeIndex = 0;
+	private long frame = 0;
+
+	// owned by the reader thread
+	private int readIndex = 2;
+
+	/**
+	 * Create a TransformStore where every transform is identity
+	 * @param capacity : number of entities (ids from 0 to capacity-1)
+	 */
+	public TransformStore(int capacity) {
+		if(capacity < 0 || capacity > Integer.MAX_VALUE / 16)
+			throw new IllegalArgumentException("Can't create a TransformStore of " + capacity + " entities");
+
+		this.capacity = capacity;
+		for(int b = 0; b<3; b++) {
+			buffers[b] = new float[capacity * 16];
+			for(int i = 0; i<capacity*16; i+=16) {
+				buffers[b][i] = buffers[b][i+5] = buffers[b][i+10] = buffers[b][i+15] = 1;
+			}
+			snapshots[b] = new Snapshot(b);
+		}
+	}
+
+	/**
+	 * @return number of entities in this store
+	 */
+	public int capacity() {
+		return capacity;
+	}
+
+			/** ----- ----- Writer thread ----- ----- **/
+
+	/**
+	 * Set the transform of an entity for the next published frame (writer thread only)
+	 * @param entity : id of the entity
+	 * @param m : new transform of the entity
+	 */
+	public void set(int entity, Matrix4f m) {
+		m.store(buffers[writeIndex], offset(entity));
+	}
+
+	/**
+	 * Set the transform of an entity for the next published frame (writer thread only)
+	 * @param entity : id of the entity
+	 * @param src : array containing the 16 elements (column major)
+	 * @param srcOffset : index of m11 in src
+	 */
+	public void set(int entity, float[] src, int srcOffset) {
+		System.arraycopy(src, srcOffset, buffers[writeIndex], offset(entity), 16);
+	}
+
+	/**
+	 * Get the transform of an entity in the frame being written (writer thread only)
+	 * @param entity : id of the entity
+	 * @param dest : Matrix4f receiving the transform
+	 * @return dest
+	 */
+	public Matrix4f get(int entity, Matrix4f dest) {
+		dest.load(buffers[writeIndex], offset(entity));
+		return dest;
+	}
+
+	/**
+	 * Publish the frame being written (writer thread only)<br>
+	 * The next frame starts as a copy of the published one, entities which are not set keep their transform
+	 * @return number of the published frame (1 for the first one)
+	 */
+	public long publish() {
+		int published = writeIndex;
+		frames[published] = ++frame;
+
+		writeIndex = middle.getAndSet(published | NEW_FRAME) & INDEX_MASK;
+
+		System.arraycopy(buffers[published], 0, buffers[writeIndex], 0, capacity * 16);
+		return frame;
+	}
+
+			/** ----- ----- Reader thread ----- ----- **/
+
+	/**
+	 * Get the last published frame (reader thread only)<br>
+	 * The returned Snapshot stays valid until the next call of acquire()
+	 * @return Snapshot of the last published frame (frame 0 with identity transforms if nothing was published)
+	 */
+	public Snapshot acquire() {
+		if((middle.get() & NEW_FRAME) != 0)
+			readIndex = middle.getAndSet(readIndex) & INDEX_MASK;
+
+		return snapshots[readIndex];
+	}
+
+	private int offset(int entity) {
+		if(entity < 0 || entity >= capacity)
+			throw new ArrayIndexOutOfBoundsException("Can't reach entity " + entity + " of a TransformStore of " + capacity + " entities");
+
+		return entity * 16;
+	}
+
+	/**
+	 * Read only view of a published frame
+	 */
+	public class Snapshot {
+
+		private final int index;
+
+		private Snapshot(int index) {
+			this.index = index;
+		}
+
+		/**
+		 * @return number of this frame (0 if nothing was published)
+		 */
+		public long getFrame() {
+			return frames[index];
+		}
+
+		/**
+		 * Get the transform of an entity
+		 * @param entity : id of the entity
+		 * @param dest : Matrix4f receiving the transform
+		 * @return dest
+		 */
+		public Matrix4f get(int entity, Matrix4f dest) {
+			dest.load(buffers[index], offset(entity));
+			return dest;
+		}
+
+		/**
+		 * Copy the transforms of several entities in an array (16 floats per entity, column major)
+		 * @param firstEntity : id of the first entity to copy
+		 * @param count : number of entities to copy
+		 * @param dest : array receiving the transforms
+		 * @param destOffset : index in dest of m11 of the first entity
+		 */
+		public void copy(int firstEntity, int count, float[] dest, int destOffset) {
+			if(firstEntity < 0 || count < 0 || firstEntity + count > capacity)
+				throw new ArrayIndexOutOfBoundsException("Can't reach entities [" + firstEntity + "," + (firstEntity + count) + "[ of a TransformStore of " + capacity + " entities");
+
+			System.arraycopy(buffers[index], firstEntity * 16, dest, destOffset, count * 16);
+		}
+	}
+}
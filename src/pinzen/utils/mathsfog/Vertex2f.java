@@ -1,5 +1,7 @@
 package pinzen.utils.mathsfog;
 
+import pinzen.utils.mathsfog.MathsProfiler.Operation;
+
 /**
  * Represents a Vector/Vertex with 2 float components (x and y)
  */
@@ -13,6 +15,9 @@ public class Vertex2f {
 	 * @param y : component in the Y axis
 	 */
 	public Vertex2f(float x, float y) {
+		if(MathsProfiler.ENABLED)
+			MathsProfiler.count(Operation.VERTEX2F_ALLOC);
+		
 		this.x = x;
 		this.y = y;
 	}
@@ -39,6 +44,9 @@ public class Vertex2f {
 	 * @param inDegrees : true if angle in degrees, false if angle in radians
 	 */
 	public Vertex2f(float norm, float ang, boolean inDegrees) {
+		if(MathsProfiler.ENABLED)
+			MathsProfiler.count(Operation.VERTEX2F_ALLOC);
+		
 		float angle = inDegrees ? (float)(ang*2f*Math.PI/180f) : ang;
 		
 		this.x = (float)(norm*Math.cos(angle));
@@ -142,6 +150,9 @@ public class Vertex2f {
 	 * @return new normalized Vertex2f
 	 */
 	public static Vertex2f normalize(Vertex2f v) {
+		if(MathsProfiler.ENABLED)
+			MathsProfiler.count(Operation.VERTEX2F_NORMALIZE);
+		
 		return scale(v, 1/v.getNorm());
 	}
 	
@@ -151,7 +162,10 @@ public class Vertex2f {
 	 * @param angle : angle in degrees
 	 * @return new rotated Vertex2f
 	 */
-	public static Vertex2f rotate(Vertex2f v, float angle) {		
+	public static Vertex2f rotate(Vertex2f v, float angle) {
+		if(MathsProfiler.ENABLED)
+			MathsProfiler.count(Operation.VERTEX2F_ROTATE);
+		
 		return new Vertex2f(v.getNorm(), v.getAngle() + angle, true);
 	}
 	
@@ -162,6 +176,9 @@ public class Vertex2f {
 	 * @return new rotated Vertex2f
 	 */
 	public static Vertex2f rotateRads(Vertex2f v, float angleRads) {
+		if(MathsProfiler.ENABLED)
+			MathsProfiler.count(Operation.VERTEX2F_ROTATE);
+		
 		return new Vertex2f(v.getNorm(), v.getAngleRads() + angleRads, false);
 	}
 	
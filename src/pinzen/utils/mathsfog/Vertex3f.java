@@ -1,5 +1,7 @@
 package pinzen.utils.mathsfog;
 
+import pinzen.utils.mathsfog.MathsProfiler.Operation;
+
 /**
  * Represents a Vector/Vertex with 3 float components (x, y and z)
  */
@@ -14,6 +16,9 @@ public class Vertex3f {
 	 * @param y : component in the Z axis
 	 */
 	public Vertex3f(float x, float y, float z) {
+		if(MathsProfiler.ENABLED)
+			MathsProfiler.count(Operation.VERTEX3F_ALLOC);
+		
 		this.x = x;
 		this.y = y;
 		this.z = z;
@@ -124,6 +129,9 @@ public class Vertex3f {
 	 * @return new normalized Vertex3f
 	 */
 	public static Vertex3f normalize(Vertex3f v) {
+		if(MathsProfiler.ENABLED)
+			MathsProfiler.count(Operation.VERTEX3F_NORMALIZE);
+		
 		return scale(v, 1/v.norm());
 	}
 	
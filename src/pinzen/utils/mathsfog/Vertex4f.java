@@ -1,5 +1,7 @@
 package pinzen.utils.mathsfog;
 
+import pinzen.utils.mathsfog.MathsProfiler.Operation;
+
 /**
  * Represents a Vector/Vertex with 4 float components (x, y, z and w)
  */
@@ -15,6 +17,9 @@ public class Vertex4f {
 	 * @param y : component in the W axis (welcome to 4th dimension !)
 	 */
 	public Vertex4f(float x, float y, float z, float w) {
+		if(MathsProfiler.ENABLED)
+			MathsProfiler.count(Operation.VERTEX4F_ALLOC);
+		
 		this.x = x;
 		this.y = y;
 		this.z = z;
@@ -134,6 +139,9 @@ public class Vertex4f {
 	 * @return new normalized Vertex4f
 	 */
 	public static Vertex4f normalize(Vertex4f v) {
+		if(MathsProfiler.ENABLED)
+			MathsProfiler.count(Operation.VERTEX4F_NORMALIZE);
+		
 		return scale(v, 1/v.norm());
 	}
 	
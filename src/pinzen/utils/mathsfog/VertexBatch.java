@@ -0,0 +1,214 @@
+package pinzen.utils.mathsfog;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * Represents a batch of vertices stored as raw floats (x1 y1 z1 x2 y2 z2 ...)
+ *
+ * Dimension : 2, 3 or 4 components per vertex
+ * Storage : FloatBuffer (direct native buffer, wrapped array or memory-mapped file, see BatchFile)
+ *
+ * Vertices are accessed with 0 based indexes (like an array)
+ */
+public class VertexBatch {
+
+	private final FloatBuffer data;
+	private final int dimension;
+	private final int count;
+
+	/**
+	 * Create a VertexBatch of count vertices set to 0<br>
+	 * Uses a direct buffer in native order (can be given as is to OpenGL)
+	 * @param dimension : number of components of each vertex (2, 3 or 4)
+	 * @param count : number of vertices
+	 */
+	public VertexBatch(int dimension, int count) {
+		this(ByteBuffer.allocateDirect(checkSize(dimension, count) * 4).order(ByteOrder.nativeOrder()).asFloatBuffer(), dimension, count);
+	}
+
+	/**
+	 * Create a VertexBatch over an existing buffer (no copy)
+	 * @param data : buffer containing dimension*count floats from index 0
+	 * @param dimension : number of components of each vertex (2, 3 or 4)
+	 * @param count : number of vertices
+	 */
+	VertexBatch(FloatBuffer data, int dimension, int count) {
+		if(data.capacity() < checkSize(dimension, count))
+			throw new IllegalArgumentException("Can't store " + count + " vertices in a buffer of " + data.capacity() + " floats");
+
+		this.data = data;
+		this.dimension = dimension;
+		this.count = count;
+	}
+
+	/**
+	 * Create a VertexBatch using an existing array (no copy, changes are shared)
+	 * @param array : flat array of components (x1 y1 z1 x2 y2 z2 ...)
+	 * @param dimension : number of components of each vertex (2, 3 or 4)
+	 * @return new VertexBatch backed by the array
+	 */
+	public static VertexBatch wrap(float[] array, int dimension) {
+		return new VertexBatch(FloatBuffer.wrap(array), dimension, array.length / dimension);
+	}
+
+	private static int checkSize(int dimension, int count) {
+		if(dimension < 2 || dimension > 4)
+			throw new IllegalArgumentException("Can't create a VertexBatch of dimension " + dimension);
+		if(count < 0 || (long)dimension * count > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Can't create a VertexBatch of " + count + " vertices");
+
+		return dimension * count;
+	}
+
+	/**
+	 * Output "VertexBatch(dimension,count)"
+	 */
+	public String toString() {
+		return "VertexBatch(" + dimension + "," + count + ")";
+	}
+
+	/**
+	 * @return number of components of each vertex (2, 3 or 4)
+	 */
+	public int getDimension() {
+		return dimension;
+	}
+
+	/**
+	 * @return number of vertices in this batch
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * @return true if the batch can't be modified (read only mapping for example)
+	 */
+	public boolean isReadOnly() {
+		return data.isReadOnly();
+	}
+
+	/**
+	 * Get a view of the underlying buffer (position 0, limit dimension*size)<br>
+	 * Changes made through the view are visible in this batch
+	 * @return new FloatBuffer sharing the content of this batch
+	 */
+	public FloatBuffer getBuffer() {
+		FloatBuffer view = data.duplicate();
+		view.clear();
+		view.limit(dimension * count);
+		return view;
+	}
+
+	/**
+	 * Get one component of a vertex<br>
+	 * NB : component follows maths convention (x=1, y=2, z=3, w=4) like Vertex.get
+	 * @param index : index of the vertex (0 for first one)
+	 * @param component : component of the vertex
+	 * @return value of the component
+	 */
+	public float get(int index, int component) {
+		return data.get(offset(index, component));
+	}
+
+	/**
+	 * Set one component of a vertex<br>
+	 * NB : component follows maths convention (x=1, y=2, z=3, w=4) like Vertex.set
+	 * @param index : index of the vertex (0 for first one)
+	 * @param component : component of the vertex
+	 * @param value : new value of the component
+	 */
+	public void set(int index, int component, float value) {
+		data.put(offset(index, component), value);
+	}
+
+	private int offset(int index, int component) {
+		if(index < 0 || index >= count || component < 1 || component > dimension)
+			throw new ArrayIndexOutOfBoundsException("Can't reach VertexBatch[" + index + "][" + component + "]");
+
+		return index * dimension + component - 1;
+	}
+
+	/**
+	 * Copy a vertex of this batch in an existing Vertex2f (extra components are ignored)
+	 * @param index : index of the vertex
+	 * @param dest : Vertex2f receiving the components
+	 * @return dest
+	 */
+	public Vertex2f get(int index, Vertex2f dest) {
+		int i = offset(index, 1);
+		dest.x = data.get(i);
+		dest.y = data.get(i+1);
+		return dest;
+	}
+
+	/**
+	 * Copy a vertex of this batch in an existing Vertex3f<br>
+	 * (extra components are ignored, missing ones are set to 0)
+	 * @param index : index of the vertex
+	 * @param dest : Vertex3f receiving the components
+	 * @return dest
+	 */
+	public Vertex3f get(int index, Vertex3f dest) {
+		int i = offset(index, 1);
+		dest.x = data.get(i);
+		dest.y = data.get(i+1);
+		dest.z = dimension > 2 ? data.get(i+2) : 0;
+		return dest;
+	}
+
+	/**
+	 * Copy a vertex of this batch in an existing Vertex4f (missing components are set to 0)
+	 * @param index : index of the vertex
+	 * @param dest : Vertex4f receiving the components
+	 * @return dest
+	 */
+	public Vertex4f get(int index, Vertex4f dest) {
+		int i = offset(index, 1);
+		dest.x = data.get(i);
+		dest.y = data.get(i+1);
+		dest.z = dimension > 2 ? data.get(i+2) : 0;
+		dest.w = dimension > 3 ? data.get(i+3) : 0;
+		return dest;
+	}
+
+	/**
+	 * Set a vertex of this batch using a Vertex2f (other components are set to 0)
+	 * @param index : index of the vertex
+	 * @param v : new value of the vertex
+	 */
+	public void set(int index, Vertex2f v) {
+		set(index, v.x, v.y, 0, 0);
+	}
+
+	/**
+	 * Set a vertex of this batch using a Vertex3f<br>
+	 * (extra components are ignored, missing ones are set to 0)
+	 * @param index : index of the vertex
+	 * @param v : new value of the vertex
+	 */
+	public void set(int index, Vertex3f v) {
+		set(index, v.x, v.y, v.z, 0);
+	}
+
+	/**
+	 * Set a vertex of this batch using a Vertex4f (extra components are ignored)
+	 * @param index : index of the vertex
+	 * @param v : new value of the vertex
+	 */
+	public void set(int index, Vertex4f v) {
+		set(index, v.x, v.y, v.z, v.w);
+	}
+
+	private void set(int index, float x, float y, float z, float w) {
+		int i = offset(index, 1);
+		data.put(i, x);
+		data.put(i+1, y);
+		if(dimension > 2)
+			data.put(i+2, z);
+		if(dimension > 3)
+			data.put(i+3, w);
+	}
+}
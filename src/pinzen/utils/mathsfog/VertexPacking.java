@@ -0,0 +1,455 @@
+package pinzen.utils.mathsfog;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * Compact storage of vertex components (GPU buffers, network payloads)
+ *
+ * half : 16 bits float (IEEE 754 binary16, about 3 significant digits, up to 65504)
+ * snorm16 / snorm8 : value in [-1, 1] stored as a signed 16 / 8 bits integer (GL_SHORT / GL_BYTE normalized)
+ * octahedral : unit normal stored as 2 snorm16 (4 bytes) or 2 snorm8 (2 bytes) instead of 3 floats (12 bytes)
+ *
+ * Batch functions read/write ByteBuffers from their current position (and move it),
+ * with the byte order of the buffer. Each call converts by chunks of 1024 values through 2 small
+ * arrays allocated by the call (about 8KB whatever the batch size).
+ * Snorm decoding uses BatchKernels (Vector API in the Java 21+ layer), other conversions are scalar :
+ * Math.round and the half float rounding have no lane by lane identical vector version.
+ */
+public final class VertexPacking {
+
+	private static final int CHUNK = 1024;
+
+	private VertexPacking() {}
+
+			/** ----- ----- Half Float ----- ----- **/
+
+	/**
+	 * Convert a float to a half float (rounded to nearest even)
+	 * @param f : float to convert (overflows to infinity)
+	 * @return bits of the half float
+	 */
+	public static short toHalf(float f) {
+		int bits = Float.floatToRawIntBits(f);
+		int sign = (bits >>> 16) & 0x8000;
+		int abs = bits & 0x7FFFFFFF;
+
+		// too big for a half (>= 65536) : infinity, or NaN
+		if(abs >= 0x47800000)
+			return (short)(sign | (abs > 0x7F800000 ? 0x7E00 : 0x7C00));
+
+		// subnormal half : the float addition does the rounding
+		if(abs < 0x38800000)
+			return (short)(sign | (Float.floatToRawIntBits(Float.intBitsToFloat(abs) + 0.5f) - 0x3F000000));
+
+		// rebias exponent, round mantissa to nearest even (a carry can reach infinity)
+		int odd = (abs >>> 13) & 1;
+		abs += ((15 - 127) << 23) + 0xFFF + odd;
+		return (short)(sign | (abs >>> 13));
+	}
+
+	/**
+	 * Convert a half float to a float (exact)
+	 * @param half : bits of the half float
+	 * @return float value
+	 */
+	public static float fromHalf(short half) {
+		int h = half & 0xFFFF;
+		int sign = (h & 0x8000) << 16;
+		int exp = (h >>> 10) & 0x1F;
+		int mantissa = h & 0x3FF;
+
+		if(exp == 0x1F)
+			return Float.intBitsToFloat(sign | 0x7F800000 | (mantissa << 13));
+		if(exp == 0) {
+			float f = mantissa * 0x1p-24f;
+			return sign == 0 ? f : -f;
+		}
+		return Float.intBitsToFloat(sign | ((exp + 112) << 23) | (mantissa << 13));
+	}
+
+			/** ----- ----- Normalized Integers ----- ----- **/
+
+	/**
+	 * Convert a value in [-1, 1] (clamped) to a snorm16
+	 */
+	public static short toSnorm16(float f) {
+		return (short)Math.round(Math.max(-1f, Math.min(1f, f)) * 32767);
+	}
+
+	/**
+	 * Convert a snorm16 to a value in [-1, 1]
+	 */
+	public static float fromSnorm16(short s) {
+		return Math.max(s / 32767f, -1f);
+	}
+
+	/**
+	 * Convert a value in [-1, 1] (clamped) to a snorm8
+	 */
+	public static byte toSnorm8(float f) {
+		return (byte)Math.round(Math.max(-1f, Math.min(1f, f)) * 127);
+	}
+
+	/**
+	 * Convert a snorm8 to a value in [-1, 1]
+	 */
+	public static float fromSnorm8(byte s) {
+		return Math.max(s / 127f, -1f);
+	}
+
+			/** ----- ----- Octahedral Normals ----- ----- **/
+
+	/**
+	 * Encode a normal on the octahedron, as 2 snorm16
+	 * @param normal : unit vector (doesn't need to be exactly normalized), a zero or NaN normal is encoded as +Z
+	 * @return u in the 16 low bits, v in the 16 high bits
+	 */
+	public static int toOctahedral16(Vertex3f normal) {
+		float u = octahedralU(normal.x, normal.y, normal.z), v = octahedralV(normal.x, normal.y, normal.z);
+		return (toSnorm16(u) & 0xFFFF) | (toSnorm16(v) << 16);
+	}
+
+	/**
+	 * Decode a normal encoded by toOctahedral16
+	 * @param packed : u in the 16 low bits, v in the 16 high bits
+	 * @param dest : Vertex3f receiving the unit normal
+	 * @return dest
+	 */
+	public static Vertex3f fromOctahedral16(int packed, Vertex3f dest) {
+		return octahedralDecode(fromSnorm16((short)packed), fromSnorm16((short)(packed >> 16)), dest);
+	}
+
+	/**
+	 * Encode a normal on the octahedron, as 2 snorm8
+	 * @param normal : unit vector (doesn't need to be exactly normalized), a zero or NaN normal is encoded as +Z
+	 * @return u in the 8 low bits, v in the 8 high bits
+	 */
+	public static short toOctahedral8(Vertex3f normal) {
+		float u = octahedralU(normal.x, normal.y, normal.z), v = octahedralV(normal.x, normal.y, normal.z);
+		return (short)((toSnorm8(u) & 0xFF) | (toSnorm8(v) << 8));
+	}
+
+	/**
+	 * Decode a normal encoded by toOctahedral8
+	 * @param packed : u in the 8 low bits, v in the 8 high bits
+	 * @param dest : Vertex3f receiving the unit normal
+	 * @return dest
+	 */
+	public static Vertex3f fromOctahedral8(short packed, Vertex3f dest) {
+		return octahedralDecode(fromSnorm8((byte)packed), fromSnorm8((byte)(packed >> 8)), dest);
+	}
+
+	/**
+	 * Project (x, y, z) on the octahedron |u|+|v|+|w| = 1 then fold the lower half (z < 0) on the outside<br>
+	 * A zero or NaN vector gives (0, 0) : +Z once decoded
+	 */
+	private static float octahedralU(float x, float y, float z) {
+		float l1 = Math.abs(x) + Math.abs(y) + Math.abs(z);
+		if(!(l1 > 0))
+			return 0;
+
+		float invL1 = 1f / l1;
+		float u = x * invL1, v = y * invL1;
+		return z >= 0 ? u : (1 - Math.abs(v)) * (u >= 0 ? 1 : -1);
+	}
+
+	private static float octahedralV(float x, float y, float z) {
+		float l1 = Math.abs(x) + Math.abs(y) + Math.abs(z);
+		if(!(l1 > 0))
+			return 0;
+
+		float invL1 = 1f / l1;
+		float u = x * invL1, v = y * invL1;
+		return z >= 0 ? v : (1 - Math.abs(u)) * (v >= 0 ? 1 : -1);
+	}
+
+	private static Vertex3f octahedralDecode(float u, float v, Vertex3f dest) {
+		float z = 1 - Math.abs(u) - Math.abs(v);
+		float fold = Math.max(-z, 0);
+		float x = u + (u >= 0 ? -fold : fold);
+		float y = v + (v >= 0 ? -fold : fold);
+		float invNorm = 1f / (float)Math.sqrt(x*x + y*y + z*z);
+
+		dest.x = x * invNorm;
+		dest.y = y * invNorm;
+		dest.z = z * invNorm;
+		return dest;
+	}
+
+			/** ----- ----- Batches ----- ----- **/
+
+	/**
+	 * Write every component of a batch as half floats (2 bytes per component)
+	 * @param src : vertices to encode
+	 * @param dest : buffer receiving size*dimension*2 bytes
+	 */
+	public static void encodeHalf(VertexBatch src, ByteBuffer dest) {
+		int total = src.size() * src.getDimension();
+		ShortBuffer out = output(dest, total, 2).asShortBuffer();
+		FloatBuffer in = src.getBuffer();
+		float[] f = new float[CHUNK];
+		short[] s = new short[CHUNK];
+
+		for(int done = 0; done<total; done += CHUNK) {
+			int n = Math.min(CHUNK, total - done);
+			in.get(f, 0, n);
+			for(int i = 0; i<n; i++) {
+				s[i] = toHalf(f[i]);
+			}
+			out.put(s, 0, n);
+		}
+		dest.position(dest.position() + total*2);
+	}
+
+	/**
+	 * Read half floats written by encodeHalf
+	 * @param src : buffer containing size*dimension*2 bytes
+	 * @param dest : batch receiving the vertices
+	 */
+	public static void decodeHalf(ByteBuffer src, VertexBatch dest) {
+		int total = dest.size() * dest.getDimension();
+		ShortBuffer in = input(src, total, 2).asShortBuffer();
+		FloatBuffer out = dest.getBuffer();
+		float[] f = new float[CHUNK];
+		short[] s = new short[CHUNK];
+
+		for(int done = 0; done<total; done += CHUNK) {
+			int n = Math.min(CHUNK, total - done);
+			in.get(s, 0, n);
+			for(int i = 0; i<n; i++) {
+				f[i] = fromHalf(s[i]);
+			}
+			out.put(f, 0, n);
+		}
+		src.position(src.position() + total*2);
+	}
+
+	/**
+	 * Write every component of a batch as snorm16 (2 bytes per component)
+	 * @param src : vertices to encode
+	 * @param range : components are divided by range (use the biggest absolute value of the batch),
+	 * values out of [-range, range] are clamped
+	 * @param dest : buffer receiving size*dimension*2 bytes
+	 */
+	public static void encodeSnorm16(VertexBatch src, float range, ByteBuffer dest) {
+		int total = src.size() * src.getDimension();
+		ShortBuffer out = output(dest, total, 2).asShortBuffer();
+		FloatBuffer in = src.getBuffer();
+		float[] f = new float[CHUNK];
+		short[] s = new short[CHUNK];
+		float scale = 32767 / range;
+
+		for(int done = 0; done<total; done += CHUNK) {
+			int n = Math.min(CHUNK, total - done);
+			in.get(f, 0, n);
+			for(int i = 0; i<n; i++) {
+				s[i] = (short)Math.round(Math.max(-32767f, Math.min(32767f, f[i] * scale)));
+			}
+			out.put(s, 0, n);
+		}
+		dest.position(dest.position() + total*2);
+	}
+
+	/**
+	 * Read snorm16 written by encodeSnorm16
+	 * @param src : buffer containing size*dimension*2 bytes
+	 * @param range : range used to encode
+	 * @param dest : batch receiving the vertices
+	 */
+	public static void decodeSnorm16(ByteBuffer src, float range, VertexBatch dest) {
+		int total = dest.size() * dest.getDimension();
+		ShortBuffer in = input(src, total, 2).asShortBuffer();
+		FloatBuffer out = dest.getBuffer();
+		float[] f = new float[CHUNK];
+		short[] s = new short[CHUNK];
+		float scale = range / 32767;
+
+		for(int done = 0; done<total; done += CHUNK) {
+			int n = Math.min(CHUNK, total - done);
+			in.get(s, 0, n);
+			BatchKernels.snorm16ToFloat(s, f, n, scale);
+			out.put(f, 0, n);
+		}
+		src.position(src.position() + total*2);
+	}
+
+	/**
+	 * Write every component of a batch as snorm8 (1 byte per component)
+	 * @param src : vertices to encode
+	 * @param range : components are divided by range (use the biggest absolute value of the batch),
+	 * values out of [-range, range] are clamped
+	 * @param dest : buffer receiving size*dimension bytes
+	 */
+	public static void encodeSnorm8(VertexBatch src, float range, ByteBuffer dest) {
+		int total = src.size() * src.getDimension();
+		ByteBuffer out = output(dest, total, 1);
+		FloatBuffer in = src.getBuffer();
+		float[] f = new float[CHUNK];
+		byte[] b = new byte[CHUNK];
+		float scale = 127 / range;
+
+		for(int done = 0; done<total; done += CHUNK) {
+			int n = Math.min(CHUNK, total - done);
+			in.get(f, 0, n);
+			for(int i = 0; i<n; i++) {
+				b[i] = (byte)Math.round(Math.max(-127f, Math.min(127f, f[i] * scale)));
+			}
+			out.put(b, 0, n);
+		}
+		dest.position(dest.position() + total);
+	}
+
+	/**
+	 * Read snorm8 written by encodeSnorm8
+	 * @param src : buffer containing size*dimension bytes
+	 * @param range : range used to encode
+	 * @param dest : batch receiving the vertices
+	 */
+	public static void decodeSnorm8(ByteBuffer src, float range, VertexBatch dest) {
+		int total = dest.size() * dest.getDimension();
+		ByteBuffer in = input(src, total, 1);
+		FloatBuffer out = dest.getBuffer();
+		float[] f = new float[CHUNK];
+		byte[] b = new byte[CHUNK];
+		float scale = range / 127;
+
+		for(int done = 0; done<total; done += CHUNK) {
+			int n = Math.min(CHUNK, total - done);
+			in.get(b, 0, n);
+			BatchKernels.snorm8ToFloat(b, f, n, scale);
+			out.put(f, 0, n);
+		}
+		src.position(src.position() + total);
+	}
+
+	/**
+	 * Write normals as octahedral snorm16 (4 bytes per normal, same as toOctahedral16)
+	 * @param normals : batch of dimension 3
+	 * @param dest : buffer receiving size*4 bytes
+	 */
+	public static void encodeOctahedral(VertexBatch normals, ByteBuffer dest) {
+		checkNormals(normals);
+		int count = normals.size();
+		IntBuffer out = output(dest, count, 4).asIntBuffer();
+		FloatBuffer in = normals.getBuffer();
+		float[] f = new float[CHUNK*3];
+		int[] packed = new int[CHUNK];
+
+		for(int done = 0; done<count; done += CHUNK) {
+			int n = Math.min(CHUNK, count - done);
+			in.get(f, 0, n*3);
+			for(int i = 0; i<n; i++) {
+				float x = f[i*3], y = f[i*3+1], z = f[i*3+2];
+				packed[i] = (toSnorm16(octahedralU(x, y, z)) & 0xFFFF) | (toSnorm16(octahedralV(x, y, z)) << 16);
+			}
+			out.put(packed, 0, n);
+		}
+		dest.position(dest.position() + count*4);
+	}
+
+	/**
+	 * Read normals written by encodeOctahedral (same as fromOctahedral16)
+	 * @param src : buffer containing size*4 bytes
+	 * @param normals : batch of dimension 3 receiving unit normals
+	 */
+	public static void decodeOctahedral(ByteBuffer src, VertexBatch normals) {
+		checkNormals(normals);
+		int count = normals.size();
+		IntBuffer in = input(src, count, 4).asIntBuffer();
+		FloatBuffer out = normals.getBuffer();
+		float[] f = new float[CHUNK*3];
+		int[] packed = new int[CHUNK];
+		Vertex3f normal = new Vertex3f();
+
+		for(int done = 0; done<count; done += CHUNK) {
+			int n = Math.min(CHUNK, count - done);
+			in.get(packed, 0, n);
+			for(int i = 0; i<n; i++) {
+				fromOctahedral16(packed[i], normal);
+				f[i*3] = normal.x;
+				f[i*3+1] = normal.y;
+				f[i*3+2] = normal.z;
+			}
+			out.put(f, 0, n*3);
+		}
+		src.position(src.position() + count*4);
+	}
+
+	/**
+	 * Write normals as octahedral snorm8 (2 bytes per normal, same as toOctahedral8)
+	 * @param normals : batch of dimension 3
+	 * @param dest : buffer receiving size*2 bytes
+	 */
+	public static void encodeOctahedral8(VertexBatch normals, ByteBuffer dest) {
+		checkNormals(normals);
+		int count = normals.size();
+		ShortBuffer out = output(dest, count, 2).asShortBuffer();
+		FloatBuffer in = normals.getBuffer();
+		float[] f = new float[CHUNK*3];
+		short[] packed = new short[CHUNK];
+
+		for(int done = 0; done<count; done += CHUNK) {
+			int n = Math.min(CHUNK, count - done);
+			in.get(f, 0, n*3);
+			for(int i = 0; i<n; i++) {
+				float x = f[i*3], y = f[i*3+1], z = f[i*3+2];
+				packed[i] = (short)((toSnorm8(octahedralU(x, y, z)) & 0xFF) | (toSnorm8(octahedralV(x, y, z)) << 8));
+			}
+			out.put(packed, 0, n);
+		}
+		dest.position(dest.position() + count*2);
+	}
+
+	/**
+	 * Read normals written by encodeOctahedral8 (same as fromOctahedral8)
+	 * @param src : buffer containing size*2 bytes
+	 * @param normals : batch of dimension 3 receiving unit normals
+	 */
+	public static void decodeOctahedral8(ByteBuffer src, VertexBatch normals) {
+		checkNormals(normals);
+		int count = normals.size();
+		ShortBuffer in = input(src, count, 2).asShortBuffer();
+		FloatBuffer out = normals.getBuffer();
+		float[] f = new float[CHUNK*3];
+		short[] packed = new short[CHUNK];
+		Vertex3f normal = new Vertex3f();
+
+		for(int done = 0; done<count; done += CHUNK) {
+			int n = Math.min(CHUNK, count - done);
+			in.get(packed, 0, n);
+			for(int i = 0; i<n; i++) {
+				fromOctahedral8(packed[i], normal);
+				f[i*3] = normal.x;
+				f[i*3+1] = normal.y;
+				f[i*3+2] = normal.z;
+			}
+			out.put(f, 0, n*3);
+		}
+		src.position(src.position() + count*2);
+	}
+
+	private static void checkNormals(VertexBatch normals) {
+		if(normals.getDimension() != 3)
+			throw new IllegalArgumentException("Can't use a VertexBatch of dimension " + normals.getDimension() + " as normals");
+	}
+
+	/**
+	 * View of dest from its position, checked to hold count values of given size
+	 */
+	private static ByteBuffer output(ByteBuffer dest, int count, int bytes) {
+		if(dest.remaining() < (long)count * bytes)
+			throw new BufferOverflowException();
+		return dest.slice().order(dest.order());
+	}
+
+	private static ByteBuffer input(ByteBuffer src, int count, int bytes) {
+		if(src.remaining() < (long)count * bytes)
+			throw new BufferUnderflowException();
+		return src.slice().order(src.order());
+	}
+}
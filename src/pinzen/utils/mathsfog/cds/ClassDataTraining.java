@@ -0,0 +1,127 @@
+package pinzen.utils.mathsfog.cds;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import pinzen.utils.mathsfog.AABB3f;
+import pinzen.utils.mathsfog.AABB3fSet;
+import pinzen.utils.mathsfog.BatchFile;
+import pinzen.utils.mathsfog.CircleBounds2D;
+import pinzen.utils.mathsfog.Interpolation;
+import pinzen.utils.mathsfog.KdTree;
+import pinzen.utils.mathsfog.KeyframeTrack;
+import pinzen.utils.mathsfog.Matrix4f;
+import pinzen.utils.mathsfog.Normalization;
+import pinzen.utils.mathsfog.PairListener;
+import pinzen.utils.mathsfog.Polygon2f;
+import pinzen.utils.mathsfog.ProjectionCache;
+import pinzen.utils.mathsfog.Ray3f;
+import pinzen.utils.mathsfog.RectBounds2f;
+import pinzen.utils.mathsfog.SphereBounds3f;
+import pinzen.utils.mathsfog.SphereBounds3fSet;
+import pinzen.utils.mathsfog.Sweep2f;
+import pinzen.utils.mathsfog.SweepAndPrune2f;
+import pinzen.utils.mathsfog.TransformPipeline;
+import pinzen.utils.mathsfog.TransformStore;
+import pinzen.utils.mathsfog.Vertex2f;
+import pinzen.utils.mathsfog.Vertex3f;
+import pinzen.utils.mathsfog.Vertex4f;
+import pinzen.utils.mathsfog.VertexBatch;
+import pinzen.utils.mathsfog.VertexPacking;
+
+/**
+ * Short workload loading the classes of this library, used to create a class data sharing archive
+ * (AppCDS) so short-lived jobs start without loading and verifying them again
+ *
+ * Not part of the API : this package isn't exported by the module, the class is only in the jar because
+ * the archive must be created from the jar alone. The run writes and deletes a temporary file (BatchFile).
+ *
+ * Archive (JDK 13+, done by the appcds build profile) :
+ * java -XX:ArchiveClassesAtExit=mathsfog.jsa -cp mathsfog.jar pinzen.utils.mathsfog.cds.ClassDataTraining
+ * Use (mathsfog.jar must be first in the class path) :
+ * java -XX:SharedArchiveFile=mathsfog.jsa -cp mathsfog.jar:app.jar ...
+ */
+public final class ClassDataTraining {
+
+	private ClassDataTraining() {}
+
+	public static void main(String[] args) throws IOException {
+		// matrices and vertices
+		Matrix4f model = Matrix4f.builder().scale(2).rotate(new Vertex3f(0, 1, 0), 30).translate(new Vertex3f(1, 2, 3)).build();
+		Matrix4f view = Matrix4f.lookAt(new Vertex3f(0, 0, -10), new Vertex3f(), new Vertex3f(0, 1, 0), new Matrix4f());
+		Matrix4f projection = ProjectionCache.SHARED.getPerspective(60, 1.5f, 0.1f, 100);
+		Matrix4f mvp = Matrix4f.viewProjection(projection, Matrix4f.mult(view, model), new Matrix4f());
+		Matrix4f.invert(mvp, new Matrix4f());
+		model.decompose(new Vertex3f(), new Vertex4f(), new Vertex3f());
+		Interpolation.lerp(new Vertex2f(), new Vertex2f(1, 1), 0.5f, new Vertex2f());
+		new KeyframeTrack(new float[] {0, 1}, new float[] {0, 0, 0, 1, 1, 1}, 3, KeyframeTrack.Mode.LINEAR).sample(0.5f, new Vertex3f());
+
+		// batches
+		float[] points = new float[3 * 64];
+		for(int i = 0; i<points.length; i++) {
+			points[i] = i;
+		}
+		model.transformPoints(points, 0, 64);
+		Normalization.normalize(points.clone(), 0, 64, 3, false, Normalization.ZeroLength.ZERO);
+		VertexBatch batch = VertexBatch.wrap(points, 3);
+		ByteBuffer packed = ByteBuffer.allocate(64 * 6).order(ByteOrder.LITTLE_ENDIAN);
+		VertexPacking.encodeHalf(batch, packed);
+		packed.flip();
+		VertexPacking.decodeHalf(packed, batch);
+
+		Path file = Files.createTempFile("mathsfog", ".bin");
+		try {
+			BatchFile.write(file, batch);
+			BatchFile.mapVertices(file);
+		}
+		finally {
+			Files.delete(file);
+		}
+
+		ByteBuffer stream = ByteBuffer.allocate(points.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+		stream.asFloatBuffer().put(points);
+		new TransformPipeline().transform(model).workers(1)
+				.run(Channels.newChannel(new ByteArrayInputStream(stream.array())), Channels.newChannel(new ByteArrayOutputStream()));
+
+		TransformStore store = new TransformStore(4);
+		store.set(0, model);
+		store.publish();
+		store.acquire().get(0, new Matrix4f());
+
+		// bounds and spatial queries
+		AABB3fSet boxes = new AABB3fSet(64);
+		SphereBounds3fSet spheres = new SphereBounds3fSet(64);
+		for(int i = 0; i<64; i++) {
+			boxes.add(points[i*3], points[i*3+1], points[i*3+2], points[i*3] + 1, points[i*3+1] + 1, points[i*3+2] + 1);
+			spheres.add(points[i*3], points[i*3+1], points[i*3+2], 1);
+		}
+		long[] mask = new long[1];
+		boxes.collide(new AABB3f(0, 0, 0, 10, 10, 10), mask);
+		boxes.collide(new SphereBounds3f(new Vertex3f(), 10), mask);
+		boxes.transform(boxes, model);
+		boxes.sweepAndPrune((a, b) -> {});
+		spheres.sweepAndPrune((a, b) -> {});
+		new Ray3f(new Vertex3f(), new Vertex3f(0, 0, 1)).intersect(new AABB3f(-1, -1, 1, 1, 1, 2));
+
+		SweepAndPrune2f sap = new SweepAndPrune2f(4);
+		sap.add(new RectBounds2f(0, 0, 2, 2));
+		sap.add(new CircleBounds2D(new Vertex2f(1, 1), 1));
+		sap.update(new PairListener() {
+			public void pairAdded(int a, int b) {}
+			public void pairRemoved(int a, int b) {}
+		});
+		Sweep2f.circleCircle(new CircleBounds2D(new Vertex2f(), 1), new Vertex2f(5, 0), new CircleBounds2D(new Vertex2f(4, 0), 1), new Vertex2f());
+
+		KdTree tree = new KdTree(3);
+		tree.build(points, 64);
+		tree.nearest(1, 2, 3);
+		Polygon2f hull = new Polygon2f(new float[] {0,0, 4,0, 2,1, 4,4, 0,4}, 5).getConvexHull();
+		hull.contains(1, 1);
+	}
+}